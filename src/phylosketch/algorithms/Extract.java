@@ -68,12 +68,15 @@ public enum Extract {
 			var graph = service.getValue().getFirst();
 			var coordinates = service.getValue().getSecond();
 			NodeArray<Node> old2new = graph.newNodeArray();
-			view.getGraph().copy(graph, old2new, null);
 
-			graph.nodes().forEach(v -> view.addNode(old2new.get(v), newWindow.getController().getContentPane(), coordinates.get(v).getX(), coordinates.get(v).getY()));
-			view.getGraph().edges().forEach(view::addEdge);
-
-			view.getUndoManager().doAndAdd(new ChangeEdgeShapeCommand(view, IteratorUtils.asList(view.getGraph().edges()), ChangeEdgeShapeCommand.EdgeShape.Reshape));
+			// one transaction, so that listeners of the new window are notified once. The Reshape is applied inside it,
+			// unless there are so many edges that ChangeEdgeShapeCommand routes them in the background, after it has ended
+			view.batchUpdate(() -> {
+				view.getGraph().copy(graph, old2new, null);
+				graph.nodes().forEach(v -> view.addNode(old2new.get(v), newWindow.getController().getContentPane(), coordinates.get(v).getX(), coordinates.get(v).getY()));
+				view.getGraph().edges().forEach(view::addEdge);
+				ChangeEdgeShapeCommand.reshape(view, IteratorUtils.asList(view.getGraph().edges()));
+			});
 
 			view.setDirty(true);
 		});
@@ -0,0 +1,88 @@
+/*
+ * OptimizeLayout.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.algorithms;
+
+import jloda.fx.util.AService;
+import jloda.fx.util.ProgramProperties;
+import jloda.fx.window.NotificationManager;
+import jloda.graph.Edge;
+import jloda.graph.EdgeArray;
+import jloda.graph.Node;
+import jloda.graph.NodeArray;
+import jloda.phylo.PhyloTree;
+import jloda.util.CanceledException;
+import phylosketch.commands.LayoutCommand;
+import phylosketch.embed.RootedNetworkEmbedder;
+import phylosketch.view.PhyloView;
+import phylosketch.window.MainWindow;
+
+/**
+ * lays out the whole network after reordering the children of the LSA tree so as to shorten reticulate edges.
+ * The reordering and layout run in a background service on a copy of the network, while the view is busy. The result
+ * is mapped back to the view's network, applied and added to the undo history as one command
+ * Daniel Huson, 10.2026
+ */
+public class OptimizeLayout {
+    /**
+     * optimize the layout
+     *
+     * @param orientation the orientation of the layout
+     * @param scaling     determines whether and how edge weights are used
+     */
+    public static void apply(MainWindow window, RootedNetworkEmbedder.Orientation orientation, RootedNetworkEmbedder.Scaling scaling) {
+        final PhyloView view = window.getView();
+        final long optimizeMillis = ProgramProperties.get("OptimizeLayoutMillis", 1000);
+
+        // the layout sets the root and registers node arrays, so it runs on a copy that is made on the FX thread:
+        final PhyloTree copy = new PhyloTree();
+        final NodeArray<Node> view2copyNode = new NodeArray<>(view.getGraph());
+        final EdgeArray<Edge> view2copyEdge = new EdgeArray<>(view.getGraph());
+        copy.copy(view.getGraph(), view2copyNode, view2copyEdge);
+        final NodeArray<Node> copy2viewNode = new NodeArray<>(copy);
+        for (Node v : view.getGraph().nodes())
+            copy2viewNode.put(view2copyNode.get(v), v);
+        final EdgeArray<Edge> copy2viewEdge = new EdgeArray<>(copy);
+        for (Edge e : view.getGraph().edges())
+            copy2viewEdge.put(view2copyEdge.get(e), e);
+
+        final AService<RootedNetworkEmbedder.Layout> service = new AService<>(window.getController().getStatusFlowPane());
+        service.setCallable(() -> {
+            service.getProgressListener().setTasks("Optimizing", "layout");
+            return RootedNetworkEmbedder.computeLayout(copy, orientation, scaling, optimizeMillis);
+        });
+
+        service.setOnSucceeded(c -> {
+            view.setBusy(false);
+            if (service.getValue() != null)
+                view.getUndoManager().doAndAdd(LayoutCommand.create("Optimize Layout", view, service.getValue().map(copy2viewNode::get, copy2viewEdge::get)));
+            else
+                NotificationManager.showWarning("Optimize layout failed: network has no root");
+        });
+        service.setOnFailed(c -> {
+            view.setBusy(false);
+            if (!(service.getException() instanceof CanceledException))
+                NotificationManager.showError("Optimize layout failed: " + service.getException().getMessage());
+        });
+        service.setOnCancelled(c -> view.setBusy(false));
+
+        view.setBusy(true);
+        service.start();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * RelaxLayout.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.algorithms;
+
+import javafx.application.Platform;
+import jloda.fx.util.AService;
+import jloda.fx.util.ProgramProperties;
+import jloda.fx.window.NotificationManager;
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.graph.NodeIntArray;
+import jloda.phylo.PhyloTree;
+import jloda.util.CanceledException;
+import phylosketch.commands.CoordinatesRecord;
+import phylosketch.commands.LayoutCommand;
+import phylosketch.embed.CladogramLayout;
+import phylosketch.embed.ForceDirectedLayout;
+import phylosketch.view.EdgeView;
+import phylosketch.view.NodeView;
+import phylosketch.view.PhyloView;
+import phylosketch.window.MainWindow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * incremental relayout after a local edit: the selected nodes and all nodes below them are laid out again by a
+ * force-directed simulation, while all other nodes stay where they are. The simulation runs in a background
+ * thread and the view shows its progress live, editing is disabled while it runs. The result is added to the undo
+ * history as one command
+ * Daniel Huson, 10.2026
+ */
+public class RelaxLayout {
+    public static void apply(MainWindow window) {
+        final PhyloView view = window.getView();
+        final PhyloTree graph = view.getGraph();
+
+        final Node[] nodes = graph.getNodesAsList().toArray(new Node[0]);
+        final Edge[] edges = graph.getEdgesAsList().toArray(new Edge[0]);
+        final boolean[] free = new boolean[nodes.length];
+        final double[] locations = new double[2 * nodes.length];
+        final int[] edgeSource = new int[edges.length];
+        final int[] edgeTarget = new int[edges.length];
+
+        try (NodeIntArray node2index = graph.newNodeIntArray()) {
+            for (int v = 0; v < nodes.length; v++) {
+                node2index.set(nodes[v], v);
+                locations[2 * v] = view.getNodeView(nodes[v]).getTranslateX();
+                locations[2 * v + 1] = view.getNodeView(nodes[v]).getTranslateY();
+            }
+            for (int e = 0; e < edges.length; e++) {
+                edgeSource[e] = node2index.getInt(edges[e].getSource());
+                edgeTarget[e] = node2index.getInt(edges[e].getTarget());
+            }
+            // the affected part: selected nodes and everything below them
+            final ArrayDeque<Node> stack = new ArrayDeque<>(view.getNodeSelection().getSelectedItems());
+            while (!stack.isEmpty()) {
+                final Node v = stack.pop();
+                if (!free[node2index.getInt(v)]) {
+                    free[node2index.getInt(v)] = true;
+                    for (Edge f : v.outEdges())
+                        stack.push(f.getTarget());
+                }
+            }
+        }
+
+        final ForceDirectedLayout layout = new ForceDirectedLayout(locations, free, edgeSource, edgeTarget, CladogramLayout.LEVEL_SPACING);
+        final int[] freeNodes = layout.getFreeNodes();
+        if (freeNodes.length == 0)
+            return;
+
+        final NodeView[] freeNodeViews = new NodeView[freeNodes.length];
+        final ArrayList<Node> freeNodeList = new ArrayList<>();
+        for (int i = 0; i < freeNodes.length; i++) {
+            freeNodeViews[i] = view.getNodeView(nodes[freeNodes[i]]);
+            freeNodeList.add(nodes[freeNodes[i]]);
+        }
+        final ArrayList<Edge> affectedEdgeList = new ArrayList<>();
+        final ArrayList<Integer> affectedEdges = new ArrayList<>();
+        for (int e = 0; e < edges.length; e++) {
+            if (free[edgeSource[e]] || free[edgeTarget[e]]) {
+                affectedEdgeList.add(edges[e]);
+                affectedEdges.add(e);
+            }
+        }
+        final EdgeView[] affectedEdgeViews = affectedEdgeList.stream().map(view::getEdgeView).toArray(EdgeView[]::new);
+
+        final CoordinatesRecord oldNodeLocations = CoordinatesRecord.nodeLocations(view, CoordinatesRecord.nodeIds(freeNodeList));
+        final CoordinatesRecord oldControlPoints = CoordinatesRecord.edgeControlCoordinates(view, CoordinatesRecord.edgeIds(affectedEdgeList));
+
+        // shows a snapshot of the simulation, straight edges:
+        final Runnable[] show = new Runnable[1];
+        final AtomicReference<double[]> latest = new AtomicReference<>();
+        show[0] = () -> {
+            final double[] snapshot = latest.getAndSet(null);
+            if (snapshot != null) {
+                for (int i = 0; i < freeNodes.length; i++) {
+                    freeNodeViews[i].setTranslateX(snapshot[2 * freeNodes[i]]);
+                    freeNodeViews[i].setTranslateY(snapshot[2 * freeNodes[i] + 1]);
+                }
+                final double[] controlPoints = new double[4];
+                for (int i = 0; i < affectedEdgeViews.length; i++) {
+                    final int e = affectedEdges.get(i);
+                    final double vx = snapshot[2 * edgeSource[e]], vy = snapshot[2 * edgeSource[e] + 1];
+                    final double wx = snapshot[2 * edgeTarget[e]], wy = snapshot[2 * edgeTarget[e] + 1];
+                    controlPoints[0] = 0.7 * vx + 0.3 * wx;
+                    controlPoints[1] = 0.7 * vy + 0.3 * wy;
+                    controlPoints[2] = 0.3 * vx + 0.7 * wx;
+                    controlPoints[3] = 0.3 * vy + 0.7 * wy;
+                    affectedEdgeViews[i].setControlCoordinates(controlPoints);
+                }
+            }
+        };
+
+        final int iterations = ProgramProperties.get("RelaxLayoutIterations", 300);
+        final long previewMillis = ProgramProperties.get("RelaxLayoutPreviewMillis", 40);
+
+        final AService<double[]> service = new AService<>(window.getController().getStatusFlowPane());
+        service.setCallable(() -> {
+            final var progress = service.getProgressListener();
+            progress.setTasks("Relax layout", freeNodes.length + " nodes");
+            progress.setMaximum(iterations);
+            progress.setProgress(0);
+            final long[] lastPreview = {System.currentTimeMillis()};
+            layout.run(iterations, step -> {
+                try {
+                    progress.setProgress(step);
+                } catch (CanceledException ex) {
+                    return false;
+                }
+                if (System.currentTimeMillis() - lastPreview[0] >= previewMillis) {
+                    lastPreview[0] = System.currentTimeMillis();
+                    if (latest.getAndSet(locations.clone()) == null)
+                        Platform.runLater(show[0]);
+                }
+                return true;
+            });
+            progress.checkForCancel();
+            return locations.clone();
+        });
+
+        service.setOnSucceeded(c -> {
+            view.setBusy(false);
+            latest.set(service.getValue());
+            show[0].run();
+            view.getUndoManager().add(new LayoutCommand("Relax Layout", view, oldNodeLocations, oldControlPoints));
+            view.setDirty(true);
+        });
+        final Runnable restore = () -> {
+            latest.set(null);
+            view.setBusy(false);
+            oldNodeLocations.applyNodeLocations(view, 1, 1);
+            oldControlPoints.applyEdgeControlCoordinates(view);
+        };
+        service.setOnFailed(c -> {
+            restore.run();
+            if (!(service.getException() instanceof CanceledException))
+                NotificationManager.showError("Relax layout failed: " + service.getException().getMessage());
+        });
+        service.setOnCancelled(c -> restore.run());
+
+        view.setBusy(true);
+        service.start();
+    }
+}
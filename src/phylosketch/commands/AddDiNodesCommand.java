@@ -0,0 +1,133 @@
+/*
+ * AddDiNodesCommand.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import javafx.scene.layout.Pane;
+import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+import phylosketch.view.EdgeView;
+import phylosketch.view.PhyloView;
+
+import java.util.Collection;
+
+/**
+ * splits many edges at once, placing a new di-node at the middle of each edge
+ * All edges are split in one pass and the scene is updated once. The undo record consists of arrays of ids, coordinates and style ids
+ * Daniel Huson, 10.2026
+ */
+public class AddDiNodesCommand extends UndoableRedoableCommand implements IMemoryFootprint {
+    private final Runnable undo;
+    private final Runnable redo;
+    private final long memoryFootprint;
+
+    public AddDiNodesCommand(Pane pane, PhyloView view, Collection<Edge> edges) {
+        super("Add Di Nodes");
+
+        final PhyloTree graph = view.getGraph();
+
+        final int[] oldEdgeIds = CoordinatesRecord.edgeIds(edges);
+        final int n = oldEdgeIds.length;
+        final int[] sourceIds = new int[n];
+        final int[] targetIds = new int[n];
+        final double[] locations = new double[2 * n];
+        final int[] strokeIds = new int[n];
+        final int[] strokeWidthIds = new int[n];
+        final boolean[] arrows = new boolean[n];
+        final CoordinatesRecord oldEdgeCoordinates = CoordinatesRecord.edgeControlCoordinates(view, oldEdgeIds);
+
+        // ids of new nodes and edges, assigned by the first redo and reused by later ones:
+        final int[] newNodeIds = new int[n];
+        final int[] newEdge1Ids = new int[n];
+        final int[] newEdge2Ids = new int[n];
+
+        var i = 0;
+        for (Edge e : edges) {
+            final EdgeView edgeView = view.getEdgeView(e);
+            sourceIds[i] = e.getSource().getId();
+            targetIds[i] = e.getTarget().getId();
+            locations[2 * i] = 0.5 * (view.getX(e.getSource()) + view.getX(e.getTarget()));
+            locations[2 * i + 1] = 0.5 * (view.getY(e.getSource()) + view.getY(e.getTarget()));
+            strokeIds[i] = edgeView.getStrokeId();
+            strokeWidthIds[i] = edgeView.getStrokeWidthId();
+            arrows[i] = edgeView.getArrowHead().isVisible();
+            i++;
+        }
+
+        memoryFootprint = 64 + 41L * n + oldEdgeCoordinates.getMemoryFootprint();
+
+        undo = () -> view.batchUpdate(() -> {
+            for (int k = 0; k < n; k++) {
+                final Node v = view.getNodeById(newNodeIds[k]);
+                view.removeNode(v);
+                graph.deleteNode(v);
+
+                final Edge e = graph.newEdge(view.getNodeById(sourceIds[k]), view.getNodeById(targetIds[k]), null, oldEdgeIds[k]);
+                final EdgeView edgeView = view.addEdge(e);
+                edgeView.setControlCoordinates(oldEdgeCoordinates.getCoordinates(k));
+                edgeView.setStrokeWidthId(strokeWidthIds[k]);
+                edgeView.setStrokeId(strokeIds[k]);
+                edgeView.getArrowHead().setVisible(arrows[k]);
+            }
+        });
+
+        redo = () -> view.batchUpdate(() -> {
+            for (int k = 0; k < n; k++) {
+                final Edge oldEdge = view.getEdgeById(oldEdgeIds[k]);
+                view.removeEdge(oldEdge);
+                graph.deleteEdge(oldEdge);
+
+                final Node v = (newNodeIds[k] == 0 ? graph.newNode() : graph.newNode(null, newNodeIds[k]));
+                newNodeIds[k] = v.getId();
+                view.addNode(v, pane, locations[2 * k], locations[2 * k + 1]);
+
+                final Node source = view.getNodeById(sourceIds[k]);
+                final Edge e1 = (newEdge1Ids[k] == 0 ? graph.newEdge(source, v) : graph.newEdge(source, v, null, newEdge1Ids[k]));
+                newEdge1Ids[k] = e1.getId();
+                final EdgeView ev1 = view.addEdge(e1);
+                ev1.setStrokeWidthId(strokeWidthIds[k]);
+                ev1.setStrokeId(strokeIds[k]);
+
+                final Node target = view.getNodeById(targetIds[k]);
+                final Edge e2 = (newEdge2Ids[k] == 0 ? graph.newEdge(v, target) : graph.newEdge(v, target, null, newEdge2Ids[k]));
+                newEdge2Ids[k] = e2.getId();
+                final EdgeView ev2 = view.addEdge(e2);
+                ev2.setStrokeWidthId(strokeWidthIds[k]);
+                ev2.setStrokeId(strokeIds[k]);
+            }
+        });
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return memoryFootprint;
+    }
+
+    @Override
+    public void undo() {
+        undo.run();
+    }
+
+    @Override
+    public void redo() {
+        redo.run();
+    }
+}
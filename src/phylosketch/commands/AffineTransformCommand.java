@@ -0,0 +1,212 @@
+/*
+ * AffineTransformCommand.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.fx.undo.UndoableRedoableCommand;
+import phylosketch.view.AnimationService;
+import phylosketch.view.EdgeView;
+import phylosketch.view.NodeCentroids;
+import phylosketch.view.NodeView;
+import phylosketch.view.PhyloView;
+
+/**
+ * applies an affine transformation to all node locations and edge control points, animated
+ * A transformation is given as a matrix {mxx, mxy, tx, myx, myy, ty}, mapping (x,y) to (mxx*x+mxy*y+tx, myx*x+myy*y+ty).
+ * Transformations are applied to packed coordinate arrays in a single loop. Consecutive rotations added via
+ * doAndAdd(PhyloView, AffineTransformCommand) are composed into one undo entry
+ * Daniel Huson, 10.2026
+ */
+public class AffineTransformCommand extends UndoableRedoableCommand implements ICoalescable, IMemoryFootprint {
+    private final PhyloView view;
+    private double[] matrix;
+    private double rotationAngle; // accumulated angle, if the transformation is a rotation about the origin, NaN otherwise
+
+    private final PositionNodeLabelsCommand firstLabelsCommand;
+    private PositionNodeLabelsCommand lastLabelsCommand;
+
+    /**
+     * constructor
+     *
+     * @param matrix        the transformation
+     * @param labelsCommand repositions the labels after the transformation, or null
+     */
+    public AffineTransformCommand(String name, PhyloView view, double[] matrix, PositionNodeLabelsCommand labelsCommand) {
+        this(name, view, matrix, Double.NaN, labelsCommand);
+    }
+
+    protected AffineTransformCommand(String name, PhyloView view, double[] matrix, double rotationAngle, PositionNodeLabelsCommand labelsCommand) {
+        super(name);
+        this.view = view;
+        this.matrix = matrix;
+        this.rotationAngle = rotationAngle;
+        this.firstLabelsCommand = labelsCommand;
+        this.lastLabelsCommand = labelsCommand;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long bytes = 128;
+        if (firstLabelsCommand != null)
+            bytes += firstLabelsCommand.getMemoryFootprint();
+        if (lastLabelsCommand != null && lastLabelsCommand != firstLabelsCommand)
+            bytes += lastLabelsCommand.getMemoryFootprint();
+        return bytes;
+    }
+
+    @Override
+    public void undo() {
+        transformAnimated(view, invert(matrix), -rotationAngle);
+        if (firstLabelsCommand != null)
+            firstLabelsCommand.undo();
+    }
+
+    @Override
+    public void redo() {
+        transformAnimated(view, matrix, rotationAngle);
+        if (lastLabelsCommand != null)
+            lastLabelsCommand.redo();
+    }
+
+    /**
+     * executes the command and adds it to the view's undo manager. If the previous command added this way is a rotation
+     * that is still the most recent undo entry and this command is also a rotation, then the two are composed into one entry
+     */
+    public static void doAndAdd(PhyloView view, AffineTransformCommand command) {
+        CommandCoalescer.doAndAdd(view, command);
+    }
+
+    @Override
+    public boolean canCoalesce(UndoableRedoableCommand next, long millisSinceChanged) {
+        return next instanceof AffineTransformCommand other && other.view == view
+               && !Double.isNaN(rotationAngle) && !Double.isNaN(other.rotationAngle);
+    }
+
+    @Override
+    public void coalesce(UndoableRedoableCommand next) {
+        final AffineTransformCommand other = (AffineTransformCommand) next;
+        matrix = multiply(other.matrix, matrix);
+        rotationAngle += other.rotationAngle;
+        if (other.lastLabelsCommand != null)
+            lastLabelsCommand = other.lastLabelsCommand;
+    }
+
+    /**
+     * @return matrix for a rotation about the origin, by the given angle in degrees
+     */
+    public static double[] rotation(double alpha) {
+        final double radians = Math.toRadians(alpha);
+        final double cos = Math.cos(radians);
+        final double sin = Math.sin(radians);
+        return new double[]{cos, -sin, 0, sin, cos, 0};
+    }
+
+    /**
+     * @return matrix that mirrors x coordinates (horizontally) or y coordinates
+     */
+    public static double[] flip(boolean horizontally) {
+        return horizontally ? new double[]{-1, 0, 0, 0, 1, 0} : new double[]{1, 0, 0, 0, -1, 0};
+    }
+
+    public static double[] scale(double factorX, double factorY) {
+        return new double[]{factorX, 0, 0, 0, factorY, 0};
+    }
+
+    public static double[] shear(double shearX, double shearY) {
+        return new double[]{1, shearX, 0, shearY, 1, 0};
+    }
+
+    /**
+     * @return the transformation that first applies b and then a
+     */
+    public static double[] multiply(double[] a, double[] b) {
+        return new double[]{
+                a[0] * b[0] + a[1] * b[3], a[0] * b[1] + a[1] * b[4], a[0] * b[2] + a[1] * b[5] + a[2],
+                a[3] * b[0] + a[4] * b[3], a[3] * b[1] + a[4] * b[4], a[3] * b[2] + a[4] * b[5] + a[5]};
+    }
+
+    /**
+     * @return the inverse transformation
+     */
+    public static double[] invert(double[] m) {
+        final double det = m[0] * m[4] - m[1] * m[3];
+        return new double[]{
+                m[4] / det, -m[1] / det, (m[1] * m[5] - m[4] * m[2]) / det,
+                -m[3] / det, m[0] / det, (m[3] * m[2] - m[0] * m[5]) / det};
+    }
+
+    /**
+     * apply a transformation to a range of packed x,y coordinates
+     */
+    public static void apply(double[] m, double[] from, double[] to, int start, int end) {
+        final double mxx = m[0], mxy = m[1], tx = m[2], myx = m[3], myy = m[4], ty = m[5];
+        for (int i = start; i < end; i += 2) {
+            final double x = from[i];
+            final double y = from[i + 1];
+            to[i] = mxx * x + mxy * y + tx;
+            to[i + 1] = myx * x + myy * y + ty;
+        }
+    }
+
+    /**
+     * transform all nodes and edges. A rotation is animated by interpolating the angle, so that points move along arcs,
+     * any other transformation by interpolating between the identity and the transformation
+     */
+    private static void transformAnimated(PhyloView view, double[] matrix, double rotationAngle) {
+        AnimationService.getInstance().finishAll(); // start from the final state of any previous change
+
+        final NodeView[] nodeViews = view.getGraph().nodeStream().map(view::getNodeView).toArray(NodeView[]::new);
+        final double[] nodeCoordinates = new double[2 * nodeViews.length];
+        for (int i = 0; i < nodeViews.length; i++) {
+            nodeCoordinates[2 * i] = nodeViews[i].getTranslateX();
+            nodeCoordinates[2 * i + 1] = nodeViews[i].getTranslateY();
+        }
+        final EdgeView[] edgeViews = view.getGraph().edgeStream().map(view::getEdgeView).toArray(EdgeView[]::new);
+        final double[] edgeCoordinates = new double[4 * edgeViews.length];
+        for (int i = 0; i < edgeViews.length; i++) {
+            System.arraycopy(edgeViews[i].getControlCoordinates(), 0, edgeCoordinates, 4 * i, 4);
+        }
+
+        final AnimationService.Interpolation interpolation;
+        if (!Double.isNaN(rotationAngle))
+            interpolation = (from, to, current, start, end, t) -> apply(rotation(t * rotationAngle), from, current, start, end);
+        else
+            interpolation = (from, to, current, start, end, t) -> {
+                final double s = 1.0 - t;
+                apply(new double[]{s + t * matrix[0], t * matrix[1], t * matrix[2], t * matrix[3], s + t * matrix[4], t * matrix[5]}, from, current, start, end);
+            };
+
+        final double[] transformedNodeCoordinates = new double[nodeCoordinates.length];
+        apply(matrix, nodeCoordinates, transformedNodeCoordinates, 0, nodeCoordinates.length);
+        // the centroids are transformed in one step, the individual moves made by the animation are ignored:
+        final NodeCentroids centroids = view.getNodeCentroids();
+        centroids.beginTransform(matrix);
+        AnimationService.getInstance().play(nodeCoordinates, transformedNodeCoordinates, 2, interpolation, (i, values, offset) -> {
+            centroids.ignoreMoves(true);
+            nodeViews[i].setTranslateX(values[offset]);
+            nodeViews[i].setTranslateY(values[offset + 1]);
+            centroids.ignoreMoves(false);
+        }, centroids::endTransform);
+
+        final double[] transformedEdgeCoordinates = new double[edgeCoordinates.length];
+        apply(matrix, edgeCoordinates, transformedEdgeCoordinates, 0, edgeCoordinates.length);
+        AnimationService.getInstance().play(edgeCoordinates, transformedEdgeCoordinates, 4, interpolation,
+                (i, values, offset) -> edgeViews[i].setControlCoordinates(values, offset), null);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * BudgetedUndoManager.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.fx.undo.UndoManager;
+import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.fx.window.NotificationManager;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * undo manager that registers every added command with an undo history budget and reports additions to listeners.
+ * It keeps track of the commands that can be undone and redone, so that commands that the manager drops are removed
+ * from the budget right away. When the budget is exceeded, the oldest commands are dropped one at a time, never the
+ * most recent one. If an undo or redo fails by throwing an exception, the history is reset to the commands that could
+ * be undone before, so that it doesn't move past the failed command
+ * Daniel Huson, 10.2026
+ */
+public class BudgetedUndoManager extends UndoManager {
+    private final UndoHistoryBudget budget = new UndoHistoryBudget();
+    private final ArrayList<Consumer<UndoableRedoableCommand>> addListeners = new ArrayList<>();
+
+    // the commands that can be undone, oldest first, and those that can be redone, next one last:
+    private final ArrayList<UndoableRedoableCommand> undoHistory = new ArrayList<>();
+    private final ArrayList<UndoableRedoableCommand> redoHistory = new ArrayList<>();
+    private boolean performing = false;
+
+    @Override
+    public void add(UndoableRedoableCommand command) {
+        super.add(command);
+        added(command);
+    }
+
+    @Override
+    public void doAndAdd(UndoableRedoableCommand command) {
+        super.doAndAdd(command);
+        added(command);
+    }
+
+    /**
+     * called for every added command, possibly twice, if the undo manager implements doAndAdd() by add()
+     */
+    private void added(UndoableRedoableCommand command) {
+        for (UndoableRedoableCommand dropped : redoHistory)
+            budget.remove(dropped);
+        redoHistory.clear();
+        if (undoHistory.isEmpty() || undoHistory.get(undoHistory.size() - 1) != command)
+            undoHistory.add(command);
+        budget.register(command);
+        keepBudget();
+        for (Consumer<UndoableRedoableCommand> listener : addListeners)
+            listener.accept(command);
+    }
+
+    @Override
+    public void undo() {
+        if (!undoableProperty().get() || undoHistory.isEmpty()) {
+            super.undo();
+            return;
+        }
+        final UndoableRedoableCommand command = undoHistory.get(undoHistory.size() - 1);
+        if (perform(super::undo, "Undo")) {
+            undoHistory.remove(undoHistory.size() - 1);
+            redoHistory.add(command);
+        }
+        keepBudget();
+    }
+
+    @Override
+    public void redo() {
+        if (!redoableProperty().get() || redoHistory.isEmpty()) {
+            super.redo();
+            return;
+        }
+        final UndoableRedoableCommand command = redoHistory.get(redoHistory.size() - 1);
+        if (perform(super::redo, "Redo")) {
+            redoHistory.remove(redoHistory.size() - 1);
+            undoHistory.add(command);
+        }
+        keepBudget();
+    }
+
+    /**
+     * performs an undo or redo. If it fails, the history of the manager is reset to the commands that can be undone,
+     * so that it doesn't move past the failed command
+     *
+     * @return true, if successful
+     */
+    private boolean perform(Runnable undoOrRedo, String name) {
+        performing = true;
+        try {
+            undoOrRedo.run();
+            return true;
+        } catch (RuntimeException ex) {
+            NotificationManager.showError(name + " failed: " + ex.getMessage());
+            for (UndoableRedoableCommand dropped : redoHistory)
+                budget.remove(dropped);
+            redoHistory.clear();
+            rebuild();
+            return false;
+        } finally {
+            performing = false;
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        undoHistory.clear();
+        redoHistory.clear();
+        budget.clear();
+    }
+
+    /**
+     * call when the memory footprint of a command in the history has changed, e.g. after merging another command into it
+     */
+    public void footprintChanged(UndoableRedoableCommand command) {
+        budget.register(command);
+        keepBudget();
+    }
+
+    /**
+     * if spilling hasn't kept the budget, drops the oldest commands, one at a time, until it is kept or only the most
+     * recent command is left. Dropping requires rebuilding the history of the manager, which would lose its redo history,
+     * so this is postponed while any command can be redone, until the next command is added
+     */
+    private void keepBudget() {
+        if (!performing && redoHistory.isEmpty() && budget.isOverBudget()) {
+            var dropped = 0;
+            while (budget.isOverBudget() && dropped < undoHistory.size() - 1)
+                budget.remove(undoHistory.get(dropped++));
+            if (dropped > 0) {
+                undoHistory.subList(0, dropped).clear();
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * resets the history of the manager to the commands that can be undone
+     */
+    private void rebuild() {
+        super.clear();
+        for (UndoableRedoableCommand command : undoHistory)
+            super.add(command);
+    }
+
+    /**
+     * add a listener that is called whenever a command is added to the undo history
+     */
+    public void addCommandAddedListener(Consumer<UndoableRedoableCommand> listener) {
+        addListeners.add(listener);
+    }
+
+    public UndoHistoryBudget getBudget() {
+        return budget;
+    }
+}
@@ -20,11 +20,13 @@
 package phylosketch.commands;
 
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import jloda.fx.undo.UndoableRedoableCommand;
 import jloda.graph.Edge;
+import phylosketch.view.EdgeView;
 import phylosketch.view.PhyloView;
+import phylosketch.view.StyleTable;
 
-import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -34,24 +36,33 @@ import java.util.Collection;
 public class ChangeEdgeColorCommand extends UndoableRedoableCommand {
     private final Runnable undo;
     private final Runnable redo;
-    private final ArrayList<Data> dataList = new ArrayList<>();
 
     public ChangeEdgeColorCommand(PhyloView editor, Collection<Edge> edges, Color value) {
         super("Edge Color");
 
+        // only ids are kept, styles are shared via the style table
+        final int[] ids = new int[edges.size()];
+        final int[] oldStyleIds = new int[ids.length];
+        final StyleTable styleTable = editor.getStyleTable();
+        final int newStyleId = styleTable.getPaintId(value);
+
+        var i = 0;
         for (Edge e : edges) {
-            dataList.add(new Data(e.getId(), (Color) editor.getCurve(e).getStroke(), value));
+            ids[i] = e.getId();
+            oldStyleIds[i++] = editor.getEdgeView(e).getStrokeId();
         }
 
         undo = () -> {
-            for (Data data : dataList) {
-                editor.getCurve(editor.getGraph().findEdgeById(data.id)).setStroke(data.oldValue);
+            final EdgeView[] views = editor.getEdgeViewsById(ids);
+            final Paint[] oldStyles = styleTable.getPaints(oldStyleIds);
+            for (var k = 0; k < ids.length; k++) {
+                views[k].getCurve().setStroke(oldStyles[k]);
             }
         };
 
         redo = () -> {
-            for (Data data : dataList) {
-                editor.getCurve(editor.getGraph().findEdgeById(data.id)).setStroke(data.newValue);
+            for (var view : editor.getEdgeViewsById(ids)) {
+                view.setStrokeId(newStyleId);
             }
         };
     }
@@ -66,16 +77,4 @@ public class ChangeEdgeColorCommand extends UndoableRedoableCommand {
     public void redo() {
         redo.run();
     }
-
-    static class Data {
-        final int id;
-        final Color oldValue;
-        final Color newValue;
-
-        public Data(int id, Color oldValue, Color newValue) {
-            this.id = id;
-            this.oldValue = oldValue;
-            this.newValue = newValue;
-        }
-    }
 }
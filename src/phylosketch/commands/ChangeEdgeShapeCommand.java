@@ -19,29 +19,36 @@
 
 package phylosketch.commands;
 
-import javafx.animation.Animation;
-import javafx.animation.Transition;
 import javafx.geometry.Point2D;
-import javafx.util.Duration;
 import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.fx.util.AService;
 import jloda.fx.util.ProgramProperties;
+import jloda.fx.window.NotificationManager;
 import jloda.graph.Edge;
-import jloda.util.CollectionUtils;
+import jloda.graph.Node;
+import jloda.graph.NodeIntArray;
+import jloda.phylo.PhyloTree;
+import jloda.util.CanceledException;
+import phylosketch.embed.EdgeRouter;
+import phylosketch.view.AnimationService;
+import phylosketch.view.EdgeView;
+import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * change the shape of edges
  * Daniel Huson, 2.2020
  */
-public class ChangeEdgeShapeCommand extends UndoableRedoableCommand {
+public class ChangeEdgeShapeCommand extends UndoableRedoableCommand implements IMemoryFootprint {
     public enum EdgeShape {Straight, DownRight, RightDown, Reshape}
 
     final private Runnable undo;
     final private Runnable redo;
+    final private long memoryFootprint;
 
     /**
      * constructor
@@ -50,77 +57,163 @@ public class ChangeEdgeShapeCommand extends UndoableRedoableCommand {
     public ChangeEdgeShapeCommand(PhyloView view, Collection<Edge> edges, EdgeShape shape) {
         super("Edge Shape");
 
-        final boolean horizontal = (shape == EdgeShape.Reshape && view.computeRootLocation().isHorizontal());
-
-        final Map<Integer, double[]> id2oldCoordinates = new HashMap<>();
-        final Map<Integer, double[]> id2newCoordinates = new HashMap<>();
-
-        edges.forEach(e -> {
-            final double[] oldCoordinates = view.getEdgeView(e).getControlCoordinates();
-
-            final double[] newCoordinates;
-            final Point2D start = new Point2D(view.getX(e.getSource()), view.getY(e.getSource()));
-            final Point2D end = new Point2D(view.getX(e.getTarget()), view.getY(e.getTarget()));
-
-            final EdgeShape shapeToUse;
-            if (shape == EdgeShape.Reshape) {
-                if (Math.abs(start.getX() - end.getX()) < 5 || Math.abs(start.getY() - end.getY()) < 5 || start.distance(end) < 25)
-                    shapeToUse = EdgeShape.Straight;
-                else if (horizontal)
-                    shapeToUse = EdgeShape.DownRight;
-                else
-                    shapeToUse = EdgeShape.RightDown;
-            } else shapeToUse = shape;
-
-            switch (shapeToUse) {
-                default:
-                case Straight: {
-                    newCoordinates = new double[]{0.7 * start.getX() + 0.3 * end.getX(), 0.7 * start.getY() + 0.3 * end.getY(), 0.3 * start.getX() + 0.7 * end.getX(), 0.3 * start.getY() + 0.7 * end.getY()};
-                    break;
-                }
-                case RightDown: {
-                    newCoordinates = new double[]{end.getX(), start.getY(), end.getX(), start.getY()};
-                    break;
-                }
-                case DownRight: {
-                    newCoordinates = new double[]{start.getX(), end.getY(), start.getX(), end.getY()};
-                    break;
-                }
-            }
-            synchronized (id2oldCoordinates) {
-                id2oldCoordinates.put(e.getId(), oldCoordinates);
-                id2newCoordinates.put(e.getId(), newCoordinates);
+        final int[] ids = CoordinatesRecord.edgeIds(edges);
+        final CoordinatesRecord oldCoordinates = CoordinatesRecord.edgeControlCoordinates(view, ids);
+        final CoordinatesRecord newCoordinates = new CoordinatesRecord(ids, 4);
+
+        if (shape == EdgeShape.Reshape) {
+            setControlPoints(newCoordinates, prepareRouting(view, edges).get());
+        } else {
+            var i = 0;
+            for (Edge e : edges) {
+                final Point2D start = new Point2D(view.getX(e.getSource()), view.getY(e.getSource()));
+                final Point2D end = new Point2D(view.getX(e.getTarget()), view.getY(e.getTarget()));
+                setCoordinates(newCoordinates, i++, shape, start, end);
             }
-        });
+        }
 
-        undo = () -> animateChangeShape(view, id2newCoordinates, id2oldCoordinates);
+        undo = () -> animateChangeShape(view, newCoordinates, oldCoordinates);
 
-        redo = () -> animateChangeShape(view, id2oldCoordinates, id2newCoordinates);
+        redo = () -> animateChangeShape(view, oldCoordinates, newCoordinates);
+        memoryFootprint = oldCoordinates.getMemoryFootprint() + newCoordinates.getMemoryFootprint();
     }
 
-    private void animateChangeShape(PhyloView view, Map<Integer, double[]> id2oldCoordinates, Map<Integer, double[]> id2newCoordinates) {
-        if (id2oldCoordinates.size() < ProgramProperties.get("AnimationLimit", 5000)) {
-            final Animation animation = new Transition() {
-                {
-                    setCycleDuration(Duration.millis(500));
-                }
+    /**
+     * constructor for edges that have been routed already
+     *
+     * @param controlPoints packed control points for the edges, in the order of the ids
+     */
+    private ChangeEdgeShapeCommand(PhyloView view, int[] ids, double[] controlPoints) {
+        super("Edge Shape");
+
+        final CoordinatesRecord oldCoordinates = CoordinatesRecord.edgeControlCoordinates(view, ids);
+        final CoordinatesRecord newCoordinates = new CoordinatesRecord(ids, 4);
+        setControlPoints(newCoordinates, controlPoints);
+
+        undo = () -> animateChangeShape(view, newCoordinates, oldCoordinates);
+
+        redo = () -> animateChangeShape(view, oldCoordinates, newCoordinates);
+        memoryFootprint = oldCoordinates.getMemoryFootprint() + newCoordinates.getMemoryFootprint();
+    }
+
+    /**
+     * reshapes the given edges so that they avoid all nodes and labels, as an undoable command. If there are more than
+     * BackgroundRoutingEdges edges, the routing runs in a background service, while the view is busy
+     */
+    public static void reshape(PhyloView view, Collection<Edge> edges) {
+        final int[] ids = CoordinatesRecord.edgeIds(edges);
+        final Supplier<double[]> routing = prepareRouting(view, edges);
+
+        if (ids.length <= ProgramProperties.get("BackgroundRoutingEdges", 1000))
+            view.getUndoManager().doAndAdd(new ChangeEdgeShapeCommand(view, ids, routing.get()));
+        else {
+            final AService<double[]> service = new AService<>(view.getWindow().getController().getStatusFlowPane());
+            service.setCallable(() -> {
+                service.getProgressListener().setTasks("Reshaping", ids.length + " edges");
+                return routing.get();
+            });
+            service.setOnSucceeded(c -> {
+                view.setBusy(false);
+                view.getUndoManager().doAndAdd(new ChangeEdgeShapeCommand(view, ids, service.getValue()));
+            });
+            service.setOnFailed(c -> {
+                view.setBusy(false);
+                if (!(service.getException() instanceof CanceledException))
+                    NotificationManager.showError("Reshape edges failed: " + service.getException().getMessage());
+            });
+            service.setOnCancelled(c -> view.setBusy(false));
+
+            view.setBusy(true);
+            service.start();
+        }
+    }
 
-                @Override
-                protected void interpolate(double p) {
-                    final double q = 1.0 - p;
-                    for (Integer id : id2oldCoordinates.keySet()) {
-						view.getEdgeView(view.getGraph().findEdgeById(id)).setControlCoordinates(CollectionUtils.weightedSum(p, id2newCoordinates.get(id), q, id2oldCoordinates.get(id)));
-                    }
+    private static void setControlPoints(CoordinatesRecord newCoordinates, double[] controlPoints) {
+        for (int i = 0; i < newCoordinates.size(); i++) {
+            for (int c = 0; c < 4; c++)
+                newCoordinates.set(i, c, controlPoints[4 * i + c]);
+        }
+    }
+
+    private static void setCoordinates(CoordinatesRecord newCoordinates, int i, EdgeShape shape, Point2D start, Point2D end) {
+        switch (shape) {
+            default:
+            case Straight: {
+                newCoordinates.setCoordinates(i, new double[]{0.7 * start.getX() + 0.3 * end.getX(), 0.7 * start.getY() + 0.3 * end.getY(), 0.3 * start.getX() + 0.7 * end.getX(), 0.3 * start.getY() + 0.7 * end.getY()});
+                break;
+            }
+            case RightDown: {
+                newCoordinates.setCoordinates(i, new double[]{end.getX(), start.getY(), end.getX(), start.getY()});
+                break;
+            }
+            case DownRight: {
+                newCoordinates.setCoordinates(i, new double[]{start.getX(), end.getY(), start.getX(), end.getY()});
+                break;
+            }
+        }
+    }
+
+    /**
+     * collects the nodes and labels of the view on the FX thread and returns the routing of the given edges so that
+     * they avoid all nodes and labels, see EdgeRouter. The returned routing only uses the collected data and can
+     * be run in a background thread
+     *
+     * @return computes packed control points for the edges, in the given order
+     */
+    private static Supplier<double[]> prepareRouting(PhyloView view, Collection<Edge> edges) {
+        final boolean horizontal = view.computeRootLocation().isHorizontal();
+        final PhyloTree graph = view.getGraph();
+        final Node[] index2node = graph.getNodesAsList().toArray(new Node[0]);
+        final double[] nodeLocations = new double[2 * index2node.length];
+        final double[] boxes = new double[8 * index2node.length];
+        final int[] boxOwners = new int[2 * index2node.length];
+        var numberOfBoxes = 0;
+
+        try (NodeIntArray node2index = graph.newNodeIntArray()) {
+            for (int v = 0; v < index2node.length; v++) {
+                final NodeView nodeView = view.getNodeView(index2node[v]);
+                node2index.set(index2node[v], v);
+                nodeLocations[2 * v] = nodeView.getTranslateX();
+                nodeLocations[2 * v + 1] = nodeView.getTranslateY();
+
+                boxOwners[numberOfBoxes] = v;
+                boxes[4 * numberOfBoxes] = nodeView.getTranslateX() - 0.5 * nodeView.getWidth();
+                boxes[4 * numberOfBoxes + 1] = nodeView.getTranslateY() - 0.5 * nodeView.getHeight();
+                boxes[4 * numberOfBoxes + 2] = nodeView.getWidth();
+                boxes[4 * numberOfBoxes + 3] = nodeView.getHeight();
+                numberOfBoxes++;
+
+                // labels are measured from their text, so labels that have not been created yet are avoided, too
+                if (!nodeView.getLabelText().isEmpty()) {
+                    boxOwners[numberOfBoxes] = v;
+                    System.arraycopy(nodeView.computeLabelBox(), 0, boxes, 4 * numberOfBoxes, 4);
+                    numberOfBoxes++;
                 }
-            };
-            animation.play();
-        } else {
-            for (Integer id : id2oldCoordinates.keySet()) {
-                view.getEdgeView(view.getGraph().findEdgeById(id)).setControlCoordinates(id2newCoordinates.get(id));
             }
+
+            final int[] edgeSource = new int[edges.size()];
+            final int[] edgeTarget = new int[edges.size()];
+            var i = 0;
+            for (Edge e : edges) {
+                edgeSource[i] = node2index.getInt(e.getSource());
+                edgeTarget[i++] = node2index.getInt(e.getTarget());
+            }
+            final double[] obstacleBoxes = Arrays.copyOf(boxes, 4 * numberOfBoxes);
+            final int[] obstacleOwners = Arrays.copyOf(boxOwners, numberOfBoxes);
+            return () -> EdgeRouter.apply(nodeLocations, obstacleBoxes, obstacleOwners, edgeSource, edgeTarget, horizontal);
         }
     }
 
+    private void animateChangeShape(PhyloView view, CoordinatesRecord oldCoordinates, CoordinatesRecord newCoordinates) {
+        final EdgeView[] edgeViews = view.getEdgeViewsById(oldCoordinates.getIds());
+        AnimationService.getInstance().play(oldCoordinates.toPacked(), newCoordinates.toPacked(), 4, (i, values, offset) -> edgeViews[i].setControlCoordinates(values, offset));
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return memoryFootprint;
+    }
+
     @Override
     public void undo() {
         undo.run();
@@ -21,9 +21,10 @@ package phylosketch.commands;
 
 import jloda.fx.undo.UndoableRedoableCommand;
 import jloda.graph.Edge;
+import phylosketch.view.EdgeView;
 import phylosketch.view.PhyloView;
+import phylosketch.view.StyleTable;
 
-import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -33,24 +34,33 @@ import java.util.Collection;
 public class ChangeEdgeWidthCommand extends UndoableRedoableCommand {
     private final Runnable undo;
     private final Runnable redo;
-    private final ArrayList<Data> dataList = new ArrayList<>();
 
     public ChangeEdgeWidthCommand(PhyloView editor, Collection<Edge> edges, double value) {
         super("Edge Width");
 
+        // only ids are kept, styles are shared via the style table
+        final int[] ids = new int[edges.size()];
+        final int[] oldStyleIds = new int[ids.length];
+        final StyleTable styleTable = editor.getStyleTable();
+        final int newStyleId = styleTable.getStrokeWidthId(value);
+
+        var i = 0;
         for (Edge e : edges) {
-            dataList.add(new Data(e.getId(), editor.getCurve(e).getStrokeWidth(), value));
+            ids[i] = e.getId();
+            oldStyleIds[i++] = editor.getEdgeView(e).getStrokeWidthId();
         }
 
         undo = () -> {
-            for (Data data : dataList) {
-                editor.getCurve(editor.getGraph().findEdgeById(data.id)).setStrokeWidth(data.oldValue);
+            final EdgeView[] views = editor.getEdgeViewsById(ids);
+            final double[] oldStyles = styleTable.getStrokeWidths(oldStyleIds);
+            for (var k = 0; k < ids.length; k++) {
+                views[k].getCurve().setStrokeWidth(oldStyles[k]);
             }
         };
 
         redo = () -> {
-            for (Data data : dataList) {
-                editor.getCurve(editor.getGraph().findEdgeById(data.id)).setStrokeWidth(data.newValue);
+            for (var view : editor.getEdgeViewsById(ids)) {
+                view.setStrokeWidthId(newStyleId);
             }
         };
     }
@@ -65,16 +75,4 @@ public class ChangeEdgeWidthCommand extends UndoableRedoableCommand {
     public void redo() {
         redo.run();
     }
-
-    static class Data {
-        final int id;
-        final double oldValue;
-        final double newValue;
-
-        public Data(int id, double oldValue, double newValue) {
-            this.id = id;
-            this.oldValue = oldValue;
-            this.newValue = newValue;
-        }
-    }
 }
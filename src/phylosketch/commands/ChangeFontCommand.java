@@ -22,9 +22,10 @@ package phylosketch.commands;
 import javafx.scene.text.Font;
 import jloda.fx.undo.UndoableRedoableCommand;
 import jloda.graph.Node;
+import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
+import phylosketch.view.StyleTable;
 
-import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -34,26 +35,33 @@ import java.util.Collection;
 public class ChangeFontCommand extends UndoableRedoableCommand {
     private final Runnable undo;
     private final Runnable redo;
-    private final ArrayList<Data> dataList = new ArrayList<>();
 
     public ChangeFontCommand(PhyloView editor, Collection<Node> nodes, Font font) {
         super("Font");
 
+        // only ids are kept, styles are shared via the style table
+        final int[] ids = new int[nodes.size()];
+        final int[] oldStyleIds = new int[ids.length];
+        final StyleTable styleTable = editor.getStyleTable();
+        final int newStyleId = styleTable.getFontId(font);
+
+        var i = 0;
         for (Node v : nodes) {
-            dataList.add(new Data(v.getId(), editor.getLabel(v).getFont(), font));
+            ids[i] = v.getId();
+            oldStyleIds[i++] = editor.getNodeView(v).getLabelFontId();
         }
 
         undo = () -> {
-            for (Data data : dataList) {
-                editor.getLabel(editor.getGraph().findNodeById(data.id)).setFont(data.oldValue);
-
+            final NodeView[] views = editor.getNodeViewsById(ids);
+            final Font[] oldStyles = styleTable.getFonts(oldStyleIds);
+            for (var k = 0; k < ids.length; k++) {
+                views[k].setLabelFont(oldStyles[k]);
             }
         };
 
         redo = () -> {
-            for (Data data : dataList) {
-                editor.getLabel(editor.getGraph().findNodeById(data.id)).setFont(data.newValue);
-
+            for (var view : editor.getNodeViewsById(ids)) {
+                view.setLabelFontId(newStyleId);
             }
         };
     }
@@ -68,16 +76,4 @@ public class ChangeFontCommand extends UndoableRedoableCommand {
     public void redo() {
         redo.run();
     }
-
-    static class Data {
-        final int id;
-        final Font oldValue;
-        final Font newValue;
-
-        public Data(int id, Font oldValue, Font newValue) {
-            this.id = id;
-            this.oldValue = oldValue;
-            this.newValue = newValue;
-        }
-    }
 }
@@ -20,11 +20,13 @@
 package phylosketch.commands;
 
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import jloda.fx.undo.UndoableRedoableCommand;
 import jloda.graph.Node;
+import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
+import phylosketch.view.StyleTable;
 
-import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -34,24 +36,33 @@ import java.util.Collection;
 public class ChangeLabelColorCommand extends UndoableRedoableCommand {
     private final Runnable undo;
     private final Runnable redo;
-    private final ArrayList<Data> dataList = new ArrayList<>();
 
     public ChangeLabelColorCommand(PhyloView editor, Collection<Node> nodes, Color value) {
         super("Label Color");
 
+        // only ids are kept, styles are shared via the style table
+        final int[] ids = new int[nodes.size()];
+        final int[] oldStyleIds = new int[ids.length];
+        final StyleTable styleTable = editor.getStyleTable();
+        final int newStyleId = styleTable.getPaintId(value);
+
+        var i = 0;
         for (Node v : nodes) {
-            dataList.add(new Data(v.getId(), (Color) editor.getLabel(v).getTextFill(), value));
+            ids[i] = v.getId();
+            oldStyleIds[i++] = editor.getNodeView(v).getLabelTextFillId();
         }
 
         undo = () -> {
-            for (Data data : dataList) {
-                editor.getLabel(editor.getGraph().findNodeById(data.id)).setTextFill(data.oldValue);
+            final NodeView[] views = editor.getNodeViewsById(ids);
+            final Paint[] oldStyles = styleTable.getPaints(oldStyleIds);
+            for (var k = 0; k < ids.length; k++) {
+                views[k].setLabelTextFill(oldStyles[k]);
             }
         };
 
         redo = () -> {
-            for (Data data : dataList) {
-                editor.getLabel(editor.getGraph().findNodeById(data.id)).setTextFill(data.newValue);
+            for (var view : editor.getNodeViewsById(ids)) {
+                view.setLabelTextFillId(newStyleId);
             }
         };
     }
@@ -66,16 +77,4 @@ public class ChangeLabelColorCommand extends UndoableRedoableCommand {
     public void redo() {
         redo.run();
     }
-
-    static class Data {
-        final int id;
-        final Color oldValue;
-        final Color newValue;
-
-        public Data(int id, Color oldValue, Color newValue) {
-            this.id = id;
-            this.oldValue = oldValue;
-            this.newValue = newValue;
-        }
-    }
 }
@@ -0,0 +1,85 @@
+/*
+ * CommandCoalescer.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.fx.undo.UndoableRedoableCommand;
+import phylosketch.view.PhyloView;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * merges consecutive commands of the same kind into one undo entry
+ * A command added here stays open for merging as long as it is the most recent entry of the undo history. Any other
+ * change of the undo history (a command added by other means, undo, redo or clear) closes it
+ * Daniel Huson, 10.2026
+ */
+public class CommandCoalescer {
+    private static final Map<PhyloView, CommandCoalescer> view2coalescer = new WeakHashMap<>();
+
+    private ICoalescable open;
+    private long openChanged;
+    private boolean adding = false;
+
+    private CommandCoalescer(BudgetedUndoManager undoManager) {
+        undoManager.addCommandAddedListener(c -> close());
+        undoManager.undoNameProperty().addListener(c -> close());
+        undoManager.redoableProperty().addListener(c -> close());
+    }
+
+    private void close() {
+        if (!adding)
+            open = null;
+    }
+
+    private static CommandCoalescer get(PhyloView view) {
+        return view2coalescer.computeIfAbsent(view, v -> new CommandCoalescer(v.getUndoManager()));
+    }
+
+    /**
+     * perform the command and add it to the undo history, or merge it into the open command
+     */
+    public static <T extends UndoableRedoableCommand & ICoalescable> void doAndAdd(PhyloView view, T command) {
+        command.redo();
+        add(view, command);
+    }
+
+    /**
+     * add an already performed command to the undo history, or merge it into the open command
+     */
+    public static <T extends UndoableRedoableCommand & ICoalescable> void add(PhyloView view, T command) {
+        final CommandCoalescer coalescer = get(view);
+        final long now = System.currentTimeMillis();
+        if (coalescer.open != null && coalescer.open.canCoalesce(command, now - coalescer.openChanged)) {
+            coalescer.open.coalesce(command);
+            view.getUndoManager().footprintChanged((UndoableRedoableCommand) coalescer.open);
+            view.setDirty(true);
+        } else {
+            coalescer.adding = true;
+            try {
+                view.getUndoManager().add(command);
+            } finally {
+                coalescer.adding = false;
+            }
+            coalescer.open = command;
+        }
+        coalescer.openChanged = now;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * CoordinatesRecord.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import phylosketch.view.EdgeView;
+import phylosketch.view.NodeView;
+import phylosketch.view.PhyloView;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * compact record of coordinates of nodes or edges, as kept by undoable commands
+ * Ids are stored in an int array and each coordinate in a separate double array, so a record of n items with k coordinates
+ * uses about (4+8k)n bytes and no boxed objects. Records for the old and new state of the same items share their id array
+ * Daniel Huson, 10.2026
+ */
+public class CoordinatesRecord {
+    private final int[] ids;
+    private final double[][] columns;
+
+    /**
+     * constructor
+     *
+     * @param ids                 ids of items, not copied
+     * @param numberOfCoordinates number of coordinates per item
+     */
+    public CoordinatesRecord(int[] ids, int numberOfCoordinates) {
+        this.ids = ids;
+        this.columns = new double[numberOfCoordinates][ids.length];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public int getNumberOfCoordinates() {
+        return columns.length;
+    }
+
+    public double get(int i, int c) {
+        return columns[c][i];
+    }
+
+    public void set(int i, int c, double value) {
+        columns[c][i] = value;
+    }
+
+    /**
+     * @return a new array containing the coordinates of the i-th item
+     */
+    public double[] getCoordinates(int i) {
+        final double[] coordinates = new double[columns.length];
+        for (int c = 0; c < columns.length; c++)
+            coordinates[c] = columns[c][i];
+        return coordinates;
+    }
+
+    public void setCoordinates(int i, double[] coordinates) {
+        for (int c = 0; c < columns.length; c++)
+            columns[c][i] = coordinates[c];
+    }
+
+    /**
+     * @return estimated number of bytes held by this record
+     */
+    public long getMemoryFootprint() {
+        return 48 + 4L * ids.length + columns.length * (16 + 8L * ids.length);
+    }
+
+    /**
+     * @return all coordinates as one packed array, item by item
+     */
+    public double[] toPacked() {
+        final double[] packed = new double[ids.length * columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            final double[] column = columns[c];
+            for (int i = 0, k = c; i < ids.length; i++, k += columns.length)
+                packed[k] = column[i];
+        }
+        return packed;
+    }
+
+    /**
+     * get the ids of the given nodes
+     */
+    public static int[] nodeIds(Collection<Node> nodes) {
+        final int[] ids = new int[nodes.size()];
+        int i = 0;
+        for (Node v : nodes)
+            ids[i++] = v.getId();
+        return ids;
+    }
+
+    /**
+     * get the ids of the given edges
+     */
+    public static int[] edgeIds(Collection<Edge> edges) {
+        final int[] ids = new int[edges.size()];
+        int i = 0;
+        for (Edge e : edges)
+            ids[i++] = e.getId();
+        return ids;
+    }
+
+    /**
+     * record the locations of the given nodes
+     */
+    public static CoordinatesRecord nodeLocations(PhyloView view, int[] nodeIds) {
+        final CoordinatesRecord record = new CoordinatesRecord(nodeIds, 2);
+        for (int i = 0; i < nodeIds.length; i++) {
+            final NodeView nodeView = view.getNodeViewById(nodeIds[i]);
+            record.columns[0][i] = nodeView.getTranslateX();
+            record.columns[1][i] = nodeView.getTranslateY();
+        }
+        return record;
+    }
+
+    /**
+     * record the control coordinates of the given edges
+     */
+    public static CoordinatesRecord edgeControlCoordinates(PhyloView view, int[] edgeIds) {
+        final CoordinatesRecord record = new CoordinatesRecord(edgeIds, 4);
+        for (int i = 0; i < edgeIds.length; i++) {
+            record.setCoordinates(i, view.getEdgeViewById(edgeIds[i]).getControlCoordinates());
+        }
+        return record;
+    }
+
+    /**
+     * create a record from an id-to-coordinates map, for the given ids. All ids must be present in the map
+     */
+    public static CoordinatesRecord of(int[] ids, Map<Integer, double[]> id2coordinates, int numberOfCoordinates) {
+        final CoordinatesRecord record = new CoordinatesRecord(ids, numberOfCoordinates);
+        for (int i = 0; i < ids.length; i++) {
+            record.setCoordinates(i, id2coordinates.get(ids[i]));
+        }
+        return record;
+    }
+
+    /**
+     * set the locations of the recorded nodes, scaled by the given factors
+     */
+    public void applyNodeLocations(PhyloView view, double factorX, double factorY) {
+        applyNodeLocations(view.getNodeViewsById(ids), factorX, factorY);
+    }
+
+    /**
+     * set the locations of the recorded nodes, scaled by the given factors
+     *
+     * @param nodeViews the views of the recorded nodes, in the same order
+     */
+    public void applyNodeLocations(NodeView[] nodeViews, double factorX, double factorY) {
+        for (int i = 0; i < ids.length; i++) {
+            nodeViews[i].setTranslateX(factorX * columns[0][i]);
+            nodeViews[i].setTranslateY(factorY * columns[1][i]);
+        }
+    }
+
+    /**
+     * set the control coordinates of the recorded edges
+     */
+    public void applyEdgeControlCoordinates(PhyloView view) {
+        final EdgeView[] edgeViews = view.getEdgeViewsById(ids);
+        for (int i = 0; i < ids.length; i++) {
+            edgeViews[i].setControlCoordinates(getCoordinates(i));
+        }
+    }
+}
@@ -30,69 +30,123 @@ import jloda.util.IteratorUtils;
 import phylosketch.view.EdgeView;
 import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
+import phylosketch.view.StyleTable;
 
-import java.util.ArrayList;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * delete nodes command
+ * The command doesn't copy the attributes of the deleted nodes and edges. It keeps the views that are removed from the
+ * scene, which are no longer changed, as the pre-delete version, and undo restores from them. Only when the data is
+ * spilled to disk are the attributes copied into NodeData and EdgeData objects
  * Daniel Huson, 1.2020
  */
-public class DeleteNodesEdgesCommand extends UndoableRedoableCommand {
+public class DeleteNodesEdgesCommand extends UndoableRedoableCommand implements ISpillable {
     private final Runnable undo;
     private final Runnable redo;
 
+    private final UndoHistoryBudget budget;
+    private final StyleTable styleTable; // spilled data keeps style ids
+
+    private final int[] nodeIds;
+    private final int[] edgeIds;
+    private final int[] edgeSourceIds;
+    private final int[] edgeTargetIds;
+
+    // views removed by the last redo, restored from by the next undo:
+    private NodeView[] removedNodeViews;
+    private EdgeView[] removedEdgeViews;
+
+    // copies of the attributes, only present when reloaded from the spill file:
+    private NodeData[] nodeData;
+    private EdgeData[] edgeData;
+
+    // true, if the data was spilled and must be reloaded from the budget:
+    private boolean spilled = false;
+
     public DeleteNodesEdgesCommand(Pane pane, PhyloView view, Collection<Node> nodes, Collection<Edge> edges) {
         super("Delete");
 
         final PhyloTree graph = view.getGraph();
-
-        final ArrayList<NodeData> nodeDataList = new ArrayList<>();
-
-        final ArrayList<EdgeData> edgeDataList = new ArrayList<>();
+        budget = view.getUndoHistoryBudget();
+        styleTable = view.getStyleTable();
 
         final Set<Edge> edgeSet = new HashSet<>(edges);
-
         for (Node v : nodes) {
-			nodeDataList.add(new NodeData(v.getId(), view.getNodeView(v)));
 			edgeSet.addAll(IteratorUtils.asList(v.adjacentEdges()));
         }
 
-        for (Edge e : edgeSet) {
-            edgeDataList.add(new EdgeData(e.getId(), e.getSource().getId(), e.getTarget().getId(), view.getEdgeView(e)));
+        nodeIds = CoordinatesRecord.nodeIds(nodes);
+        edgeIds = new int[edgeSet.size()];
+        edgeSourceIds = new int[edgeSet.size()];
+        edgeTargetIds = new int[edgeSet.size()];
+        {
+            var i = 0;
+            for (Edge e : edgeSet) {
+                edgeIds[i] = e.getId();
+                edgeSourceIds[i] = e.getSource().getId();
+                edgeTargetIds[i++] = e.getTarget().getId();
+            }
         }
 
         undo = () -> {
+            ensureLoaded();
+
             view.getNodeSelection().clearSelection();
             view.getEdgeSelection().clearSelection();
 
-            for (NodeData data : nodeDataList) {
-                final Node v = graph.newNode(null, data.id);
-                data.apply(view.addNode(v, pane, data.x, data.y));
+            final Node[] restoredNodes = new Node[nodeIds.length];
+            final Edge[] restoredEdges = new Edge[edgeIds.length];
+
+            view.batchUpdate(() -> {
+                for (int i = 0; i < nodeIds.length; i++) {
+                    final NodeData data = (nodeData != null ? nodeData[i] : new NodeData(nodeIds[i], removedNodeViews[i]));
+                    final Node v = graph.newNode(null, data.id);
+                    data.apply(view.addNode(v, pane, data.x, data.y));
+                    restoredNodes[i] = v;
+                }
+                for (int i = 0; i < edgeIds.length; i++) {
+                    final EdgeData data = (edgeData != null ? edgeData[i] : new EdgeData(edgeIds[i], edgeSourceIds[i], edgeTargetIds[i], removedEdgeViews[i]));
+                    final Edge e = graph.newEdge(view.getNodeById(data.sourceId), view.getNodeById(data.targetId), null, data.id);
+                    data.apply(view.addEdge(e));
+                    restoredEdges[i] = e;
+                }
+            });
+            for (Node v : restoredNodes)
                 view.getNodeSelection().select(v);
-            }
-            for (EdgeData data : edgeDataList) {
-                final Node v = graph.findNodeById(data.sourceId);
-                final Node w = graph.findNodeById(data.targetId);
-                final Edge e = graph.newEdge(v, w, null, data.id);
-                data.apply(view.addEdge(e));
+            for (Edge e : restoredEdges)
                 view.getEdgeSelection().select(e);
-            }
+
+            removedNodeViews = null;
+            removedEdgeViews = null;
+            nodeData = null;
+            edgeData = null;
+            budget.register(this);
         };
 
         redo = () -> {
-            for (EdgeData data : edgeDataList) {
-                final Edge e = graph.findEdgeById(data.id);
-                view.removeEdge(e);
-                graph.deleteEdge(e);
-            }
-            for (NodeData data : nodeDataList) {
-                final Node v = graph.findNodeById(data.id);
-                view.removeNode(v);
-                graph.deleteNode(v);
-            }
+            removedNodeViews = view.getNodeViewsById(nodeIds);
+            removedEdgeViews = view.getEdgeViewsById(edgeIds);
+            nodeData = null;
+            edgeData = null;
+
+            view.batchUpdate(() -> {
+                for (int id : edgeIds) {
+                    final Edge e = view.getEdgeById(id);
+                    view.removeEdge(e);
+                    graph.deleteEdge(e);
+                }
+                for (int id : nodeIds) {
+                    final Node v = view.getNodeById(id);
+                    view.removeNode(v);
+                    graph.deleteNode(v);
+                }
+            });
+            budget.register(this);
         };
     }
 
@@ -107,6 +161,62 @@ public class DeleteNodesEdgesCommand extends UndoableRedoableCommand {
         redo.run();
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        long bytes = 64 + 4L * nodeIds.length + 12L * edgeIds.length;
+        if (removedNodeViews != null) // detached scene objects are only referenced from here
+            bytes += 1000L * removedNodeViews.length + 800L * removedEdgeViews.length;
+        if (nodeData != null) {
+            for (NodeData data : nodeData)
+                bytes += 96 + 2L * data.text.length();
+            bytes += 104L * edgeData.length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public byte[] spill() throws IOException {
+        if (removedNodeViews == null && nodeData == null)
+            return null;
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream outs = new DataOutputStream(bytes)) {
+            for (int i = 0; i < nodeIds.length; i++)
+                (nodeData != null ? nodeData[i] : new NodeData(nodeIds[i], removedNodeViews[i])).write(outs, styleTable);
+            for (int i = 0; i < edgeIds.length; i++)
+                (edgeData != null ? edgeData[i] : new EdgeData(edgeIds[i], edgeSourceIds[i], edgeTargetIds[i], removedEdgeViews[i])).write(outs, styleTable);
+        }
+        removedNodeViews = null;
+        removedEdgeViews = null;
+        nodeData = null;
+        edgeData = null;
+        spilled = true;
+        return bytes.toByteArray();
+    }
+
+    /**
+     * reload the data from the spill file, if it was spilled. Throws an exception, if that fails, so that the undo
+     * manager doesn't move past this command
+     */
+    private void ensureLoaded() {
+        if (spilled) {
+            try (DataInputStream ins = new DataInputStream(new ByteArrayInputStream(budget.reload(this)))) {
+                final NodeData[] nodes = new NodeData[nodeIds.length];
+                for (int i = 0; i < nodes.length; i++)
+                    nodes[i] = new NodeData(ins, styleTable);
+                final EdgeData[] edges = new EdgeData[edgeIds.length];
+                for (int i = 0; i < edges.length; i++)
+                    edges[i] = new EdgeData(ins, styleTable);
+                nodeData = nodes;
+                edgeData = edges;
+                spilled = false;
+            } catch (IOException ex) {
+                throw new UncheckedIOException("can't read undo data: " + ex.getMessage(), ex);
+            }
+            budget.register(this);
+        }
+    }
+
     static class NodeData {
         final int id;
         final double x;
@@ -126,10 +236,38 @@ public class DeleteNodesEdgesCommand extends UndoableRedoableCommand {
             this.y = nv.getTranslateY();
             this.fill = nv.getShape().getFill();
             this.nodeShape = NodeShape.valueOf(nv.getShape());
-            this.text = nv.getLabel().getText();
-            this.lx = nv.getLabel().getLayoutX();
-            this.ly = nv.getLabel().getLayoutY();
-            this.textFill = nv.getLabel().getTextFill();
+            this.text = nv.getLabelText();
+            this.lx = nv.getLabelLayoutX();
+            this.ly = nv.getLabelLayoutY();
+            this.textFill = nv.getLabelTextFill();
+        }
+
+        public NodeData(DataInputStream ins, StyleTable styleTable) throws IOException {
+            this.id = ins.readInt();
+            this.x = ins.readDouble();
+            this.y = ins.readDouble();
+            this.fill = styleTable.getPaint(ins.readInt());
+            this.nodeShape = NodeShape.valueOf(ins.readUTF());
+            final byte[] textBytes = new byte[ins.readInt()];
+            ins.readFully(textBytes);
+            this.text = new String(textBytes, StandardCharsets.UTF_8);
+            this.lx = ins.readDouble();
+            this.ly = ins.readDouble();
+            this.textFill = styleTable.getPaint(ins.readInt());
+        }
+
+        public void write(DataOutputStream outs, StyleTable styleTable) throws IOException {
+            outs.writeInt(id);
+            outs.writeDouble(x);
+            outs.writeDouble(y);
+            outs.writeInt(styleTable.getPaintId(fill));
+            outs.writeUTF(nodeShape.name());
+            final byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+            outs.writeInt(textBytes.length);
+            outs.write(textBytes);
+            outs.writeDouble(lx);
+            outs.writeDouble(ly);
+            outs.writeInt(styleTable.getPaintId(textFill));
         }
 
         public void apply(NodeView nv) {
@@ -137,10 +275,9 @@ public class DeleteNodesEdgesCommand extends UndoableRedoableCommand {
             nv.setTranslateY(y);
             nv.changeShape(nodeShape);
             nv.getShape().setFill(fill);
-            nv.getLabel().setText(text);
-            nv.getLabel().setLayoutX(lx);
-            nv.getLabel().setLayoutY(ly);
-            nv.getLabel().setTextFill(textFill);
+            nv.setLabelText(text);
+            nv.setLabelLayout(lx, ly);
+            nv.setLabelTextFill(textFill);
         }
     }
 
@@ -163,6 +300,29 @@ public class DeleteNodesEdgesCommand extends UndoableRedoableCommand {
             this.arrow = edgeView.getArrowHead().isVisible();
         }
 
+        public EdgeData(DataInputStream ins, StyleTable styleTable) throws IOException {
+            this.id = ins.readInt();
+            this.sourceId = ins.readInt();
+            this.targetId = ins.readInt();
+            this.controlCoordinates = new double[4];
+            for (int i = 0; i < 4; i++)
+                this.controlCoordinates[i] = ins.readDouble();
+            this.strokeWidth = ins.readDouble();
+            this.stroke = styleTable.getPaint(ins.readInt());
+            this.arrow = ins.readBoolean();
+        }
+
+        public void write(DataOutputStream outs, StyleTable styleTable) throws IOException {
+            outs.writeInt(id);
+            outs.writeInt(sourceId);
+            outs.writeInt(targetId);
+            for (int i = 0; i < 4; i++)
+                outs.writeDouble(controlCoordinates[i]);
+            outs.writeDouble(strokeWidth);
+            outs.writeInt(styleTable.getPaintId(stroke));
+            outs.writeBoolean(arrow);
+        }
+
         public void apply(EdgeView edgeView) {
             edgeView.setControlCoordinates(controlCoordinates);
             edgeView.getCurve().setStrokeWidth(strokeWidth);
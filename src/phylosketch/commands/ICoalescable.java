@@ -0,0 +1,40 @@
+/*
+ * ICoalescable.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.fx.undo.UndoableRedoableCommand;
+
+/**
+ * an undoable command that can absorb a directly following command of the same kind, see CommandCoalescer
+ * Daniel Huson, 10.2026
+ */
+public interface ICoalescable {
+    /**
+     * @param next               the command that has just been performed
+     * @param millisSinceChanged time since this command was added or last absorbed a command
+     * @return true, if this command can absorb the next one
+     */
+    boolean canCoalesce(UndoableRedoableCommand next, long millisSinceChanged);
+
+    /**
+     * absorb the next command, so that undoing this command undoes both
+     */
+    void coalesce(UndoableRedoableCommand next);
+}
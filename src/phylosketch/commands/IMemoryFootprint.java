@@ -0,0 +1,32 @@
+/*
+ * IMemoryFootprint.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+/**
+ * an undoable command that reports the memory held by its data, so that the undo history can be kept within budget
+ * Commands that don't implement this are counted with a small default size, see UndoHistoryBudget
+ * Daniel Huson, 10.2026
+ */
+public interface IMemoryFootprint {
+    /**
+     * @return estimated number of bytes of data held in memory
+     */
+    long getMemoryFootprint();
+}
@@ -0,0 +1,36 @@
+/*
+ * ISpillable.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import java.io.IOException;
+
+/**
+ * an undoable command whose data can be moved to disk to limit the memory used by the undo history
+ * Daniel Huson, 10.2026
+ */
+public interface ISpillable extends IMemoryFootprint {
+    /**
+     * serialize the data and release the in-memory copy. The command must get the data back from
+     * UndoHistoryBudget.reload() when next undone or redone
+     *
+     * @return the serialized data, or null, if there is nothing to spill
+     */
+    byte[] spill() throws IOException;
+}
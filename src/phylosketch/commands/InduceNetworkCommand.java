@@ -20,18 +20,14 @@
 package phylosketch.commands;
 
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Paint;
-import jloda.fx.shapes.NodeShape;
 import jloda.fx.undo.UndoableRedoableCommand;
 import jloda.graph.Edge;
 import jloda.graph.Node;
-import phylosketch.view.EdgeView;
-import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.stream.Collectors;
 
 /**
  * computes the induced network
@@ -61,10 +57,8 @@ public class InduceNetworkCommand extends UndoableRedoableCommand {
 			}
 		}
 
-		var nodesToDelete = new ArrayList<>(view.getGraph().getNodesAsList());
-		nodesToDelete.removeAll(nodeSelection);
-		var edgesToDelete = new ArrayList<>(view.getGraph().getEdgesAsList());
-		edgesToDelete.removeAll(edgeSelection);
+		var nodesToDelete = view.getGraph().nodeStream().filter(v -> !nodeSelection.contains(v)).collect(Collectors.toList());
+		var edgesToDelete = view.getGraph().edgeStream().filter(e -> !edgeSelection.contains(e)).collect(Collectors.toList());
 
 		var deleteCommand = new DeleteNodesEdgesCommand(pane, view, nodesToDelete, edgesToDelete);
 
@@ -81,68 +75,4 @@ public class InduceNetworkCommand extends UndoableRedoableCommand {
 	public void redo() {
 		redo.run();
 	}
-
-	static class NodeData {
-		final int id;
-		final double x;
-		final double y;
-		final Paint fill;
-		final NodeShape nodeShape;
-
-		final String text;
-		final double lx;
-		final double ly;
-		final Paint textFill;
-
-
-		public NodeData(int id, NodeView nv) {
-			this.id = id;
-			this.x = nv.getTranslateX();
-			this.y = nv.getTranslateY();
-			this.fill = nv.getShape().getFill();
-			this.nodeShape = NodeShape.valueOf(nv.getShape());
-			this.text = nv.getLabel().getText();
-			this.lx = nv.getLabel().getLayoutX();
-			this.ly = nv.getLabel().getLayoutY();
-			this.textFill = nv.getLabel().getTextFill();
-		}
-
-		public void apply(NodeView nv) {
-			nv.setTranslateX(x);
-			nv.setTranslateY(y);
-			nv.changeShape(nodeShape);
-			nv.getShape().setFill(fill);
-			nv.getLabel().setText(text);
-			nv.getLabel().setLayoutX(lx);
-			nv.getLabel().setLayoutY(ly);
-			nv.getLabel().setTextFill(textFill);
-		}
-	}
-
-	static class EdgeData {
-		final int id;
-		final int sourceId;
-		final int targetId;
-		final double strokeWidth;
-		final Paint stroke;
-		final double[] controlCoordinates;
-		final boolean arrow;
-
-		public EdgeData(int id, int sourceId, int targetId, EdgeView edgeView) {
-			this.id = id;
-			this.sourceId = sourceId;
-			this.targetId = targetId;
-			this.controlCoordinates = edgeView.getControlCoordinates();
-			this.strokeWidth = edgeView.getCurve().getStrokeWidth();
-			this.stroke = edgeView.getCurve().getStroke();
-			this.arrow = edgeView.getArrowHead().isVisible();
-		}
-
-		public void apply(EdgeView edgeView) {
-			edgeView.setControlCoordinates(controlCoordinates);
-			edgeView.getCurve().setStrokeWidth(strokeWidth);
-			edgeView.getCurve().setStroke(stroke);
-			edgeView.getArrowHead().setVisible(arrow);
-		}
-	}
 }
@@ -0,0 +1,162 @@
+/*
+ * LayoutCommand.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import phylosketch.embed.RootedNetworkEmbedder;
+import phylosketch.view.AnimationService;
+import phylosketch.view.EdgeView;
+import phylosketch.view.NodeView;
+import phylosketch.view.PhyloView;
+
+import java.util.ArrayList;
+
+/**
+ * moves nodes and edge control points to new locations computed by a layout algorithm, animated
+ * Daniel Huson, 10.2026
+ */
+public class LayoutCommand extends UndoableRedoableCommand implements IMemoryFootprint {
+    private final PhyloView view;
+    private final CoordinatesRecord oldNodeLocations;
+    private final CoordinatesRecord newNodeLocations;
+    private final CoordinatesRecord oldControlPoints;
+    private final CoordinatesRecord newControlPoints;
+
+    /**
+     * constructor
+     *
+     * @param nodeIds           the nodes to move
+     * @param nodeLocations     packed new locations, in the order of the node ids
+     * @param edgeIds           the edges to reshape
+     * @param edgeControlPoints packed new control points, in the order of the edge ids
+     */
+    public LayoutCommand(String name, PhyloView view, int[] nodeIds, double[] nodeLocations, int[] edgeIds, double[] edgeControlPoints) {
+        super(name);
+        this.view = view;
+        oldNodeLocations = CoordinatesRecord.nodeLocations(view, nodeIds);
+        newNodeLocations = new CoordinatesRecord(nodeIds, 2);
+        for (int i = 0; i < nodeIds.length; i++) {
+            newNodeLocations.set(i, 0, nodeLocations[2 * i]);
+            newNodeLocations.set(i, 1, nodeLocations[2 * i + 1]);
+        }
+        oldControlPoints = CoordinatesRecord.edgeControlCoordinates(view, edgeIds);
+        newControlPoints = new CoordinatesRecord(edgeIds, 4);
+        for (int i = 0; i < edgeIds.length; i++) {
+            for (int c = 0; c < 4; c++)
+                newControlPoints.set(i, c, edgeControlPoints[4 * i + c]);
+        }
+    }
+
+    /**
+     * constructor for a layout that has already been applied to the view, the new locations are taken from the view
+     *
+     * @param oldNodeLocations the locations of the moved nodes before the change
+     * @param oldControlPoints the control points of the reshaped edges before the change
+     */
+    public LayoutCommand(String name, PhyloView view, CoordinatesRecord oldNodeLocations, CoordinatesRecord oldControlPoints) {
+        super(name);
+        this.view = view;
+        this.oldNodeLocations = oldNodeLocations;
+        this.newNodeLocations = CoordinatesRecord.nodeLocations(view, oldNodeLocations.getIds());
+        this.oldControlPoints = oldControlPoints;
+        this.newControlPoints = CoordinatesRecord.edgeControlCoordinates(view, oldControlPoints.getIds());
+    }
+
+    /**
+     * creates a command that lays out the whole network in the given orientation. Nodes and edges that are not
+     * reached from the root keep their locations
+     *
+     * @return the command, or null, if the network has no root
+     */
+    public static LayoutCommand create(PhyloView view, RootedNetworkEmbedder.Orientation orientation) {
+        return create("Layout", view, orientation, RootedNetworkEmbedder.Scaling.cladogram, 0);
+    }
+
+    /**
+     * creates a command that lays out the whole network in the given orientation, as a cladogram or phylogram
+     *
+     * @param scaling        determines whether and how edge weights are used
+     * @param optimizeMillis time budget for reordering the children of the LSA tree, 0 for none
+     * @return the command, or null, if the network has no root
+     */
+    public static LayoutCommand create(String name, PhyloView view, RootedNetworkEmbedder.Orientation orientation, RootedNetworkEmbedder.Scaling scaling, long optimizeMillis) {
+        final RootedNetworkEmbedder.Layout layout = RootedNetworkEmbedder.computeLayout(view.getGraph(), orientation, scaling, optimizeMillis);
+        return (layout != null ? create(name, view, layout) : null);
+    }
+
+    /**
+     * creates a command that moves the nodes and edges to the locations of a layout that has already been computed,
+     * for example, in a background service. Nodes and edges that have no location in the layout are not moved
+     */
+    public static LayoutCommand create(String name, PhyloView view, RootedNetworkEmbedder.Layout layout) {
+        final ArrayList<Node> nodes = new ArrayList<>();
+        final double[] locations = new double[layout.getLocations().length];
+        int count = 0;
+        for (int v = 0; v < layout.getNodes().length; v++) {
+            if (!Double.isNaN(layout.getLocations()[2 * v])) {
+                nodes.add(layout.getNodes()[v]);
+                locations[count++] = layout.getLocations()[2 * v];
+                locations[count++] = layout.getLocations()[2 * v + 1];
+            }
+        }
+        final ArrayList<Edge> edges = new ArrayList<>();
+        final double[] controlPoints = new double[layout.getControlPoints().length];
+        count = 0;
+        for (int e = 0; e < layout.getEdges().length; e++) {
+            if (!Double.isNaN(layout.getControlPoints()[4 * e]) && !Double.isNaN(layout.getControlPoints()[4 * e + 3])) {
+                edges.add(layout.getEdges()[e]);
+                System.arraycopy(layout.getControlPoints(), 4 * e, controlPoints, count, 4);
+                count += 4;
+            }
+        }
+        return new LayoutCommand(name, view, CoordinatesRecord.nodeIds(nodes), locations, CoordinatesRecord.edgeIds(edges), controlPoints);
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return oldNodeLocations.getMemoryFootprint() + newNodeLocations.getMemoryFootprint() + oldControlPoints.getMemoryFootprint() + newControlPoints.getMemoryFootprint();
+    }
+
+    @Override
+    public void undo() {
+        animateTo(oldNodeLocations, oldControlPoints);
+    }
+
+    @Override
+    public void redo() {
+        animateTo(newNodeLocations, newControlPoints);
+    }
+
+    private void animateTo(CoordinatesRecord nodeLocations, CoordinatesRecord controlPoints) {
+        AnimationService.getInstance().finishAll(); // start from the final state of any previous change
+
+        final NodeView[] nodeViews = view.getNodeViewsById(nodeLocations.getIds());
+        AnimationService.getInstance().play(CoordinatesRecord.nodeLocations(view, nodeLocations.getIds()).toPacked(), nodeLocations.toPacked(), 2,
+                (i, values, offset) -> {
+                    nodeViews[i].setTranslateX(values[offset]);
+                    nodeViews[i].setTranslateY(values[offset + 1]);
+                });
+        final EdgeView[] edgeViews = view.getEdgeViewsById(controlPoints.getIds());
+        AnimationService.getInstance().play(CoordinatesRecord.edgeControlCoordinates(view, controlPoints.getIds()).toPacked(), controlPoints.toPacked(), 4,
+                (i, values, offset) -> edgeViews[i].setControlCoordinates(values, offset));
+    }
+}
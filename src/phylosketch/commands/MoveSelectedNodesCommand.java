@@ -21,23 +21,27 @@ package phylosketch.commands;
 
 import javafx.collections.ObservableList;
 import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.fx.util.ProgramProperties;
 import jloda.graph.Edge;
 import jloda.graph.Node;
 import jloda.phylo.PhyloTree;
 import phylosketch.view.PhyloView;
 
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * move all selected nodes
+ * Consecutive moves of the same nodes within CoalesceMillis are merged into one command, see CommandCoalescer
  * Daniel Huson, 1.2020
  */
-public class MoveSelectedNodesCommand extends UndoableRedoableCommand {
-    private final Runnable undo;
-    private final Runnable redo;
+public class MoveSelectedNodesCommand extends UndoableRedoableCommand implements ICoalescable, IMemoryFootprint {
+    private final PhyloView editor;
+    private final int[] nodeIds;
+    private double dx;
+    private double dy;
+    private final CoordinatesRecord oldEdgeControlCoordinates;
+    private CoordinatesRecord newEdgeControlCoordinates;
 
     /**
      * constructor
@@ -46,36 +50,60 @@ public class MoveSelectedNodesCommand extends UndoableRedoableCommand {
     public MoveSelectedNodesCommand(double dx, double dy, PhyloView editor, ObservableList<Node> selectedItems,
                                     Map<Integer, double[]> oldEdgeControlCoordinates0, Map<Integer, double[]> newEdgeControlCoordinates0) {
         super("Move");
+        this.editor = editor;
+        this.dx = dx;
+        this.dy = dy;
 
         final PhyloTree graph = editor.getGraph();
-        final Map<Integer, double[]> oldEdgeControlCoordinates = new HashMap<>(oldEdgeControlCoordinates0);
-        final Map<Integer, double[]> newEdgeControlCoordinates = new HashMap<>(newEdgeControlCoordinates0);
 
-        final List<Integer> nodeData = selectedItems.stream().map(Node::getId).collect(Collectors.toList());
-        final List<Integer> edgeData = graph.edgeStream().filter(e -> oldEdgeControlCoordinates.containsKey(e.getId()) && newEdgeControlCoordinates.containsKey(e.getId()))
-                .map(Edge::getId).collect(Collectors.toList());
-
-
-        undo = () -> {
-            nodeData.forEach(id -> editor.moveNode(graph.findNodeById(id), -dx, -dy));
-
-            edgeData.forEach(id -> editor.getEdge2view().get(graph.findEdgeById(id)).setControlCoordinates(oldEdgeControlCoordinates.get(id)));
-        };
-
-        redo = () -> {
-            nodeData.forEach(id -> editor.moveNode(graph.findNodeById(id), dx, dy));
+        nodeIds = CoordinatesRecord.nodeIds(selectedItems);
+        final int[] edgeIds = graph.edgeStream().filter(e -> oldEdgeControlCoordinates0.containsKey(e.getId()) && newEdgeControlCoordinates0.containsKey(e.getId()))
+                .mapToInt(Edge::getId).toArray();
+        oldEdgeControlCoordinates = CoordinatesRecord.of(edgeIds, oldEdgeControlCoordinates0, 4);
+        newEdgeControlCoordinates = CoordinatesRecord.of(edgeIds, newEdgeControlCoordinates0, 4);
+    }
 
-            edgeData.forEach(id -> editor.getEdge2view().get(graph.findEdgeById(id)).setControlCoordinates(newEdgeControlCoordinates.get(id)));
-        };
+    @Override
+    public long getMemoryFootprint() {
+        return 64 + 4L * nodeIds.length + oldEdgeControlCoordinates.getMemoryFootprint() + newEdgeControlCoordinates.getMemoryFootprint();
     }
 
     @Override
     public void undo() {
-        undo.run();
+        for (var v : editor.getNodesById(nodeIds)) {
+            editor.moveNode(v, -dx, -dy);
+        }
+        oldEdgeControlCoordinates.applyEdgeControlCoordinates(editor);
     }
 
     @Override
     public void redo() {
-        redo.run();
+        for (var v : editor.getNodesById(nodeIds)) {
+            editor.moveNode(v, dx, dy);
+        }
+        newEdgeControlCoordinates.applyEdgeControlCoordinates(editor);
+    }
+
+    /**
+     * can merge with a following move of the same nodes, affecting the same edges
+     */
+    @Override
+    public boolean canCoalesce(UndoableRedoableCommand next, long millisSinceChanged) {
+        return next instanceof MoveSelectedNodesCommand other && other.editor == editor
+               && millisSinceChanged <= ProgramProperties.get("CoalesceMillis", 1000)
+               && Arrays.equals(nodeIds, other.nodeIds)
+               && Arrays.equals(oldEdgeControlCoordinates.getIds(), other.oldEdgeControlCoordinates.getIds());
+    }
+
+    /**
+     * the moves are composed by adding up the displacements, the edges keep their original control points for undo
+     * and take the latest ones for redo
+     */
+    @Override
+    public void coalesce(UndoableRedoableCommand next) {
+        final MoveSelectedNodesCommand other = (MoveSelectedNodesCommand) next;
+        dx += other.dx;
+        dy += other.dy;
+        newEdgeControlCoordinates = other.newEdgeControlCoordinates;
     }
 }
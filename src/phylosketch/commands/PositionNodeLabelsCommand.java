@@ -19,26 +19,26 @@
 
 package phylosketch.commands;
 
-import javafx.animation.Animation;
-import javafx.animation.Transition;
-import javafx.util.Duration;
-import jloda.fx.control.RichTextLabel;
+import javafx.scene.text.Font;
 import jloda.fx.undo.UndoableRedoableCommand;
-import jloda.fx.util.ProgramProperties;
 import jloda.graph.Node;
+import jloda.graph.NodeIntArray;
+import jloda.phylo.PhyloTree;
 import jloda.util.NumberUtils;
+import phylosketch.embed.LabelPlacement;
+import phylosketch.view.AnimationService;
 import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Objects;
 
 /**
  * change label positions
  * daniel huson, 2.2020
  */
-public class PositionNodeLabelsCommand extends UndoableRedoableCommand {
+public class PositionNodeLabelsCommand extends UndoableRedoableCommand implements IMemoryFootprint {
 
     public enum Position {
         Above, Below, Left, Right, Center;
@@ -58,108 +58,229 @@ public class PositionNodeLabelsCommand extends UndoableRedoableCommand {
         }
     }
 
+    /**
+     * label scales tried when there is no room for a label at full size
+     */
+    private static final double[] SCALES = {1, 0.85, 0.7};
+
     private final Runnable undo;
     private final Runnable redo;
+    private final long memoryFootprint;
 
     /**
      * change node positions
      *
 	 */
     public PositionNodeLabelsCommand(PhyloView view, Collection<Node> nodes, Position position) {
-        super("Label Position");
+        this(view, nodes, position, false);
+    }
 
-        final ArrayList<Data> dataList = new ArrayList<>();
+    /**
+     * change node positions
+     *
+     * @param avoidOverlaps if true, labels are moved away from the given position and shrunk, where necessary, to avoid
+     *                      overlapping other labels and nodes, see LabelPlacement
+     */
+    public PositionNodeLabelsCommand(PhyloView view, Collection<Node> nodes, Position position, boolean avoidOverlaps) {
+        super(avoidOverlaps ? "Avoid Label Overlaps" : "Label Position");
 
+        // only nodes that have label text are positioned, their labels are measured without creating them:
+        final ArrayList<Node> labeled = new ArrayList<>();
         for (Node v : nodes) {
-            final double nodeWidth = view.getNodeView(v).getWidth();
-            final double nodeHeight = view.getNodeView(v).getHeight();
-            final RichTextLabel label = view.getNodeView(v).getLabel();
+            if (!view.getNodeView(v).getLabelText().isEmpty())
+                labeled.add(v);
+        }
+
+        final int[] ids = CoordinatesRecord.nodeIds(labeled);
+        final CoordinatesRecord oldLayout = new CoordinatesRecord(ids, 2);
+        final CoordinatesRecord newLayout = new CoordinatesRecord(ids, 2);
+
+        var i = 0;
+        for (Node v : labeled) {
+            final NodeView nodeView = view.getNodeView(v);
+            final double nodeWidth = nodeView.getWidth();
+            final double nodeHeight = nodeView.getHeight();
+            final double[] labelSize = nodeView.computeLabelSize();
+            final double labelWidth = labelSize[0];
+            final double labelHeight = labelSize[1];
 
-			final boolean horizontalLabel = !(NumberUtils.equals(label.getRotate(), 90, 0.00001) || NumberUtils.equals(label.getRotate(), 270, 0.00001));
+            oldLayout.setCoordinates(i, new double[]{nodeView.getLabelLayoutX(), nodeView.getLabelLayoutY()});
+
+			final boolean horizontalLabel = !isVertical(nodeView.getLabelAngle());
 
             if (horizontalLabel) {
                 switch (position) {
                     case Above: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -0.5 * label.getWidth(), label.getLayoutY(), -(0.5 * label.getHeight() + label.getHeight() + 5)));
+                        newLayout.setCoordinates(i, new double[]{-0.5 * labelWidth, -(0.5 * labelHeight + labelHeight + 5)});
                         break;
                     }
                     case Below: {
-						dataList.add(new Data(v.getId(), label.getLayoutX(), -0.5 * label.getWidth(), label.getLayoutY(), (0.5 * nodeHeight + 5)));
+						newLayout.setCoordinates(i, new double[]{-0.5 * labelWidth, (0.5 * nodeHeight + 5)});
                         break;
                     }
                     case Left: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -(0.5 * nodeWidth + label.getWidth() + 5), label.getLayoutY(), -0.5 * label.getHeight()));
+                        newLayout.setCoordinates(i, new double[]{-(0.5 * nodeWidth + labelWidth + 5), -0.5 * labelHeight});
                         break;
                     }
                     case Right: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), (0.5 * nodeWidth + 5), label.getLayoutY(), -0.5 * label.getHeight()));
+                        newLayout.setCoordinates(i, new double[]{(0.5 * nodeWidth + 5), -0.5 * labelHeight});
                         break;
                     }
                     case Center: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -0.5 * label.getWidth(), label.getLayoutY(), -0.5 * label.getHeight()));
+                        newLayout.setCoordinates(i, new double[]{-0.5 * labelWidth, -0.5 * labelHeight});
                         break;
                     }
                 }
             } else {
                 switch (position) {
                     case Above: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -0.5 * label.getWidth(), label.getLayoutY(), -(8 + nodeHeight + 0.5 * label.getWidth())));
+                        newLayout.setCoordinates(i, new double[]{-0.5 * labelWidth, -(8 + nodeHeight + 0.5 * labelWidth)});
                         break;
                     }
                     case Below: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -0.5 * label.getWidth(), label.getLayoutY(), 5 + 0.5 * label.getWidth()));
+                        newLayout.setCoordinates(i, new double[]{-0.5 * labelWidth, 5 + 0.5 * labelWidth});
                         break;
                     }
                     case Left: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -(0.5 * nodeWidth + label.getWidth() + 8) + 0.5 * label.getWidth(), label.getLayoutY(), -0.5 * label.getHeight()));
+                        newLayout.setCoordinates(i, new double[]{-(0.5 * nodeWidth + labelWidth + 8) + 0.5 * labelWidth, -0.5 * labelHeight});
                         break;
                     }
                     case Right: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), 0.5 * nodeWidth + 8 - 0.5 * label.getWidth(), label.getLayoutY(), -0.5 * label.getHeight()));
+                        newLayout.setCoordinates(i, new double[]{0.5 * nodeWidth + 8 - 0.5 * labelWidth, -0.5 * labelHeight});
                         break;
                     }
                     case Center: {
-                        dataList.add(new Data(v.getId(), label.getLayoutX(), -0.5 * label.getWidth(), label.getLayoutY(), -0.5 * label.getHeight()));
+                        newLayout.setCoordinates(i, new double[]{-0.5 * labelWidth, -0.5 * labelHeight});
                         break;
                     }
                 }
             }
+            i++;
         }
 
-        undo = () -> animatePositionChange(view, false, dataList);
+        if (avoidOverlaps && position != Position.Center) {
+            final Font[] oldFonts = new Font[ids.length];
+            final Font[] newFonts = new Font[ids.length];
+            placeLabels(view, labeled, LabelPlacement.Side.valueOf(position.name()), oldLayout, newLayout, oldFonts, newFonts);
 
-        redo = () -> animatePositionChange(view, true, dataList);
+            undo = () -> {
+                setFonts(view, ids, oldFonts);
+                animatePositionChange(view, newLayout, oldLayout);
+            };
+            redo = () -> {
+                setFonts(view, ids, newFonts);
+                animatePositionChange(view, oldLayout, newLayout);
+            };
+        } else {
+            undo = () -> animatePositionChange(view, newLayout, oldLayout);
+
+            redo = () -> animatePositionChange(view, oldLayout, newLayout);
+        }
+        memoryFootprint = oldLayout.getMemoryFootprint() + newLayout.getMemoryFootprint() + (avoidOverlaps ? 32L * ids.length : 0);
     }
 
-    private void animatePositionChange(PhyloView view, boolean toNew, Collection<Data> dataList) {
-        if (dataList.size() < ProgramProperties.get("AnimationLimit", 5000)) {
-            final Animation animation = new Transition() {
-                {
-                    setCycleDuration(Duration.millis(500));
+    /**
+     * replaces the new layout of all labels that have text by one that avoids overlaps with other labels and all nodes.
+     * Labels of nodes that are not given are treated as obstacles. All labels are measured from the metrics of their fonts,
+     * including those that have not been created yet. Labels that are shrunk get a smaller font
+     *
+     * @param oldFonts returns the current fonts of all given labels that are shrunk
+     * @param newFonts returns the smaller fonts of all given labels that are shrunk
+     */
+    private static void placeLabels(PhyloView view, Collection<Node> nodes, LabelPlacement.Side preferred, CoordinatesRecord oldLayout, CoordinatesRecord newLayout, Font[] oldFonts, Font[] newFonts) {
+        final PhyloTree graph = view.getGraph();
+        final Node[] index2node = graph.getNodesAsList().toArray(new Node[0]);
+        final double[] nodeLocations = new double[2 * index2node.length];
+        final double[] nodeSizes = new double[2 * index2node.length];
+
+        try (NodeIntArray node2index = graph.newNodeIntArray(); NodeIntArray node2record = graph.newNodeIntArray()) {
+            for (int v = 0; v < index2node.length; v++) {
+                final NodeView nodeView = view.getNodeView(index2node[v]);
+                node2index.set(index2node[v], v);
+                nodeLocations[2 * v] = nodeView.getTranslateX();
+                nodeLocations[2 * v + 1] = nodeView.getTranslateY();
+                nodeSizes[2 * v] = nodeView.getWidth();
+                nodeSizes[2 * v + 1] = nodeView.getHeight();
+            }
+
+            var record = 0;
+            for (Node v : nodes)
+                node2record.set(v, ++record);
+
+            final ArrayList<Node> labeled = new ArrayList<>();
+            final double[] obstacles = new double[4 * index2node.length];
+            var numberOfObstacles = 0;
+            for (Node v : index2node) {
+                final NodeView nodeView = view.getNodeView(v);
+                if (nodeView.getLabelText().isEmpty())
+                    continue;
+                if (node2record.getInt(v) > 0)
+                    labeled.add(v);
+                else { // labels are measured from their text, so labels that have not been created yet are obstacles, too
+                    System.arraycopy(nodeView.computeLabelBox(), 0, obstacles, numberOfObstacles, 4);
+                    numberOfObstacles += 4;
                 }
+            }
+
+            final int[] labelNodes = new int[labeled.size()];
+            final double[] unrotatedSizes = new double[2 * labeled.size()];
+            final double[] labelSizes = new double[2 * labeled.size()];
+            for (int i = 0; i < labelNodes.length; i++) {
+                final NodeView nodeView = view.getNodeView(labeled.get(i));
+                labelNodes[i] = node2index.getInt(labeled.get(i));
+                System.arraycopy(nodeView.computeLabelSize(), 0, unrotatedSizes, 2 * i, 2);
+                // a label rotated by 90 or 270 degrees occupies a box of swapped width and height:
+                final boolean swap = isVertical(nodeView.getLabelAngle());
+                labelSizes[2 * i] = unrotatedSizes[2 * i + (swap ? 1 : 0)];
+                labelSizes[2 * i + 1] = unrotatedSizes[2 * i + (swap ? 0 : 1)];
+            }
 
-                @Override
-                protected void interpolate(double frac) {
-                    final double p = (toNew ? 1.0 - frac : frac);
-                    final double q = (toNew ? frac : 1.0 - frac);
+            final double[] placement = LabelPlacement.apply(nodeLocations, nodeSizes, labelNodes, labelSizes, Arrays.copyOf(obstacles, numberOfObstacles), preferred, SCALES);
 
-                    for (Data data : dataList) {
-                        final NodeView nv = view.getNodeView(view.getGraph().findNodeById(data.id));
-                        nv.getLabel().setLayoutX(p * data.oldX + q * data.newX);
-                        nv.getLabel().setLayoutY(p * data.oldY + q * data.newY);
-                    }
+            for (int i = 0; i < labelNodes.length; i++) {
+                final NodeView nodeView = view.getNodeView(labeled.get(i));
+                final int r = node2record.getInt(labeled.get(i)) - 1;
+                final double scale = placement[3 * i + 2];
+                // the label is laid out unrotated around the center of the box:
+                final double centerX = placement[3 * i] + 0.5 * scale * labelSizes[2 * i];
+                final double centerY = placement[3 * i + 1] + 0.5 * scale * labelSizes[2 * i + 1];
+                newLayout.setCoordinates(r, new double[]{centerX - 0.5 * scale * unrotatedSizes[2 * i], centerY - 0.5 * scale * unrotatedSizes[2 * i + 1]});
+                if (scale < 1) {
+                    final Font font = nodeView.getLabelFont();
+                    oldFonts[r] = font;
+                    newFonts[r] = new Font(font.getName(), font.getSize() * scale); // the name determines family, weight and posture
                 }
-            };
-            animation.play();
-        } else {
-            for (Data data : dataList) {
-                final NodeView nv = view.getNodeView(view.getGraph().findNodeById(data.id));
-                nv.getLabel().setLayoutX(toNew ? data.newX : data.oldX);
-                nv.getLabel().setLayoutY(toNew ? data.newY : data.oldY);
             }
         }
     }
 
+    private static boolean isVertical(double angle) {
+        return NumberUtils.equals(angle, 90, 0.00001) || NumberUtils.equals(angle, 270, 0.00001);
+    }
+
+    /**
+     * sets the fonts of all labels that have a non-null entry
+     */
+    private static void setFonts(PhyloView view, int[] ids, Font[] fonts) {
+        final NodeView[] nodeViews = view.getNodeViewsById(ids);
+        for (int i = 0; i < nodeViews.length; i++) {
+            if (fonts[i] != null)
+                nodeViews[i].setLabelFont(fonts[i]);
+        }
+    }
+
+    private void animatePositionChange(PhyloView view, CoordinatesRecord oldLayout, CoordinatesRecord newLayout) {
+        // resolve all node views once, not in every frame. Labels that haven't been created yet only record their layout
+        final NodeView[] nodeViews = view.getNodeViewsById(oldLayout.getIds());
+
+        AnimationService.getInstance().play(oldLayout.toPacked(), newLayout.toPacked(), 2, (i, values, offset) -> nodeViews[i].setLabelLayout(values[offset], values[offset + 1]));
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return memoryFootprint;
+    }
+
     @Override
     public void undo() {
         undo.run();
@@ -169,37 +290,4 @@ public class PositionNodeLabelsCommand extends UndoableRedoableCommand {
     public void redo() {
         redo.run();
     }
-
-    private static class Data {
-        final int id;
-        final double oldX;
-        final double newX;
-        final double oldY;
-        final double newY;
-
-        public Data(int id, double oldX, double newX, double oldY, double newY) {
-            this.id = id;
-            this.oldX = oldX;
-            this.newX = newX;
-            this.oldY = oldY;
-            this.newY = newY;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Data)) return false;
-            Data data = (Data) o;
-            return id == data.id &&
-                    Double.compare(data.oldX, oldX) == 0 &&
-                    Double.compare(data.newX, newX) == 0 &&
-                    Double.compare(data.oldY, oldY) == 0 &&
-                    Double.compare(data.newY, newY) == 0;
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(id, oldX, newX, oldY, newY);
-        }
-    }
 }
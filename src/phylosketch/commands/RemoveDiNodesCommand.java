@@ -21,10 +21,14 @@ package phylosketch.commands;
 
 import javafx.scene.layout.Pane;
 import jloda.fx.control.RichTextLabel;
-import jloda.fx.undo.CompositeCommand;
+import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.graph.Edge;
 import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+import phylosketch.view.EdgeView;
 import phylosketch.view.PhyloView;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -32,45 +36,109 @@ import java.util.stream.Collectors;
 
 /**
  * remove di-nodes command
+ * Deletes all di-nodes and connects the ends of each path of di-nodes by a new edge, all in one scene update.
+ * The new edges are kept as arrays of ids and style ids
  * Daniel Huson, 1.2020
  */
-public class RemoveDiNodesCommand extends CompositeCommand {
+public class RemoveDiNodesCommand extends UndoableRedoableCommand implements IMemoryFootprint {
+    private final Runnable undo;
+    private final Runnable redo;
+    private final long memoryFootprint;
 
     public RemoveDiNodesCommand(Pane pane, PhyloView view, Collection<Node> nodes) {
         super("Remove Di Nodes");
 
+        final PhyloTree graph = view.getGraph();
+
 		var diNodes = nodes.stream().filter(v -> v.getInDegree() == 1 && v.getOutDegree() == 1 && (view.getGraph().getLabel(v) == null || RichTextLabel.getRawText(view.getGraph().getLabel(v)).isBlank()))
                 .collect(Collectors.toList());
 
-		if (!diNodes.isEmpty()) {
-            add(new DeleteNodesEdgesCommand(pane, view, diNodes, Collections.emptyList()));
+        final DeleteNodesEdgesCommand deleteCommand = (diNodes.isEmpty() ? null : new DeleteNodesEdgesCommand(pane, view, diNodes, Collections.emptyList()));
 
-			{
-				var set = new HashSet<>(diNodes);
-				for (var v : diNodes) {
-                    if (set.contains(v)) {
-						var a = v;
-                        while (set.contains(a)) {
-                            if (a != v)
-                                set.remove(a);
-                            a = a.getFirstInEdge().getOpposite(a);
-                        }
-						var b = v;
-						var e = b.getFirstInEdge();
-                        while (set.contains(b)) {
-                            if (b != v)
-                                set.remove(b);
-                            b = b.getFirstOutEdge().getOpposite(b);
-							e = b.getFirstInEdge();
-                        }
-						if (a != v && b != v && a != b) {
-							var edgeView = view.getEdgeView(e);
-							add(new CreateEdgeCommand(view, a, b, edgeView.getArrowHead().isVisible(), edgeView.getCurve().getStrokeWidth(), edgeView.getCurve().getStroke()));
-							//add(new CreateEdgeCommand(view, a,b));
-						}
+        // the edges that bypass removed paths of di-nodes, and their styles:
+        final ArrayList<int[]> bypasses = new ArrayList<>();
+        {
+            var set = new HashSet<>(diNodes);
+            for (var v : diNodes) {
+                if (set.contains(v)) {
+                    var a = v;
+                    while (set.contains(a)) {
+                        if (a != v)
+                            set.remove(a);
+                        a = a.getFirstInEdge().getOpposite(a);
+                    }
+                    var b = v;
+                    var e = b.getFirstInEdge();
+                    while (set.contains(b)) {
+                        if (b != v)
+                            set.remove(b);
+                        b = b.getFirstOutEdge().getOpposite(b);
+                        e = b.getFirstInEdge();
+                    }
+                    if (a != v && b != v && a != b) {
+                        var edgeView = view.getEdgeView(e);
+                        bypasses.add(new int[]{a.getId(), b.getId(), edgeView.getArrowHead().isVisible() ? 1 : 0, edgeView.getStrokeWidthId(), edgeView.getStrokeId()});
                     }
                 }
             }
         }
+        final int n = bypasses.size();
+        final int[] sourceIds = new int[n];
+        final int[] targetIds = new int[n];
+        final boolean[] arrows = new boolean[n];
+        final int[] strokeWidthIds = new int[n];
+        final int[] strokeIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            final int[] bypass = bypasses.get(i);
+            sourceIds[i] = bypass[0];
+            targetIds[i] = bypass[1];
+            arrows[i] = (bypass[2] == 1);
+            strokeWidthIds[i] = bypass[3];
+            strokeIds[i] = bypass[4];
+        }
+        final int[] edgeIds = new int[n]; // assigned by the first redo and reused by later ones
+
+        // the delete command registers its own data, see ISpillable
+        memoryFootprint = 64 + 21L * n;
+
+        undo = () -> view.batchUpdate(() -> {
+            for (int id : edgeIds) {
+                final Edge e = view.getEdgeById(id);
+                view.removeEdge(e);
+                graph.deleteEdge(e);
+            }
+            if (deleteCommand != null)
+                deleteCommand.undo();
+        });
+
+        redo = () -> view.batchUpdate(() -> {
+            if (deleteCommand != null)
+                deleteCommand.redo();
+            for (int i = 0; i < n; i++) {
+                final Node v = view.getNodeById(sourceIds[i]);
+                final Node w = view.getNodeById(targetIds[i]);
+                final Edge e = (edgeIds[i] == 0 ? graph.newEdge(v, w) : graph.newEdge(v, w, null, edgeIds[i]));
+                edgeIds[i] = e.getId();
+                final EdgeView edgeView = view.addEdge(e);
+                edgeView.getArrowHead().setVisible(arrows[i]);
+                edgeView.setStrokeWidthId(strokeWidthIds[i]);
+                edgeView.setStrokeId(strokeIds[i]);
+            }
+        });
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return memoryFootprint;
+    }
+
+    @Override
+    public void undo() {
+        undo.run();
+    }
+
+    @Override
+    public void redo() {
+        redo.run();
     }
 }
@@ -19,13 +19,6 @@
 
 package phylosketch.commands;
 
-import javafx.animation.Animation;
-import javafx.animation.Transition;
-import javafx.geometry.Point2D;
-import javafx.util.Duration;
-import jloda.fx.undo.UndoableRedoableCommand;
-import jloda.fx.util.GeometryUtilsFX;
-import jloda.fx.util.ProgramProperties;
 import jloda.util.IteratorUtils;
 import phylosketch.view.PhyloView;
 
@@ -33,76 +26,11 @@ import phylosketch.view.PhyloView;
  * rotate the graph clockwise or anticlockwise by 90o
  * Daniel Huson, 4.2020
  */
-public class RotateGraphCommand extends UndoableRedoableCommand {
-    private final Runnable undo;
-    private final Runnable redo;
+public class RotateGraphCommand extends AffineTransformCommand {
 
     public RotateGraphCommand(final PhyloView view, boolean clockwise) {
-        super("Rotate graph " + (clockwise ? "clockwise" : "anticlockwise"));
-
-        final PositionNodeLabelsCommand positionNodeLabelsCommand = new PositionNodeLabelsCommand(view, IteratorUtils.asList(view.getGraph().nodes()),
-                PositionNodeLabelsCommand.Position.getDefault(view.computeRootLocation().next(clockwise)));
-
-        undo = () -> {
-            rotateAnimated(view, clockwise ? -90 : 90);
-            positionNodeLabelsCommand.undo();
-
-        };
-        redo = () -> {
-            rotateAnimated(view, clockwise ? 90 : -90);
-            positionNodeLabelsCommand.redo();
-        };
-    }
-
-    private void rotateAnimated(PhyloView phyloView, double alpha) {
-        if (phyloView.getGraph().getNumberOfNodes() < ProgramProperties.get("AnimationLimit", 5000)) {
-            final Animation animation = new Transition() {
-                double previous = 0;
-
-                {
-                    setCycleDuration(Duration.millis(500));
-                }
-
-                @Override
-                protected void interpolate(double frac) {
-                    double add = (frac - previous) * alpha;
-                    rotate(phyloView, add);
-                    previous = frac;
-                }
-            };
-            animation.play();
-        } else
-            rotate(phyloView, alpha);
-    }
-
-    /**
-     * rotate the graph
-     *
-	 */
-    private void rotate(PhyloView phyloView, double alpha) {
-        phyloView.getGraph().nodeStream().map(phyloView::getNodeView).forEach(nv -> {
-            final Point2D point = GeometryUtilsFX.rotate(nv.getTranslateX(), nv.getTranslateY(), alpha);
-            nv.setTranslateX(point.getX());
-            nv.setTranslateY(point.getY());
-        });
-        phyloView.getGraph().edgeStream().map(phyloView::getEdgeView).forEach(ev -> {
-            final double[] controlCoordinates = ev.getControlCoordinates();
-            for (int i = 0; i < controlCoordinates.length; i += 2) {
-                final Point2D point = GeometryUtilsFX.rotate(controlCoordinates[i], controlCoordinates[i + 1], alpha);
-                controlCoordinates[i] = point.getX();
-                controlCoordinates[i + 1] = point.getY();
-            }
-            ev.setControlCoordinates(controlCoordinates);
-        });
-    }
-
-    @Override
-    public void undo() {
-        undo.run();
-    }
-
-    @Override
-    public void redo() {
-        redo.run();
+        super("Rotate graph " + (clockwise ? "clockwise" : "anticlockwise"), view, rotation(clockwise ? 90 : -90), clockwise ? 90 : -90,
+                new PositionNodeLabelsCommand(view, IteratorUtils.asList(view.getGraph().nodes()),
+                        PositionNodeLabelsCommand.Position.getDefault(view.computeRootLocation().next(clockwise))));
     }
 }
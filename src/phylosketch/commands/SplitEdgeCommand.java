@@ -22,7 +22,6 @@ package phylosketch.commands;
 import javafx.geometry.Point2D;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Paint;
-import jloda.fx.undo.CompositeCommand;
 import jloda.fx.undo.UndoableRedoableCommand;
 import jloda.graph.Edge;
 import jloda.graph.Node;
@@ -61,11 +60,11 @@ public class SplitEdgeCommand extends UndoableRedoableCommand {
 
         undo = () -> {
             if (newNodeId > 0) {
-                final Node v = graph.findNodeById(newNodeId);
+                final Node v = view.getNodeById(newNodeId);
                 view.removeNode(v);
                 graph.deleteNode(v);
 
-                final Edge oldEdge = graph.newEdge(graph.findNodeById(sourceId), graph.findNodeById(targetId), null, oldEdgeId);
+                final Edge oldEdge = graph.newEdge(view.getNodeById(sourceId), view.getNodeById(targetId), null, oldEdgeId);
                 final EdgeView ev = view.addEdge(oldEdge);
                 ev.setControlCoordinates(oldEdgeCoordinates);
                 ev.getCurve().setStrokeWidth(oldEdgeWidth);
@@ -74,7 +73,7 @@ public class SplitEdgeCommand extends UndoableRedoableCommand {
         };
 
         redo = () -> {
-            final Edge oldEdge = graph.findEdgeById(oldEdgeId);
+            final Edge oldEdge = view.getEdgeById(oldEdgeId);
             view.removeEdge(oldEdge);
             graph.deleteEdge(oldEdge);
 
@@ -86,12 +85,12 @@ public class SplitEdgeCommand extends UndoableRedoableCommand {
                 newNode = graph.newNode(null, newNodeId);
             view.addNode(newNode, pane, location.getX(), location.getY());
 
-            final Edge e1 = graph.newEdge(graph.findNodeById(sourceId), newNode);
+            final Edge e1 = graph.newEdge(view.getNodeById(sourceId), newNode);
             final EdgeView ev1 = view.addEdge(e1);
             ev1.getCurve().setStrokeWidth(oldEdgeWidth);
             ev1.getCurve().setStroke(oldEdgePaint);
 
-            final Edge e2 = graph.newEdge(newNode, graph.findNodeById(targetId));
+            final Edge e2 = graph.newEdge(newNode, view.getNodeById(targetId));
             final EdgeView ev2 = view.addEdge(e2);
             ev2.getCurve().setStrokeWidth(oldEdgeWidth);
             ev2.getCurve().setStroke(oldEdgePaint);
@@ -108,13 +107,10 @@ public class SplitEdgeCommand extends UndoableRedoableCommand {
         redo.run();
     }
 
-    public static CompositeCommand createAddDiNodesCommand(Pane pane, PhyloView view, Collection<Edge> edges) {
-        final CompositeCommand command = new CompositeCommand("Add Di Nodes");
-        for (Edge e : edges) {
-            final Point2D location = new Point2D(0.5 * (view.getX(e.getSource()) + view.getX(e.getTarget())),
-                    0.5 * (view.getY(e.getSource()) + view.getY(e.getTarget())));
-            command.add(new SplitEdgeCommand(pane, view, e, location));
-        }
-        return command;
+    /**
+     * creates a command that splits all given edges in one pass
+     */
+    public static AddDiNodesCommand createAddDiNodesCommand(Pane pane, PhyloView view, Collection<Edge> edges) {
+        return new AddDiNodesCommand(pane, view, edges);
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * TransactionCommand.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import jloda.fx.undo.UndoableRedoableCommand;
+import phylosketch.view.PhyloView;
+
+/**
+ * runs a sequence of commands as one transaction of the view, so that graph, scene and selection listeners
+ * are notified once for all of them, rather than once per command
+ * Daniel Huson, 10.2026
+ */
+public class TransactionCommand extends UndoableRedoableCommand implements IMemoryFootprint {
+    private final PhyloView view;
+    private final UndoableRedoableCommand[] commands;
+
+    /**
+     * constructor
+     *
+     * @param commands the commands, redone in the given order and undone in reverse order
+     */
+    public TransactionCommand(String name, PhyloView view, UndoableRedoableCommand... commands) {
+        super(name);
+        this.view = view;
+        this.commands = commands;
+    }
+
+    /**
+     * @return the estimated memory held by the commands, spillable ones register their data on their own
+     */
+    @Override
+    public long getMemoryFootprint() {
+        long bytes = 64;
+        for (UndoableRedoableCommand command : commands) {
+            if (!(command instanceof ISpillable))
+                bytes += UndoHistoryBudget.estimate(command);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void undo() {
+        view.batchUpdate(() -> {
+            for (int i = commands.length - 1; i >= 0; i--) {
+                commands[i].undo();
+            }
+        });
+    }
+
+    @Override
+    public void redo() {
+        view.batchUpdate(() -> {
+            for (UndoableRedoableCommand command : commands) {
+                command.redo();
+            }
+        });
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * UndoHistoryBudget.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.commands;
+
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.fx.util.ProgramProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * keeps track of the memory used by the undo history
+ * Every command added to the undo history is registered here with an estimate of its size, see IMemoryFootprint.
+ * When the budget is exceeded, the data of the oldest spillable commands is moved to disk, one file per command.
+ * If that doesn't suffice, the undo manager drops its oldest commands, see BudgetedUndoManager, and removes them here.
+ * The budget is set by the program property UndoMemoryBudgetMB
+ * Daniel Huson, 10.2026
+ */
+public class UndoHistoryBudget {
+    /**
+     * estimated size of a command that doesn't report its memory footprint
+     */
+    public static final long DefaultFootprint = 256;
+
+    private final ArrayDeque<Entry> inMemory = new ArrayDeque<>();
+    private final ArrayList<Entry> spilled = new ArrayList<>();
+
+    private long bytesInMemory = 0;
+    private long bytesSpilled = 0;
+
+    private File spillDirectory;
+
+    private final StringProperty gauge = new SimpleStringProperty("");
+
+    public static long getBudget() {
+        return ProgramProperties.get("UndoMemoryBudgetMB", 256) * 1048576L;
+    }
+
+    /**
+     * @return the estimated memory held by the command
+     */
+    public static long estimate(UndoableRedoableCommand command) {
+        return (command instanceof IMemoryFootprint ? ((IMemoryFootprint) command).getMemoryFootprint() : DefaultFootprint);
+    }
+
+    /**
+     * register a command that has just been added to the undo history, or whose data has been changed or reloaded,
+     * spilling older data, if necessary. A command may be registered repeatedly, its previous entry is replaced
+     */
+    public void register(UndoableRedoableCommand command) {
+        remove(command);
+
+        final Entry entry = new Entry(command, estimate(command));
+        inMemory.add(entry);
+        bytesInMemory += entry.bytes;
+
+        if (isOverBudget()) {
+            try {
+                for (Iterator<Entry> it = inMemory.iterator(); it.hasNext() && isOverBudget(); ) {
+                    final Entry oldest = it.next();
+                    if (oldest.command instanceof ISpillable) {
+                        final byte[] bytes = ((ISpillable) oldest.command).spill();
+                        it.remove();
+                        bytesInMemory -= oldest.bytes;
+                        if (bytes != null) {
+                            final Entry spilledEntry = new Entry(oldest.command, bytes.length);
+                            spilledEntry.file = writeSpillFile(bytes);
+                            spilled.add(spilledEntry);
+                            bytesSpilled += spilledEntry.bytes;
+                        }
+                    }
+                }
+            } catch (IOException ignored) {
+                // the undo manager drops old commands instead
+            }
+        }
+        updateGauge();
+    }
+
+    /**
+     * @return true, if the commands held in memory exceed the budget
+     */
+    public boolean isOverBudget() {
+        return bytesInMemory > getBudget();
+    }
+
+    /**
+     * get back the data of a spilled command and delete its spill file
+     *
+     * @return the data returned by the command when it was spilled
+     */
+    public byte[] reload(ISpillable command) throws IOException {
+        for (Iterator<Entry> it = spilled.iterator(); it.hasNext(); ) {
+            final Entry entry = it.next();
+            if (entry.command == command) {
+                it.remove();
+                bytesSpilled -= entry.bytes;
+                try {
+                    return Files.readAllBytes(entry.file.toPath());
+                } finally {
+                    deleteSpillFile(entry);
+                    updateGauge();
+                }
+            }
+        }
+        throw new IOException("Undo data not found");
+    }
+
+    /**
+     * remove the entries of a command that has been dropped from the undo history, deleting its spill file, if any
+     */
+    public void remove(UndoableRedoableCommand command) {
+        inMemory.removeIf(entry -> {
+            if (entry.command == command) {
+                bytesInMemory -= entry.bytes;
+                return true;
+            } else
+                return false;
+        });
+        spilled.removeIf(entry -> {
+            if (entry.command == command) {
+                bytesSpilled -= entry.bytes;
+                deleteSpillFile(entry);
+                return true;
+            } else
+                return false;
+        });
+        updateGauge();
+    }
+
+    /**
+     * remove all entries, called when the undo history is cleared
+     */
+    public void clear() {
+        inMemory.clear();
+        spilled.forEach(UndoHistoryBudget::deleteSpillFile);
+        spilled.clear();
+        bytesInMemory = 0;
+        bytesSpilled = 0;
+        updateGauge();
+    }
+
+    private File writeSpillFile(byte[] bytes) throws IOException {
+        if (spillDirectory == null || !spillDirectory.isDirectory()) {
+            spillDirectory = Files.createTempDirectory("phylosketch-undo").toFile();
+            spillDirectory.deleteOnExit();
+        }
+        final File file = File.createTempFile("undo", ".tmp", spillDirectory);
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private static void deleteSpillFile(Entry entry) {
+        if (entry.file != null) {
+            if (!entry.file.delete())
+                entry.file.deleteOnExit();
+            entry.file = null;
+        }
+    }
+
+    private void updateGauge() {
+        if (bytesInMemory == 0 && bytesSpilled == 0)
+            gauge.set("");
+        else if (bytesSpilled == 0)
+            gauge.set(String.format(" Undo: %.1f MB", bytesInMemory / 1048576.0));
+        else
+            gauge.set(String.format(" Undo: %.1f MB (+%.1f MB on disk)", bytesInMemory / 1048576.0, bytesSpilled / 1048576.0));
+    }
+
+    /**
+     * @return text describing the memory used by the undo history
+     */
+    public ReadOnlyStringProperty gaugeProperty() {
+        return gauge;
+    }
+
+    private static class Entry {
+        private final UndoableRedoableCommand command;
+        private final long bytes;
+        private File file; // spill file, if spilled
+
+        public Entry(UndoableRedoableCommand command, long bytes) {
+            this.command = command;
+            this.bytes = bytes;
+        }
+    }
+}
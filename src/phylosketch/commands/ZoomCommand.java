@@ -22,70 +22,17 @@ package phylosketch.commands;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.CubicCurve;
-import jloda.fx.undo.UndoableRedoableCommand;
-import jloda.graph.Node;
-import jloda.phylo.PhyloTree;
-import jloda.util.Triplet;
 import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
 
-import java.util.ArrayList;
-
 /**
- * zoom command
+ * zoom, applied directly whenever the scale of the scroll pane changes, not undoable
  */
-public class ZoomCommand extends UndoableRedoableCommand {
-    private final Runnable undo;
-    private final Runnable redo;
-
-    private final ArrayList<Triplet<Integer, Double, Double>> oldNodes = new ArrayList<>();
-    private final ArrayList<Triplet<Integer, Double, Double>> newNodes = new ArrayList<>();
-
-    public ZoomCommand(double zoomFactorX, double zoomFactorY, Pane mainPane, PhyloView editor) {
-        super("Zoom");
-
-        final PhyloTree graph = editor.getGraph();
-
-        for (Node v : graph.nodes()) {
-            oldNodes.add(new Triplet<>(v.getId(), editor.getNodeView(v).getTranslateX(), editor.getNodeView(v).getTranslateY()));
-            newNodes.add(new Triplet<>(v.getId(), zoomFactorX * editor.getNodeView(v).getTranslateX(), zoomFactorY * editor.getNodeView(v).getTranslateY()));
-        }
-        undo = () -> {
-            oldNodes.forEach(t -> {
-                final NodeView nodeView = editor.getNodeView(graph.findNodeById(t.getFirst()));
-                nodeView.setTranslateX(t.getSecond());
-                nodeView.setTranslateY(t.getThird());
-            });
-            if (mainPane.getChildren().size() > 0 && mainPane.getChildren().get(0) instanceof ImageView) {
-                ImageView imageView = (ImageView) mainPane.getChildren().get(0);
-                imageView.setFitWidth(1 / zoomFactorX * imageView.getFitWidth());
-                imageView.setFitHeight(1 / zoomFactorY * imageView.getFitHeight());
-            }
-        };
-
-        redo = () ->
-                newNodes.forEach(t -> {
-                    final NodeView nodeView = editor.getNodeView(graph.findNodeById(t.getFirst()));
-                    nodeView.setTranslateX(t.getSecond());
-                    nodeView.setTranslateY(t.getThird());
-                });
-        if (mainPane.getChildren().size() > 0 && mainPane.getChildren().get(0) instanceof ImageView) {
-            ImageView imageView = (ImageView) mainPane.getChildren().get(0);
-            imageView.setFitWidth(zoomFactorX * imageView.getFitWidth());
-            imageView.setFitHeight(zoomFactorY * imageView.getFitHeight());
-        }
-    }
-
-    @Override
-    public void undo() {
-        undo.run();
-    }
-
-    @Override
-    public void redo() {
-        redo.run();
-    }
+public class ZoomCommand {
 
+    /**
+     * scale node locations and edge control points
+     */
     public static void zoom(double zoomFactorX, double zoomFactorY, Pane mainPane, PhyloView editor) {
         if (mainPane.getChildren().size() > 0 && mainPane.getChildren().get(0) instanceof ImageView) {
             ImageView imageView = (ImageView) mainPane.getChildren().get(0);
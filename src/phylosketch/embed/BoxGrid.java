@@ -0,0 +1,226 @@
+/*
+ * BoxGrid.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.embed;
+
+import java.util.Arrays;
+
+/**
+ * uniform grid of axis-parallel boxes, used to find the boxes near a query in time proportional to the number of
+ * nearby boxes. Each box is registered in all cells that it intersects, cells are kept in an open addressing hash table
+ * and the boxes of a cell in a linked list of int arrays.
+ * A box that lies in several cells is only reported for the cell that contains the top-left corner of its intersection
+ * with the query, so queries don't modify the grid and can be run in parallel, once all boxes have been added
+ * Daniel Huson, 10.2026
+ */
+class BoxGrid {
+    private final double cellSize;
+
+    private long[] keys;
+    private int[] heads; // first entry of each cell, -1 for an empty slot
+    private int numberOfCells = 0;
+
+    private int[] entryBox;
+    private int[] entryNext;
+    private int numberOfEntries = 0;
+
+    private double[] boxes;
+    private int[] owners;
+    private int numberOfBoxes = 0;
+
+    /**
+     * constructor
+     *
+     * @param cellSize      width and height of a cell, best about the size of a typical box
+     * @param expectedBoxes expected number of boxes, the grid grows as needed
+     */
+    BoxGrid(double cellSize, int expectedBoxes) {
+        this.cellSize = cellSize;
+        final int capacity = Integer.highestOneBit(Math.max(16, 4 * expectedBoxes)) << 1;
+        keys = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        entryBox = new int[Math.max(16, 2 * expectedBoxes)];
+        entryNext = new int[entryBox.length];
+        boxes = new double[4 * Math.max(16, expectedBoxes)];
+        owners = new int[Math.max(16, expectedBoxes)];
+    }
+
+    /**
+     * adds a box
+     *
+     * @param owner the owner of the box, such as the node of a node or label box, or -1
+     */
+    void add(double x0, double y0, double x1, double y1, int owner) {
+        if (numberOfBoxes == owners.length) {
+            boxes = Arrays.copyOf(boxes, 8 * owners.length);
+            owners = Arrays.copyOf(owners, 2 * owners.length);
+        }
+        final int box = numberOfBoxes++;
+        boxes[4 * box] = x0;
+        boxes[4 * box + 1] = y0;
+        boxes[4 * box + 2] = x1;
+        boxes[4 * box + 3] = y1;
+        owners[box] = owner;
+
+        final long col0 = cell(x0), col1 = cell(x1), row0 = cell(y0), row1 = cell(y1);
+        for (long col = col0; col <= col1; col++) {
+            for (long row = row0; row <= row1; row++) {
+                if (numberOfEntries == entryBox.length) {
+                    entryBox = Arrays.copyOf(entryBox, 2 * entryBox.length);
+                    entryNext = Arrays.copyOf(entryNext, 2 * entryNext.length);
+                }
+                final int slot = findSlot(key(col, row), true);
+                entryBox[numberOfEntries] = box;
+                entryNext[numberOfEntries] = heads[slot];
+                heads[slot] = numberOfEntries++;
+            }
+        }
+    }
+
+    /**
+     * @return the total area of intersection between the given box and all boxes in the grid
+     */
+    double computeOverlap(double x0, double y0, double x1, double y1) {
+        double overlap = 0;
+        final long col0 = cell(x0), col1 = cell(x1), row0 = cell(y0), row1 = cell(y1);
+        for (long col = col0; col <= col1; col++) {
+            for (long row = row0; row <= row1; row++) {
+                final int slot = findSlot(key(col, row), false);
+                if (slot == -1)
+                    continue;
+                for (int entry = heads[slot]; entry != -1; entry = entryNext[entry]) {
+                    final int box = entryBox[entry];
+                    if (isReported(box, x0, y0, col, row)) {
+                        final double width = Math.min(x1, boxes[4 * box + 2]) - Math.max(x0, boxes[4 * box]);
+                        final double height = Math.min(y1, boxes[4 * box + 3]) - Math.max(y0, boxes[4 * box + 1]);
+                        if (width > 0 && height > 0)
+                            overlap += width * height;
+                    }
+                }
+            }
+        }
+        return overlap;
+    }
+
+    /**
+     * @return the number of boxes that the line segment from (ax,ay) to (bx,by) passes through, ignoring boxes that
+     * belong to either of the two given owners
+     */
+    int countCrossedBoxes(double ax, double ay, double bx, double by, int ignoreOwner1, int ignoreOwner2) {
+        final double x0 = Math.min(ax, bx), y0 = Math.min(ay, by);
+        int count = 0;
+        final long col0 = cell(x0), col1 = cell(Math.max(ax, bx)), row0 = cell(y0), row1 = cell(Math.max(ay, by));
+        for (long col = col0; col <= col1; col++) {
+            for (long row = row0; row <= row1; row++) {
+                final int slot = findSlot(key(col, row), false);
+                if (slot == -1)
+                    continue;
+                for (int entry = heads[slot]; entry != -1; entry = entryNext[entry]) {
+                    final int box = entryBox[entry];
+                    if (owners[box] != ignoreOwner1 && owners[box] != ignoreOwner2 && isReported(box, x0, y0, col, row)
+                        && intersects(box, ax, ay, bx, by))
+                        count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * does the line segment from (ax,ay) to (bx,by) pass through the interior of the box? Uses Liang-Barsky clipping
+     */
+    private boolean intersects(int box, double ax, double ay, double bx, double by) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double[] range = {0, 1};
+        return clip(-dx, ax - boxes[4 * box], range) && clip(dx, boxes[4 * box + 2] - ax, range)
+               && clip(-dy, ay - boxes[4 * box + 1], range) && clip(dy, boxes[4 * box + 3] - ay, range);
+    }
+
+    private static boolean clip(double p, double q, double[] range) {
+        if (p == 0)
+            return q > 0;
+        final double t = q / p;
+        if (p < 0)
+            range[0] = Math.max(range[0], t);
+        else
+            range[1] = Math.min(range[1], t);
+        return range[0] < range[1];
+    }
+
+    /**
+     * a box is only reported in the cell that contains the top-left corner of its intersection with the query
+     */
+    private boolean isReported(int box, double x0, double y0, long col, long row) {
+        return cell(Math.max(x0, boxes[4 * box])) == col && cell(Math.max(y0, boxes[4 * box + 1])) == row;
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(long col, long row) {
+        return (col << 32) ^ (row & 0xffffffffL);
+    }
+
+    /**
+     * @param create add the cell, if it is not present
+     * @return the slot of the cell, or -1, if it is not present and create is false
+     */
+    private int findSlot(long key, boolean create) {
+        int slot = hash(key) & (keys.length - 1);
+        while (heads[slot] != -1) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (!create)
+            return -1;
+        if (2 * (numberOfCells + 1) > keys.length) {
+            rehash();
+            return findSlot(key, true);
+        }
+        keys[slot] = key;
+        numberOfCells++;
+        return slot;
+    }
+
+    private void rehash() {
+        final long[] oldKeys = keys;
+        final int[] oldHeads = heads;
+        keys = new long[2 * oldKeys.length];
+        heads = new int[2 * oldHeads.length];
+        Arrays.fill(heads, -1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != -1) {
+                int slot = hash(oldKeys[i]) & (keys.length - 1);
+                while (heads[slot] != -1)
+                    slot = (slot + 1) & (keys.length - 1);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,770 @@
+/*
+ * CladogramLayout.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.embed;
+
+import java.util.Arrays;
+
+/**
+ * computes rectangular, radial and circular cladogram and phylogram layouts of a rooted network
+ * Works on primitive arrays only, nodes and edges are given by their indices, so it does not depend on the
+ * graph or scene classes. All traversals are iterative and the runtime is linear in the number of nodes and edges
+ * Daniel Huson, 10.2026
+ */
+public class CladogramLayout {
+    /**
+     * the network to be laid out, given by indices 0..n-1 for the nodes and 0..m-1 for the edges
+     */
+    public static class Network {
+        private final int numberOfNodes;
+        private final int root;
+        private final int[] edgeSource;
+        private final int[] edgeTarget;
+        private final boolean[] edgeTransfer;
+        private final boolean hasReticulateEdges;
+        private final int[] lsaStart;
+        private final int[] lsaChildren;
+
+        private final int[] outStart;
+        private final int[] outEdges;
+        private final int[] inDegree;
+
+        /**
+         * constructor
+         *
+         * @param numberOfNodes      number of nodes n
+         * @param root               index of the root
+         * @param edgeSource         source index of each edge
+         * @param edgeTarget         target index of each edge
+         * @param edgeTransfer       is the edge a transfer edge? May be null
+         * @param hasReticulateEdges does the network contain reticulate edges?
+         * @param lsaStart           the children of node v in the LSA tree are lsaChildren[lsaStart[v]..lsaStart[v+1]-1]
+         * @param lsaChildren        children in the LSA tree, in layout order
+         */
+        public Network(int numberOfNodes, int root, int[] edgeSource, int[] edgeTarget, boolean[] edgeTransfer, boolean hasReticulateEdges, int[] lsaStart, int[] lsaChildren) {
+            this.numberOfNodes = numberOfNodes;
+            this.root = root;
+            this.edgeSource = edgeSource;
+            this.edgeTarget = edgeTarget;
+            this.edgeTransfer = edgeTransfer;
+            this.hasReticulateEdges = hasReticulateEdges;
+            this.lsaStart = lsaStart;
+            this.lsaChildren = lsaChildren;
+
+            // out-edges of each node, by counting sort on the sources:
+            outStart = new int[numberOfNodes + 1];
+            for (int s : edgeSource)
+                outStart[s + 1]++;
+            for (int v = 0; v < numberOfNodes; v++)
+                outStart[v + 1] += outStart[v];
+            outEdges = new int[edgeSource.length];
+            final int[] next = new int[numberOfNodes];
+            System.arraycopy(outStart, 0, next, 0, numberOfNodes);
+            for (int e = 0; e < edgeSource.length; e++)
+                outEdges[next[edgeSource[e]]++] = e;
+
+            inDegree = new int[numberOfNodes];
+            for (int t : edgeTarget)
+                inDegree[t]++;
+        }
+
+        /**
+         * @return a copy of this network that uses the given order of LSA children
+         */
+        public Network withLSAChildren(int[] lsaChildren) {
+            return new Network(numberOfNodes, root, edgeSource, edgeTarget, edgeTransfer, hasReticulateEdges, lsaStart, lsaChildren);
+        }
+
+        public int getNumberOfNodes() {
+            return numberOfNodes;
+        }
+
+        public int getRoot() {
+            return root;
+        }
+
+        public int getSource(int e) {
+            return edgeSource[e];
+        }
+
+        public int getTarget(int e) {
+            return edgeTarget[e];
+        }
+
+        public int[] getLSAStart() {
+            return lsaStart;
+        }
+
+        public int[] getLSAChildren() {
+            return lsaChildren;
+        }
+
+        public int getNumberOfEdges() {
+            return edgeSource.length;
+        }
+
+        private int outDegree(int v) {
+            return outStart[v + 1] - outStart[v];
+        }
+
+        /**
+         * is the edge a reticulate edge, that is, does its target have more than one parent?
+         */
+        public boolean isReticulate(int e) {
+            return inDegree[edgeTarget[e]] > 1;
+        }
+    }
+
+    public static final double LEVEL_SPACING = 50;
+    public static final double LEAF_SPACING = 50;
+
+    /**
+     * computes the node locations
+     *
+     * @return packed locations x0,y0,x1,y1,..., NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeNodeLocations(Network network) {
+        return computeNodeLocations(network, computeDepths(network));
+    }
+
+    /**
+     * computes the node locations, using the given depths for the x-coordinates
+     *
+     * @param depths depth of each node in units of LEVEL_SPACING, see computeDepths and computePhylogramDepths
+     * @return packed locations x0,y0,x1,y1,..., NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeNodeLocations(Network network, double[] depths) {
+        final int n = network.numberOfNodes;
+        final double[] y = computeYCoordinates(network);
+
+        final double[] locations = new double[2 * n];
+        for (int v = 0; v < n; v++) {
+            if (!Double.isNaN(depths[v]) && !Double.isNaN(y[v])) {
+                locations[2 * v] = LEVEL_SPACING * (1 + depths[v]);
+                locations[2 * v + 1] = LEAF_SPACING * y[v];
+            } else {
+                locations[2 * v] = Double.NaN;
+                locations[2 * v + 1] = Double.NaN;
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * computes the edge control points: edges that are horizontal or vertical are straight, all others are drawn
+     * as rectangular curves
+     *
+     * @return packed control points x1,y1,x2,y2 for each edge
+     */
+    public static double[] computeEdgeControlPoints(Network network, double[] locations) {
+        final int m = network.getNumberOfEdges();
+        final double[] controlPoints = new double[4 * m];
+        for (int e = 0; e < m; e++) {
+            final double vx = locations[2 * network.edgeSource[e]];
+            final double vy = locations[2 * network.edgeSource[e] + 1];
+            final double wx = locations[2 * network.edgeTarget[e]];
+            final double wy = locations[2 * network.edgeTarget[e] + 1];
+            final int offset = 4 * e;
+            if (vx == wx || vy == wy) {
+                controlPoints[offset] = 0.7 * vx + 0.3 * wx;
+                controlPoints[offset + 1] = 0.7 * vy + 0.3 * wy;
+                controlPoints[offset + 2] = 0.3 * vx + 0.7 * wx;
+                controlPoints[offset + 3] = 0.3 * vy + 0.7 * wy;
+            } else {
+                controlPoints[offset] = vx;
+                controlPoints[offset + 1] = wy;
+                controlPoints[offset + 2] = vx;
+                controlPoints[offset + 3] = wy;
+            }
+        }
+        return controlPoints;
+    }
+
+    /**
+     * computes a circular layout: the root is placed in the center, nodes of the same level lie on the same circle
+     * and leaves are spaced evenly around the outermost circle, in the order of the LSA tree
+     *
+     * @return packed locations x0,y0,x1,y1,..., centered at the origin, NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeCircularNodeLocations(Network network) {
+        return computeCircularNodeLocations(network, computeDepths(network));
+    }
+
+    /**
+     * computes a circular layout, using the given depths for the radii
+     *
+     * @param depths depth of each node in units of LEVEL_SPACING, see computeDepths and computePhylogramDepths
+     * @return packed locations x0,y0,x1,y1,..., centered at the origin, NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeCircularNodeLocations(Network network, double[] depths) {
+        final int n = network.numberOfNodes;
+        final double maxDepth = max(depths);
+        final double[] y = computeYCoordinates(network);
+        final double maxY = max(y);
+
+        // the outer radius is large enough to keep leaves LEAF_SPACING apart:
+        final double outerRadius = Math.max(LEVEL_SPACING * maxDepth, maxY * LEAF_SPACING / (2 * Math.PI));
+        final double radiusPerLevel = (maxDepth > 0 ? outerRadius / maxDepth : 0);
+
+        final double[] locations = new double[2 * n];
+        for (int v = 0; v < n; v++) {
+            if (!Double.isNaN(depths[v]) && !Double.isNaN(y[v])) {
+                final double angle = 2 * Math.PI * (y[v] - 0.5) / Math.max(1, maxY);
+                final double radius = radiusPerLevel * depths[v];
+                locations[2 * v] = radius * Math.cos(angle);
+                locations[2 * v + 1] = radius * Math.sin(angle);
+            } else {
+                locations[2 * v] = Double.NaN;
+                locations[2 * v + 1] = Double.NaN;
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * computes a radial (equal angle) layout: each node receives a wedge proportional to the number of leaves below it
+     * in the LSA tree and is placed at distance LEVEL_SPACING from its LSA parent, along the bisector of its wedge
+     *
+     * @return packed locations x0,y0,x1,y1,..., with the root at the origin, NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeRadialNodeLocations(Network network) {
+        return computeRadialNodeLocations(network, null);
+    }
+
+    /**
+     * computes a radial (equal angle) layout in which each node is placed at the distance given by the difference
+     * of its depth and the depth of its LSA parent
+     *
+     * @param depths depth of each node in units of LEVEL_SPACING, or null to place every node at distance LEVEL_SPACING
+     *               from its LSA parent
+     * @return packed locations x0,y0,x1,y1,..., with the root at the origin, NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeRadialNodeLocations(Network network, double[] depths) {
+        final int n = network.numberOfNodes;
+        final double[] locations = new double[2 * n];
+        Arrays.fill(locations, Double.NaN);
+        if (n == 0)
+            return locations;
+
+        final int[] order = computeLSAPreOrder(network);
+
+        final int[] leaves = new int[n];
+        for (int i = order.length - 1; i >= 0; i--) {
+            final int v = order[i];
+            if (network.lsaStart[v + 1] == network.lsaStart[v])
+                leaves[v] = 1;
+            else {
+                for (int j = network.lsaStart[v]; j < network.lsaStart[v + 1]; j++)
+                    leaves[v] += leaves[network.lsaChildren[j]];
+            }
+        }
+
+        final double anglePerLeaf = 2 * Math.PI / Math.max(1, leaves[network.root]);
+        final double[] wedgeStart = new double[n];
+        locations[2 * network.root] = 0;
+        locations[2 * network.root + 1] = 0;
+        for (int v : order) {
+            double start = wedgeStart[v];
+            for (int j = network.lsaStart[v]; j < network.lsaStart[v + 1]; j++) {
+                final int w = network.lsaChildren[j];
+                if (leaves[w] == 0)
+                    continue; // not reached in pre-order
+                final double wedge = leaves[w] * anglePerLeaf;
+                final double angle = start + 0.5 * wedge;
+                final double distance = (depths == null ? LEVEL_SPACING : LEVEL_SPACING * Math.max(0, depths[w] - depths[v]));
+                wedgeStart[w] = start;
+                locations[2 * w] = locations[2 * v] + distance * Math.cos(angle);
+                locations[2 * w + 1] = locations[2 * v + 1] + distance * Math.sin(angle);
+                start += wedge;
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * computes the edge control points of a circular layout centered at the origin: tree edges first follow the circle
+     * of the source and then run outward, reticulate edges are drawn as curves bent toward the center
+     *
+     * @return packed control points x1,y1,x2,y2 for each edge
+     */
+    public static double[] computeCircularEdgeControlPoints(Network network, double[] locations) {
+        final int m = network.getNumberOfEdges();
+        final double[] controlPoints = new double[4 * m];
+        for (int e = 0; e < m; e++) {
+            final int offset = 4 * e;
+            if (network.isReticulate(e))
+                setCurvedReticulateEdge(network, e, locations, controlPoints);
+            else {
+                final double vx = locations[2 * network.edgeSource[e]];
+                final double vy = locations[2 * network.edgeSource[e] + 1];
+                final double wx = locations[2 * network.edgeTarget[e]];
+                final double wy = locations[2 * network.edgeTarget[e] + 1];
+                final double sourceRadius = Math.sqrt(vx * vx + vy * vy);
+                final double targetRadius = Math.sqrt(wx * wx + wy * wy);
+                // corner point: on the circle of the source, at the angle of the target
+                final double cx = (targetRadius > 0 ? wx * sourceRadius / targetRadius : vx);
+                final double cy = (targetRadius > 0 ? wy * sourceRadius / targetRadius : vy);
+                controlPoints[offset] = cx;
+                controlPoints[offset + 1] = cy;
+                controlPoints[offset + 2] = cx;
+                controlPoints[offset + 3] = cy;
+            }
+        }
+        return controlPoints;
+    }
+
+    /**
+     * computes the edge control points of a radial layout centered at the origin: tree edges are straight,
+     * reticulate edges are drawn as curves bent toward the center
+     *
+     * @return packed control points x1,y1,x2,y2 for each edge
+     */
+    public static double[] computeRadialEdgeControlPoints(Network network, double[] locations) {
+        final int m = network.getNumberOfEdges();
+        final double[] controlPoints = new double[4 * m];
+        for (int e = 0; e < m; e++) {
+            if (network.isReticulate(e))
+                setCurvedReticulateEdge(network, e, locations, controlPoints);
+            else {
+                final double vx = locations[2 * network.edgeSource[e]];
+                final double vy = locations[2 * network.edgeSource[e] + 1];
+                final double wx = locations[2 * network.edgeTarget[e]];
+                final double wy = locations[2 * network.edgeTarget[e] + 1];
+                final int offset = 4 * e;
+                controlPoints[offset] = 0.7 * vx + 0.3 * wx;
+                controlPoints[offset + 1] = 0.7 * vy + 0.3 * wy;
+                controlPoints[offset + 2] = 0.3 * vx + 0.7 * wx;
+                controlPoints[offset + 3] = 0.3 * vy + 0.7 * wy;
+            }
+        }
+        return controlPoints;
+    }
+
+    private static void setCurvedReticulateEdge(Network network, int e, double[] locations, double[] controlPoints) {
+        final double bend = 0.6;
+        final double vx = locations[2 * network.edgeSource[e]];
+        final double vy = locations[2 * network.edgeSource[e] + 1];
+        final double wx = locations[2 * network.edgeTarget[e]];
+        final double wy = locations[2 * network.edgeTarget[e] + 1];
+        final int offset = 4 * e;
+        controlPoints[offset] = bend * (0.7 * vx + 0.3 * wx);
+        controlPoints[offset + 1] = bend * (0.7 * vy + 0.3 * wy);
+        controlPoints[offset + 2] = bend * (0.3 * vx + 0.7 * wx);
+        controlPoints[offset + 3] = bend * (0.3 * vy + 0.7 * wy);
+    }
+
+    /**
+     * translates locations and control points so that the smallest coordinates are LEVEL_SPACING and LEAF_SPACING,
+     * NaN values are ignored
+     */
+    public static void normalize(double[] locations, double[] controlPoints) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        for (int i = 0; i + 1 < locations.length; i += 2) {
+            if (!Double.isNaN(locations[i])) {
+                minX = Math.min(minX, locations[i]);
+                minY = Math.min(minY, locations[i + 1]);
+            }
+        }
+        for (int i = 0; i + 1 < controlPoints.length; i += 2) {
+            if (!Double.isNaN(controlPoints[i])) {
+                minX = Math.min(minX, controlPoints[i]);
+                minY = Math.min(minY, controlPoints[i + 1]);
+            }
+        }
+        if (minX != Double.POSITIVE_INFINITY) {
+            final double dx = LEVEL_SPACING - minX;
+            final double dy = LEAF_SPACING - minY;
+            for (int i = 0; i + 1 < locations.length; i += 2) {
+                locations[i] += dx;
+                locations[i + 1] += dy;
+            }
+            for (int i = 0; i + 1 < controlPoints.length; i += 2) {
+                controlPoints[i] += dx;
+                controlPoints[i + 1] += dy;
+            }
+        }
+    }
+
+    /**
+     * computes the cladogram depth of each node: the root has depth 0 and all leaves have the largest depth
+     *
+     * @return depths in units of LEVEL_SPACING, NaN for nodes not reached from the root
+     */
+    public static double[] computeDepths(Network network) {
+        final int[] levels = computeLevels(network);
+        int maxLevel = 0;
+        for (int level : levels)
+            maxLevel = Math.max(maxLevel, level);
+        final double[] depths = new double[network.numberOfNodes];
+        for (int v = 0; v < depths.length; v++)
+            depths[v] = (levels[v] >= 0 ? maxLevel - levels[v] : Double.NaN);
+        return depths;
+    }
+
+    /**
+     * computes the phylogram depth of each node, that is, its distance from the root using the given edge weights.
+     * A node with more than one parent is placed at the largest distance over its non-transfer in-edges, so that no
+     * edge points backward. Distances are computed in one pass over the nodes in topological order, without recursion.
+     * Negative and missing weights count as 0. The depths are scaled so that the deepest node has the same depth
+     * as in the cladogram
+     *
+     * @param edgeWeights weight of each edge
+     * @param logScale    use log(1+d/u) in place of the distance d, where u is the smallest positive edge weight
+     * @return depths in units of LEVEL_SPACING, NaN for nodes not reached from the root
+     */
+    public static double[] computePhylogramDepths(Network network, double[] edgeWeights, boolean logScale) {
+        final int n = network.numberOfNodes;
+        final double[] depths = new double[n];
+        Arrays.fill(depths, Double.NaN);
+        if (n == 0)
+            return depths;
+
+        // count the in-edges from nodes reachable from the root:
+        final int[] inDegree = new int[n];
+        final boolean[] reached = new boolean[n];
+        final int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = network.root;
+        reached[network.root] = true;
+        while (head < tail) {
+            final int v = queue[head++];
+            for (int i = network.outStart[v]; i < network.outStart[v + 1]; i++) {
+                final int w = network.edgeTarget[network.outEdges[i]];
+                inDegree[w]++;
+                if (!reached[w]) {
+                    reached[w] = true;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        // Kahn's algorithm, a node is settled once all its in-edges have been seen:
+        final double[] distance = new double[n];
+        final double[] treeDistance = new double[n]; // largest distance over non-transfer in-edges, NaN if none
+        Arrays.fill(treeDistance, Double.NaN);
+        double smallestWeight = Double.POSITIVE_INFINITY;
+        head = 0;
+        tail = 0;
+        queue[tail++] = network.root;
+        depths[network.root] = 0;
+        while (head < tail) {
+            final int v = queue[head++];
+            for (int i = network.outStart[v]; i < network.outStart[v + 1]; i++) {
+                final int e = network.outEdges[i];
+                final int w = network.edgeTarget[e];
+                final double weight = (edgeWeights[e] > 0 ? edgeWeights[e] : 0);
+                if (weight > 0)
+                    smallestWeight = Math.min(smallestWeight, weight);
+                final double d = depths[v] + weight;
+                distance[w] = Math.max(distance[w], d);
+                if (network.edgeTransfer == null || !network.edgeTransfer[e])
+                    treeDistance[w] = (Double.isNaN(treeDistance[w]) ? d : Math.max(treeDistance[w], d));
+                if (--inDegree[w] == 0) {
+                    depths[w] = (Double.isNaN(treeDistance[w]) ? distance[w] : treeDistance[w]);
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        if (logScale && smallestWeight < Double.POSITIVE_INFINITY) {
+            for (int v = 0; v < n; v++) {
+                if (!Double.isNaN(depths[v]))
+                    depths[v] = Math.log1p(depths[v] / smallestWeight);
+            }
+        }
+
+        final double maxDepth = max(depths);
+        if (maxDepth > 0) {
+            int maxLevel = 0;
+            for (int level : computeLevels(network))
+                maxLevel = Math.max(maxLevel, level);
+            final double factor = Math.max(1, maxLevel) / maxDepth;
+            for (int v = 0; v < n; v++)
+                depths[v] *= factor;
+        }
+        return depths;
+    }
+
+    /**
+     * @return the largest value, ignoring NaN, or 0, if there is none
+     */
+    private static double max(double[] values) {
+        double max = 0;
+        for (double value : values) {
+            if (value > max)
+                max = value;
+        }
+        return max;
+    }
+
+    /**
+     * compute the levels in the network (max number of edges from node to a leaf), transfer edges don't count.
+     * Uses one depth-first traversal of the out-edges and LSA children with an explicit stack
+     *
+     * @return levels, -1 for nodes not reached from the root
+     */
+    public static int[] computeLevels(Network network) {
+        final int n = network.numberOfNodes;
+        final int[] levels = new int[n];
+        final byte[] state = new byte[n]; // 0: new, 1: on stack, 2: done
+        final int[] mark = new int[n]; // mark[w]==v+1, if w is the target of an out-edge of v
+        Arrays.fill(levels, -1);
+
+        final int[] stack = new int[n];
+        final int[] position = new int[n]; // next out-edge, followed by next LSA child, to visit
+        int top = 0;
+        if (n > 0) {
+            stack[top++] = network.root;
+            state[network.root] = 1;
+            position[network.root] = 0;
+        }
+        while (top > 0) {
+            final int v = stack[top - 1];
+            final int outDegree = network.outDegree(v);
+            final int numberOfLSAChildren = network.lsaStart[v + 1] - network.lsaStart[v];
+            int w = -1;
+            while (w == -1 && position[v] < outDegree + numberOfLSAChildren) {
+                final int p = position[v]++;
+                final int u;
+                if (p < outDegree)
+                    u = network.edgeTarget[network.outEdges[network.outStart[v] + p]];
+                else {
+                    u = network.lsaChildren[network.lsaStart[v] + p - outDegree];
+                    if (mark[u] == v + 1) // also a child in the network, already considered
+                        continue;
+                }
+                if (state[u] == 0)
+                    w = u;
+            }
+            if (w != -1) {
+                state[w] = 1;
+                position[w] = 0;
+                stack[top++] = w;
+            } else {
+                int level = 0;
+                for (int i = network.outStart[v]; i < network.outStart[v + 1]; i++) {
+                    final int e = network.outEdges[i];
+                    final int u = network.edgeTarget[e];
+                    mark[u] = v + 1;
+                    if (state[u] == 2)
+                        level = Math.max(level, levels[u] + (network.edgeTransfer != null && network.edgeTransfer[e] ? 0 : 1));
+                }
+                for (int i = network.lsaStart[v]; i < network.lsaStart[v + 1]; i++) {
+                    final int u = network.lsaChildren[i];
+                    if (mark[u] != v + 1 && state[u] == 2)
+                        level = Math.max(level, levels[u] + 1);
+                }
+                levels[v] = level;
+                state[v] = 2;
+                top--;
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * compute the y-coordinates for the parallel view: leaves of the LSA tree are numbered in order, internal nodes
+     * are placed between their first and last LSA child
+     *
+     * @return y-coordinates in units of leaves, NaN for nodes not below the root in the LSA tree
+     */
+    public static double[] computeYCoordinates(Network network) {
+        final int n = network.numberOfNodes;
+        final double[] y = new double[n];
+        Arrays.fill(y, Double.NaN);
+        if (n == 0)
+            return y;
+
+        final int[] order = computeLSAPreOrder(network);
+        final int count = order.length;
+
+        final int[] leafOrder = new int[count];
+        int numberOfLeaves = 0;
+        for (int i = 0; i < count; i++) {
+            final int v = order[i];
+            if (network.lsaStart[v + 1] == network.lsaStart[v]) {
+                leafOrder[numberOfLeaves] = v;
+                y[v] = ++numberOfLeaves;
+            }
+        }
+        if (network.hasReticulateEdges)
+            fixSpacing(network, leafOrder, numberOfLeaves, y);
+
+        // internal nodes, in reverse pre-order so that children come first:
+        for (int i = count - 1; i >= 0; i--) {
+            final int v = order[i];
+            if (network.lsaStart[v + 1] > network.lsaStart[v]) {
+                final double first = y[network.lsaChildren[network.lsaStart[v]]];
+                final double last = y[network.lsaChildren[network.lsaStart[v + 1] - 1]];
+                y[v] = 0.5 * (first + last);
+            }
+        }
+        return y;
+    }
+
+    /**
+     * computes the LSA of every reticulation, that is, of every node that has more than one parent. The LSA is the
+     * lowest node through which all paths from the root to the reticulation pass, its immediate dominator. The nodes are
+     * visited in reverse post-order of an iterative depth-first traversal, in which order one pass suffices in a DAG
+     *
+     * @return for each node, the index of its LSA, or -1, if the node is not a reticulation or not below the root
+     */
+    public static int[] computeReticulationLSAs(int numberOfNodes, int root, int[] edgeSource, int[] edgeTarget) {
+        final int n = numberOfNodes;
+        final int m = edgeSource.length;
+        final int[] lsa = new int[n];
+        Arrays.fill(lsa, -1);
+        if (n == 0)
+            return lsa;
+
+        // out- and in-edges of each node, by counting sort:
+        final int[] outStart = new int[n + 1];
+        final int[] inStart = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            outStart[edgeSource[e] + 1]++;
+            inStart[edgeTarget[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            outStart[v + 1] += outStart[v];
+            inStart[v + 1] += inStart[v];
+        }
+        final int[] outEdges = new int[m];
+        final int[] inEdges = new int[m];
+        {
+            final int[] nextOut = Arrays.copyOf(outStart, n);
+            final int[] nextIn = Arrays.copyOf(inStart, n);
+            for (int e = 0; e < m; e++) {
+                outEdges[nextOut[edgeSource[e]]++] = e;
+                inEdges[nextIn[edgeTarget[e]]++] = e;
+            }
+        }
+
+        // post-order numbers, -1 for nodes not reached from the root:
+        final int[] postOrder = new int[n];
+        Arrays.fill(postOrder, -1);
+        final int[] order = new int[n]; // nodes by post-order number
+        int count = 0;
+        {
+            final boolean[] seen = new boolean[n];
+            final int[] stack = new int[n];
+            final int[] position = new int[n];
+            int top = 0;
+            stack[top++] = root;
+            seen[root] = true;
+            while (top > 0) {
+                final int v = stack[top - 1];
+                if (position[v] < outStart[v + 1] - outStart[v]) {
+                    final int w = edgeTarget[outEdges[outStart[v] + position[v]++]];
+                    if (!seen[w]) {
+                        seen[w] = true;
+                        stack[top++] = w;
+                    }
+                } else {
+                    postOrder[v] = count;
+                    order[count++] = v;
+                    top--;
+                }
+            }
+        }
+
+        // immediate dominators, in reverse post-order, so that all parents of a node come before it:
+        final int[] dominator = new int[n];
+        Arrays.fill(dominator, -1); // -1 until computed, parents that come later would only exist in a cycle, these are ignored
+        dominator[root] = root;
+        for (int i = count - 2; i >= 0; i--) {
+            final int v = order[i];
+            int d = -1;
+            for (int j = inStart[v]; j < inStart[v + 1]; j++) {
+                int p = edgeSource[inEdges[j]];
+                if (dominator[p] == -1)
+                    continue;
+                if (d == -1)
+                    d = p;
+                else {
+                    while (d != p) {
+                        while (postOrder[d] < postOrder[p])
+                            d = dominator[d];
+                        while (postOrder[p] < postOrder[d])
+                            p = dominator[p];
+                    }
+                }
+            }
+            dominator[v] = d;
+            if (inStart[v + 1] - inStart[v] > 1)
+                lsa[v] = d;
+        }
+        return lsa;
+    }
+
+    /**
+     * @return the nodes of the LSA tree in pre-order, starting at the root
+     */
+    private static int[] computeLSAPreOrder(Network network) {
+        final int n = network.numberOfNodes;
+        final int[] order = new int[n];
+        int count = 0;
+        final int[] stack = new int[n];
+        final boolean[] seen = new boolean[n]; // guards against malformed LSA trees
+        int top = 0;
+        stack[top++] = network.root;
+        seen[network.root] = true;
+        while (top > 0) {
+            final int v = stack[--top];
+            order[count++] = v;
+            for (int i = network.lsaStart[v + 1] - 1; i >= network.lsaStart[v]; i--) {
+                final int w = network.lsaChildren[i];
+                if (!seen[w]) {
+                    seen[w] = true;
+                    stack[top++] = w;
+                }
+            }
+        }
+        return (count == n ? order : Arrays.copyOf(order, count));
+    }
+
+    /**
+     * fix spacing so that space between any two true leaves is 1, LSA leaves that have children in the network
+     * get fractional positions in between
+     */
+    private static void fixSpacing(Network network, int[] leafOrder, int numberOfLeaves, double[] y) {
+        double leafPos = 0;
+        for (int lastLeaf = -1; lastLeaf < numberOfLeaves; ) {
+            int nextLeaf = lastLeaf + 1;
+            while (nextLeaf < numberOfLeaves && network.outDegree(leafOrder[nextLeaf]) > 0)
+                nextLeaf++;
+            // assign fractional positions to intermediate nodes
+            final int count = (nextLeaf - lastLeaf) - 1;
+            if (count > 0) {
+                final double add = 1.0 / (count + 1);
+                double value = leafPos;
+                for (int i = lastLeaf + 1; i < nextLeaf; i++) {
+                    value += add;
+                    y[leafOrder[i]] = value;
+                }
+            }
+            // assign whole positions to actual leaves:
+            if (nextLeaf < numberOfLeaves) {
+                y[leafOrder[nextLeaf]] = ++leafPos;
+            }
+            lastLeaf = nextLeaf;
+        }
+    }
+}
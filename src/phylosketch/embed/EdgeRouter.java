@@ -0,0 +1,174 @@
+/*
+ * EdgeRouter.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.embed;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * computes cubic edge shapes that avoid nodes and labels
+ * For each edge, a list of candidate shapes is tried: the rectangular or straight shape that Reshape would use,
+ * the other rectangular shape, the straight line and curves bent increasingly far to either side. Each candidate is
+ * approximated by line segments that are tested against a BoxGrid of all node and label bounds, and the first
+ * candidate that crosses nothing, or else the one that crosses the fewest boxes, is used.
+ * Edges are routed independently of each other, so they are processed in parallel
+ * Daniel Huson, 10.2026
+ */
+public class EdgeRouter {
+    private static final int SEGMENTS = 16;
+    private static final double[] BENDS = {0.25, -0.25, 0.5, -0.5, 0.8, -0.8};
+
+    /**
+     * routes the given edges
+     *
+     * @param nodeLocations packed centers x,y of all nodes
+     * @param boxes         packed obstacles x,y,width,height, such as nodes and labels
+     * @param boxOwners     the node that each obstacle belongs to, obstacles of the source or target of an edge are ignored
+     *                      for that edge, -1 for none
+     * @param edgeSource    source node of each edge to be routed
+     * @param edgeTarget    target node of each edge to be routed
+     * @param horizontal    does the network grow horizontally? Determines the preferred rectangular shape
+     * @return packed control points x1,y1,x2,y2 for each edge
+     */
+    public static double[] apply(double[] nodeLocations, double[] boxes, int[] boxOwners, int[] edgeSource, int[] edgeTarget, boolean horizontal) {
+        final int numberOfBoxes = boxOwners.length;
+        final int numberOfEdges = edgeSource.length;
+
+        double sum = 0;
+        for (int i = 0; i < numberOfBoxes; i++)
+            sum += boxes[4 * i + 2] + boxes[4 * i + 3];
+        final double cellSize = Math.max(5, (numberOfBoxes > 0 ? sum / (2 * numberOfBoxes) : 10));
+
+        final BoxGrid grid = new BoxGrid(cellSize, numberOfBoxes);
+        for (int i = 0; i < numberOfBoxes; i++) {
+            final int offset = 4 * i;
+            grid.add(boxes[offset], boxes[offset + 1], boxes[offset] + boxes[offset + 2], boxes[offset + 1] + boxes[offset + 3], boxOwners[i]);
+        }
+
+        final double[] controlPoints = new double[4 * numberOfEdges];
+        final int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), numberOfEdges / 1000));
+        if (threads == 1) {
+            route(grid, nodeLocations, edgeSource, edgeTarget, horizontal, 0, numberOfEdges, controlPoints);
+            return controlPoints;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int from = (int) ((long) numberOfEdges * t / threads);
+                final int to = (int) ((long) numberOfEdges * (t + 1) / threads);
+                futures.add(executor.submit(() -> route(grid, nodeLocations, edgeSource, edgeTarget, horizontal, from, to, controlPoints)));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        return controlPoints;
+    }
+
+    /**
+     * routes edges from..to-1, writing disjoint parts of the control points
+     */
+    private static void route(BoxGrid grid, double[] nodeLocations, int[] edgeSource, int[] edgeTarget, boolean horizontal, int from, int to, double[] controlPoints) {
+        final double[] candidate = new double[4];
+        final double[] best = new double[4];
+
+        for (int e = from; e < to; e++) {
+            final int s = edgeSource[e];
+            final int t = edgeTarget[e];
+            final double ax = nodeLocations[2 * s];
+            final double ay = nodeLocations[2 * s + 1];
+            final double bx = nodeLocations[2 * t];
+            final double by = nodeLocations[2 * t + 1];
+            final double dx = bx - ax;
+            final double dy = by - ay;
+            final double length = Math.sqrt(dx * dx + dy * dy);
+            final boolean straight = (Math.abs(dx) < 5 || Math.abs(dy) < 5 || length < 25);
+
+            int bestCrossings = Integer.MAX_VALUE;
+            final int numberOfCandidates = (straight ? 1 : 3) + BENDS.length;
+            for (int c = 0; c < numberOfCandidates && bestCrossings > 0; c++) {
+                // straight edges: straight first, then bends. Others: preferred elbow, other elbow, straight, then bends
+                final int kind = (straight ? (c == 0 ? 2 : c + 2) : c);
+                switch (kind) {
+                    case 0, 1 -> {
+                        final boolean downRight = (horizontal == (kind == 0));
+                        final double cx = (downRight ? ax : bx);
+                        final double cy = (downRight ? by : ay);
+                        candidate[0] = cx;
+                        candidate[1] = cy;
+                        candidate[2] = cx;
+                        candidate[3] = cy;
+                    }
+                    case 2 -> {
+                        candidate[0] = 0.7 * ax + 0.3 * bx;
+                        candidate[1] = 0.7 * ay + 0.3 * by;
+                        candidate[2] = 0.3 * ax + 0.7 * bx;
+                        candidate[3] = 0.3 * ay + 0.7 * by;
+                    }
+                    default -> {
+                        // control points pushed sideways, perpendicular to the line from source to target:
+                        final double bend = BENDS[kind - 3];
+                        final double nx = -dy * bend;
+                        final double ny = dx * bend;
+                        candidate[0] = ax + dx / 3 + nx;
+                        candidate[1] = ay + dy / 3 + ny;
+                        candidate[2] = ax + 2 * dx / 3 + nx;
+                        candidate[3] = ay + 2 * dy / 3 + ny;
+                    }
+                }
+                final int crossings = countCrossings(grid, ax, ay, candidate, bx, by, s, t, bestCrossings);
+                if (crossings < bestCrossings) {
+                    bestCrossings = crossings;
+                    System.arraycopy(candidate, 0, best, 0, 4);
+                }
+            }
+            System.arraycopy(best, 0, controlPoints, 4 * e, 4);
+        }
+    }
+
+    /**
+     * @return the number of boxes crossed by the cubic curve, approximated by SEGMENTS line segments. A box that
+     * is crossed by several segments is counted for each of them. Counting stops once the given bound is reached
+     */
+    private static int countCrossings(BoxGrid grid, double ax, double ay, double[] control, double bx, double by, int source, int target, int bound) {
+        int count = 0;
+        double px = ax;
+        double py = ay;
+        for (int i = 1; i <= SEGMENTS && count < bound; i++) {
+            final double t = (double) i / SEGMENTS;
+            final double u = 1 - t;
+            final double b0 = u * u * u, b1 = 3 * u * u * t, b2 = 3 * u * t * t, b3 = t * t * t;
+            final double x = b0 * ax + b1 * control[0] + b2 * control[2] + b3 * bx;
+            final double y = b0 * ay + b1 * control[1] + b2 * control[3] + b3 * by;
+            count += grid.countCrossedBoxes(px, py, x, y, source, target);
+            px = x;
+            py = y;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * ForceDirectedLayout.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.embed;
+
+import java.util.Arrays;
+
+/**
+ * force-directed relayout of some nodes of a drawing, while all other nodes stay pinned
+ * Uses Fruchterman-Reingold forces: edges attract their end points and all nodes repel each other, with repulsion
+ * approximated Barnes-Hut style using quadtrees, one over the pinned nodes, built once, and one over the free
+ * nodes, rebuilt in every step. Works on primitive arrays only
+ * Daniel Huson, 10.2026
+ */
+public class ForceDirectedLayout {
+    private final int numberOfNodes;
+    private final double[] locations;
+    private final boolean[] free;
+    private final int[] freeNodes;
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final double edgeLength;
+    private final double theta;
+
+    private final QuadTree pinnedTree;
+    private final double centerX;
+    private final double centerY;
+
+    private final double[] displacement;
+
+    /**
+     * constructor
+     *
+     * @param locations  packed node locations, the locations of free nodes are updated in place
+     * @param free       which nodes may move
+     * @param edgeSource source of each edge
+     * @param edgeTarget target of each edge
+     * @param edgeLength ideal edge length
+     */
+    public ForceDirectedLayout(double[] locations, boolean[] free, int[] edgeSource, int[] edgeTarget, double edgeLength) {
+        this.numberOfNodes = free.length;
+        this.locations = locations;
+        this.free = free;
+        this.edgeSource = edgeSource;
+        this.edgeTarget = edgeTarget;
+        this.edgeLength = edgeLength;
+        this.theta = 1.0;
+
+        int count = 0;
+        for (boolean f : free) {
+            if (f)
+                count++;
+        }
+        freeNodes = new int[count];
+        final int[] pinnedNodes = new int[numberOfNodes - count];
+        int f = 0;
+        int p = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int v = 0; v < numberOfNodes; v++) {
+            if (free[v]) {
+                freeNodes[f++] = v;
+                sumX += locations[2 * v];
+                sumY += locations[2 * v + 1];
+            } else
+                pinnedNodes[p++] = v;
+        }
+        centerX = (count > 0 ? sumX / count : 0);
+        centerY = (count > 0 ? sumY / count : 0);
+
+        pinnedTree = new QuadTree(locations, pinnedNodes);
+        displacement = new double[2 * numberOfNodes];
+    }
+
+    /**
+     * @return the nodes that may move
+     */
+    public int[] getFreeNodes() {
+        return freeNodes;
+    }
+
+    /**
+     * performs one step of the simulation
+     *
+     * @param temperature maximum distance that a node may move in this step
+     * @return the largest distance moved by a node
+     */
+    public double step(double temperature) {
+        final double k2 = edgeLength * edgeLength;
+        final QuadTree freeTree = new QuadTree(locations, freeNodes);
+
+        final double[] force = new double[2];
+        for (int v : freeNodes) {
+            force[0] = 0;
+            force[1] = 0;
+            pinnedTree.addRepulsion(locations[2 * v], locations[2 * v + 1], v, theta, k2, force);
+            freeTree.addRepulsion(locations[2 * v], locations[2 * v + 1], v, theta, k2, force);
+            // weak gravity, keeps separate groups of free nodes from drifting away:
+            force[0] += 0.01 * (centerX - locations[2 * v]);
+            force[1] += 0.01 * (centerY - locations[2 * v + 1]);
+            displacement[2 * v] = force[0];
+            displacement[2 * v + 1] = force[1];
+        }
+
+        for (int e = 0; e < edgeSource.length; e++) {
+            final int v = edgeSource[e];
+            final int w = edgeTarget[e];
+            if (free[v] || free[w]) {
+                final double dx = locations[2 * w] - locations[2 * v];
+                final double dy = locations[2 * w + 1] - locations[2 * v + 1];
+                final double distance = Math.max(0.01, Math.sqrt(dx * dx + dy * dy));
+                final double attraction = distance / edgeLength; // = distance^2/k, divided by distance for the unit vector
+                if (free[v]) {
+                    displacement[2 * v] += attraction * dx;
+                    displacement[2 * v + 1] += attraction * dy;
+                }
+                if (free[w]) {
+                    displacement[2 * w] -= attraction * dx;
+                    displacement[2 * w + 1] -= attraction * dy;
+                }
+            }
+        }
+
+        double maxMove = 0;
+        for (int v : freeNodes) {
+            final double dx = displacement[2 * v];
+            final double dy = displacement[2 * v + 1];
+            final double length = Math.sqrt(dx * dx + dy * dy);
+            if (length > 0) {
+                final double move = Math.min(length, temperature);
+                locations[2 * v] += dx / length * move;
+                locations[2 * v + 1] += dy / length * move;
+                maxMove = Math.max(maxMove, move);
+            }
+        }
+        return maxMove;
+    }
+
+    /**
+     * runs the simulation with linear cooling
+     *
+     * @param iterations maximum number of steps
+     * @param listener   called after each step with the step number, returns false to stop, may be null
+     */
+    public void run(int iterations, StepListener listener) {
+        final double startTemperature = 2 * edgeLength;
+        for (int i = 0; i < iterations; i++) {
+            final double temperature = startTemperature * (1.0 - (double) i / iterations);
+            final double moved = step(temperature);
+            if ((listener != null && !listener.stepDone(i)) || moved < 0.01)
+                break;
+        }
+    }
+
+    public interface StepListener {
+        /**
+         * @return false, to stop the simulation
+         */
+        boolean stepDone(int step);
+    }
+
+    /**
+     * a point-region quadtree in arrays, each cell keeps the number of points and the sum of their coordinates
+     */
+    private static class QuadTree {
+        private static final int EMPTY = -1;
+        private static final int INTERNAL = -2;
+        private static final int MAX_DEPTH = 40; // deeper cells keep all points, for coincident locations
+
+        private final double[] locations;
+        private final int[] stack = new int[3 * MAX_DEPTH + 8];
+        private double[] cellX; // lower left corner
+        private double[] cellY;
+        private double[] cellSize;
+        private double[] mass;
+        private double[] sumX;
+        private double[] sumY;
+        private int[] point; // EMPTY, INTERNAL or the single point of a leaf
+        private int[] firstChild; // children are firstChild..firstChild+3, or -1
+        private int numberOfCells = 0;
+
+        QuadTree(double[] locations, int[] points) {
+            this.locations = locations;
+            final int capacity = Math.max(16, 4 * points.length + 1);
+            cellX = new double[capacity];
+            cellY = new double[capacity];
+            cellSize = new double[capacity];
+            mass = new double[capacity];
+            sumX = new double[capacity];
+            sumY = new double[capacity];
+            point = new int[capacity];
+            firstChild = new int[capacity];
+
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int p : points) {
+                minX = Math.min(minX, locations[2 * p]);
+                minY = Math.min(minY, locations[2 * p + 1]);
+                maxX = Math.max(maxX, locations[2 * p]);
+                maxY = Math.max(maxY, locations[2 * p + 1]);
+            }
+            if (points.length == 0) {
+                minX = minY = 0;
+                maxX = maxY = 1;
+            }
+            newCell(minX, minY, Math.max(1, Math.max(maxX - minX, maxY - minY)) * 1.0001);
+            for (int p : points)
+                insert(p);
+        }
+
+        private int newCell(double x, double y, double size) {
+            if (numberOfCells == point.length) {
+                final int capacity = 2 * point.length;
+                cellX = Arrays.copyOf(cellX, capacity);
+                cellY = Arrays.copyOf(cellY, capacity);
+                cellSize = Arrays.copyOf(cellSize, capacity);
+                mass = Arrays.copyOf(mass, capacity);
+                sumX = Arrays.copyOf(sumX, capacity);
+                sumY = Arrays.copyOf(sumY, capacity);
+                point = Arrays.copyOf(point, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+            }
+            final int c = numberOfCells++;
+            cellX[c] = x;
+            cellY[c] = y;
+            cellSize[c] = size;
+            mass[c] = 0;
+            sumX[c] = 0;
+            sumY[c] = 0;
+            point[c] = EMPTY;
+            firstChild[c] = -1;
+            return c;
+        }
+
+        private void split(int c) {
+            final double half = 0.5 * cellSize[c];
+            final int first = newCell(cellX[c], cellY[c], half);
+            newCell(cellX[c] + half, cellY[c], half);
+            newCell(cellX[c], cellY[c] + half, half);
+            newCell(cellX[c] + half, cellY[c] + half, half);
+            firstChild[c] = first;
+        }
+
+        private int childFor(int c, double x, double y) {
+            final double half = 0.5 * cellSize[c];
+            return firstChild[c] + (x >= cellX[c] + half ? 1 : 0) + (y >= cellY[c] + half ? 2 : 0);
+        }
+
+        private void insert(int p) {
+            final double x = locations[2 * p];
+            final double y = locations[2 * p + 1];
+            int c = 0;
+            for (int depth = 0; ; depth++) {
+                if (point[c] == EMPTY) {
+                    point[c] = p;
+                    mass[c] = 1;
+                    sumX[c] = x;
+                    sumY[c] = y;
+                    return;
+                }
+                mass[c] += 1;
+                sumX[c] += x;
+                sumY[c] += y;
+                if (point[c] >= 0) { // leaf holding a point
+                    if (depth >= MAX_DEPTH)
+                        return;
+                    final int q = point[c];
+                    point[c] = INTERNAL;
+                    split(c);
+                    final int d = childFor(c, locations[2 * q], locations[2 * q + 1]);
+                    point[d] = q;
+                    mass[d] = mass[c] - 1;
+                    sumX[d] = sumX[c] - x;
+                    sumY[d] = sumY[c] - y;
+                }
+                c = childFor(c, x, y);
+            }
+        }
+
+        /**
+         * adds the repulsive force exerted on the given location by all points in the tree, except the given one
+         */
+        void addRepulsion(double x, double y, int self, double theta, double k2, double[] force) {
+            if (mass[0] == 0)
+                return;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                final int c = stack[--top];
+                double m = mass[c];
+                if (m == 0)
+                    continue;
+                double cx = sumX[c];
+                double cy = sumY[c];
+                if (point[c] == self) { // don't repel from itself
+                    m -= 1;
+                    if (m <= 0)
+                        continue;
+                    cx -= x;
+                    cy -= y;
+                }
+                cx /= m;
+                cy /= m;
+                double dx = x - cx;
+                double dy = y - cy;
+                double distance2 = dx * dx + dy * dy;
+                if (point[c] == INTERNAL && cellSize[c] * cellSize[c] >= theta * theta * distance2) {
+                    for (int i = 0; i < 4; i++)
+                        stack[top++] = firstChild[c] + i;
+                } else {
+                    if (distance2 < 1e-6) { // coincident, push in a fixed direction
+                        dx = 0.01 * (1 + (self % 7));
+                        dy = 0.01 * (1 + (self % 5));
+                        distance2 = dx * dx + dy * dy;
+                    }
+                    // magnitude k^2/d, divided by d for the unit vector:
+                    final double factor = m * k2 / distance2;
+                    force[0] += factor * dx;
+                    force[1] += factor * dy;
+                }
+            }
+        }
+    }
+}
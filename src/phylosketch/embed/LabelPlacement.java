@@ -0,0 +1,167 @@
+/*
+ * LabelPlacement.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.embed;
+
+/**
+ * places node labels so that they don't overlap each other or any nodes
+ * Labels are placed greedily, one after the other. For each label, a fixed list of candidate positions around its node
+ * is tried, starting with the preferred one, and the first position that is free is used. If none is free, the same
+ * positions are tried for smaller versions of the label, and if that fails too, the position of least overlap is used.
+ * Placed labels and nodes are kept in a BoxGrid, so each test only looks at nearby boxes and the runtime is
+ * close to linear in the number of labels
+ * Daniel Huson, 10.2026
+ */
+public class LabelPlacement {
+    public enum Side {Right, Left, Above, Below, AboveRight, BelowRight, AboveLeft, BelowLeft}
+
+    public static final double GAP = 5;
+
+    /**
+     * computes the label positions
+     *
+     * @param nodeLocations packed centers x,y of all nodes, all are treated as obstacles
+     * @param nodeSizes     packed widths and heights of all nodes
+     * @param labelNodes    node index of each label to be placed, labels are placed in this order
+     * @param labelSizes    packed widths and heights of the labels, as displayed
+     * @param obstacles     packed boxes x,y,width,height that labels must also avoid, such as labels that are not moved
+     * @param preferred     the side to try first
+     * @param scales        decreasing label scales to try, the first usually being 1
+     * @return packed x,y,scale for each label: the top-left corner of the label box, relative to the center of its node,
+     * and the factor by which the label should be scaled
+     */
+    public static double[] apply(double[] nodeLocations, double[] nodeSizes, int[] labelNodes, double[] labelSizes, double[] obstacles, Side preferred, double[] scales) {
+        final int numberOfNodes = nodeLocations.length / 2;
+        final int numberOfLabels = labelNodes.length;
+        final int numberOfObstacles = obstacles.length / 4;
+
+        // grid cells are about as large as a typical label:
+        double sum = 0;
+        for (double value : labelSizes)
+            sum += value;
+        final double cellSize = Math.max(1, (numberOfLabels > 0 ? sum / labelSizes.length : 10));
+
+        final BoxGrid grid = new BoxGrid(cellSize, numberOfNodes + numberOfObstacles + numberOfLabels);
+        for (int v = 0; v < numberOfNodes; v++) {
+            final double halfWidth = 0.5 * nodeSizes[2 * v];
+            final double halfHeight = 0.5 * nodeSizes[2 * v + 1];
+            grid.add(nodeLocations[2 * v] - halfWidth, nodeLocations[2 * v + 1] - halfHeight, nodeLocations[2 * v] + halfWidth, nodeLocations[2 * v + 1] + halfHeight, v);
+        }
+        for (int i = 0; i < numberOfObstacles; i++) {
+            final int offset = 4 * i;
+            grid.add(obstacles[offset], obstacles[offset + 1], obstacles[offset] + obstacles[offset + 2], obstacles[offset + 1] + obstacles[offset + 3], -1);
+        }
+
+        final Side[] candidates = candidateOrder(preferred);
+        final double[] result = new double[3 * numberOfLabels];
+        final double[] box = new double[2];
+
+        for (int i = 0; i < numberOfLabels; i++) {
+            final int v = labelNodes[i];
+            final double x = nodeLocations[2 * v];
+            final double y = nodeLocations[2 * v + 1];
+            final double halfWidth = 0.5 * nodeSizes[2 * v];
+            final double halfHeight = 0.5 * nodeSizes[2 * v + 1];
+
+            double bestOverlap = Double.POSITIVE_INFINITY;
+            double bestX = 0;
+            double bestY = 0;
+            double bestScale = 1;
+            search:
+            for (double scale : scales) {
+                final double width = scale * labelSizes[2 * i];
+                final double height = scale * labelSizes[2 * i + 1];
+                for (Side side : candidates) {
+                    computeBox(side, halfWidth, halfHeight, width, height, box);
+                    final double overlap = grid.computeOverlap(x + box[0], y + box[1], x + box[0] + width, y + box[1] + height);
+                    if (overlap < bestOverlap) {
+                        bestOverlap = overlap;
+                        bestX = box[0];
+                        bestY = box[1];
+                        bestScale = scale;
+                        if (overlap == 0)
+                            break search;
+                    }
+                }
+            }
+            result[3 * i] = bestX;
+            result[3 * i + 1] = bestY;
+            result[3 * i + 2] = bestScale;
+            grid.add(x + bestX, y + bestY, x + bestX + bestScale * labelSizes[2 * i], y + bestY + bestScale * labelSizes[2 * i + 1], v);
+        }
+        return result;
+    }
+
+    /**
+     * computes the top-left corner of a label box placed at the given side of a node centered at the origin
+     */
+    private static void computeBox(Side side, double halfWidth, double halfHeight, double width, double height, double[] box) {
+        switch (side) {
+            case Right -> {
+                box[0] = halfWidth + GAP;
+                box[1] = -0.5 * height;
+            }
+            case Left -> {
+                box[0] = -(halfWidth + GAP + width);
+                box[1] = -0.5 * height;
+            }
+            case Above -> {
+                box[0] = -0.5 * width;
+                box[1] = -(halfHeight + GAP + height);
+            }
+            case Below -> {
+                box[0] = -0.5 * width;
+                box[1] = halfHeight + GAP;
+            }
+            case AboveRight -> {
+                box[0] = halfWidth;
+                box[1] = -(halfHeight + height);
+            }
+            case BelowRight -> {
+                box[0] = halfWidth;
+                box[1] = halfHeight;
+            }
+            case AboveLeft -> {
+                box[0] = -(halfWidth + width);
+                box[1] = -(halfHeight + height);
+            }
+            case BelowLeft -> {
+                box[0] = -(halfWidth + width);
+                box[1] = halfHeight;
+            }
+        }
+    }
+
+    /**
+     * @return the order in which sides are tried: the preferred side, the adjacent corners, the two perpendicular sides
+     * and finally the opposite side and its corners
+     */
+    private static Side[] candidateOrder(Side preferred) {
+        return switch (preferred) {
+            case Left, AboveLeft, BelowLeft ->
+                    new Side[]{preferred, Side.Left, Side.AboveLeft, Side.BelowLeft, Side.Above, Side.Below, Side.Right, Side.AboveRight, Side.BelowRight};
+            case Above ->
+                    new Side[]{Side.Above, Side.AboveRight, Side.AboveLeft, Side.Right, Side.Left, Side.Below, Side.BelowRight, Side.BelowLeft};
+            case Below ->
+                    new Side[]{Side.Below, Side.BelowRight, Side.BelowLeft, Side.Right, Side.Left, Side.Above, Side.AboveRight, Side.AboveLeft};
+            default ->
+                    new Side[]{preferred, Side.Right, Side.AboveRight, Side.BelowRight, Side.Above, Side.Below, Side.Left, Side.AboveLeft, Side.BelowLeft};
+        };
+    }
+}
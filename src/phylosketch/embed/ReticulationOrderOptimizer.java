@@ -0,0 +1,429 @@
+/*
+ * ReticulationOrderOptimizer.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.embed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * permutes the children of the LSA tree so as to minimize the total vertical span of all reticulate edges
+ * Runs a multi-start local search of adjacent child swaps, one search per thread (by default, per core), within a given time budget.
+ * The cost of a swap is evaluated incrementally: only the two swapped subtrees and the ancestors whose
+ * position depends on them are updated. For this, leaves are numbered consecutively, whereas the layout gives LSA leaves
+ * that have children in the network fractional positions, so each search result is scored by the positions that
+ * CladogramLayout computes for it
+ * Daniel Huson, 10.2026
+ */
+public class ReticulationOrderOptimizer {
+    /**
+     * computes an improved order of LSA children
+     *
+     * @param millis time budget
+     * @param seed   random seed for the restarts
+     * @return the LSA children in the new order, to be used with the network's LSA start indices
+     */
+    public static int[] apply(CladogramLayout.Network network, long millis, long seed) {
+        return apply(network, millis, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * computes an improved order of LSA children
+     *
+     * @param millis  time budget
+     * @param seed    random seed for the restarts
+     * @param threads number of searches run in parallel, a single search runs in the calling thread
+     * @return the LSA children in the new order, to be used with the network's LSA start indices
+     */
+    public static int[] apply(CladogramLayout.Network network, long millis, long seed, int threads) {
+        final long deadline = System.currentTimeMillis() + millis;
+        threads = Math.max(1, threads);
+
+        final State initial = new State(network, network.getLSAChildren().clone());
+        initial.score();
+        if (initial.score == 0 || initial.candidates.length == 0)
+            return initial.children;
+
+        if (threads == 1) {
+            final State best = search(network, new Random(seed), false, deadline);
+            return (best.score < initial.score ? best : initial).children;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ArrayList<Future<State>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final Random random = new Random(seed + t);
+                final boolean shuffleFirst = (t > 0); // the first thread starts from the given order
+                futures.add(executor.submit(() -> search(network, random, shuffleFirst, deadline)));
+            }
+            State best = initial;
+            for (Future<State> future : futures) {
+                final State state = future.get();
+                if (state.score < best.score)
+                    best = state;
+            }
+            return best.children;
+        } catch (InterruptedException | ExecutionException ex) {
+            return initial.children;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * runs local searches from random restarts until the deadline
+     *
+     * @param shuffleFirst if false, the first search starts from the given order
+     * @return the state that has the lowest cost in the layout
+     */
+    private static State search(CladogramLayout.Network network, Random random, boolean shuffleFirst, long deadline) {
+        State best = null;
+        boolean shuffle = shuffleFirst;
+        do {
+            final State state = new State(network, network.getLSAChildren().clone());
+            if (shuffle)
+                state.shuffle(random);
+            shuffle = true;
+            state.localSearch(random, deadline);
+            state.score();
+            if (best == null || state.score < best.score)
+                best = state;
+        }
+        while (System.currentTimeMillis() < deadline && best.score > 0);
+        return best;
+    }
+
+    /**
+     * @return the total vertical span of all reticulate edges, in units of leaves, for the given order of LSA children,
+     * using the y-coordinates of the layout
+     */
+    public static double computeCost(CladogramLayout.Network network, int[] lsaChildren) {
+        final double[] y = CladogramLayout.computeYCoordinates(network.withLSAChildren(lsaChildren));
+        double cost = 0;
+        for (int e = 0; e < network.getNumberOfEdges(); e++) {
+            if (network.isReticulate(e)) {
+                final double span = Math.abs(y[network.getSource(e)] - y[network.getTarget(e)]);
+                if (!Double.isNaN(span))
+                    cost += span;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * the state of one search: an order of children, the resulting positions and the cost
+     */
+    private static class State {
+        private final CladogramLayout.Network network;
+        private final int[] start;
+        private final int[] children;
+        private final int[] parent; // parent in the LSA tree, -1 for root
+        private final int[] indexInParent; // index of node in children array
+        private final int[] leaves;
+        private final double[] y;
+        private final int[] retStart; // reticulate edges incident to a node
+        private final int[] retEdges;
+        private final int[] candidates; // nodes with at least two children, below which there are reticulate edges
+        private final int[] edgeStamp;
+        private int stamp = 0;
+        private double cost; // cost for the consecutive numbering of leaves, used to evaluate swaps
+        private double score; // cost in the layout, used to compare search results
+
+        State(CladogramLayout.Network network, int[] children) {
+            this.network = network;
+            this.start = network.getLSAStart();
+            this.children = children;
+            final int n = network.getNumberOfNodes();
+            final int m = network.getNumberOfEdges();
+
+            parent = new int[n];
+            Arrays.fill(parent, -1);
+            indexInParent = new int[n];
+            for (int v = 0; v < n; v++) {
+                for (int k = start[v]; k < start[v + 1]; k++) {
+                    parent[children[k]] = v;
+                    indexInParent[children[k]] = k;
+                }
+            }
+
+            retStart = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                if (network.isReticulate(e)) {
+                    retStart[network.getSource(e) + 1]++;
+                    retStart[network.getTarget(e) + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++)
+                retStart[v + 1] += retStart[v];
+            retEdges = new int[retStart[n]];
+            final int[] next = Arrays.copyOf(retStart, n);
+            for (int e = 0; e < m; e++) {
+                if (network.isReticulate(e)) {
+                    retEdges[next[network.getSource(e)]++] = e;
+                    retEdges[next[network.getTarget(e)]++] = e;
+                }
+            }
+            edgeStamp = new int[m];
+
+            // post-order via reverse pre-order:
+            final int[] order = preOrder();
+            leaves = new int[n];
+            final boolean[] relevant = new boolean[n];
+            int numberOfCandidates = 0;
+            for (int i = order.length - 1; i >= 0; i--) {
+                final int v = order[i];
+                relevant[v] = (retStart[v + 1] > retStart[v]);
+                if (start[v + 1] == start[v])
+                    leaves[v] = 1;
+                for (int k = start[v]; k < start[v + 1]; k++) {
+                    leaves[v] += leaves[children[k]];
+                    relevant[v] |= relevant[children[k]];
+                }
+                if (relevant[v] && start[v + 1] - start[v] >= 2)
+                    numberOfCandidates++;
+            }
+            candidates = new int[numberOfCandidates];
+            for (int v : order) {
+                if (relevant[v] && start[v + 1] - start[v] >= 2)
+                    candidates[--numberOfCandidates] = v;
+            }
+
+            y = new double[n];
+            computeY(order);
+            cost = 0;
+            for (int e = 0; e < m; e++) {
+                if (network.isReticulate(e))
+                    cost += span(e);
+            }
+        }
+
+        private int[] preOrder() {
+            final int n = network.getNumberOfNodes();
+            final int[] order = new int[n];
+            final int[] stack = new int[n];
+            final boolean[] seen = new boolean[n];
+            int count = 0;
+            int top = 0;
+            stack[top++] = network.getRoot();
+            seen[network.getRoot()] = true;
+            while (top > 0) {
+                final int v = stack[--top];
+                order[count++] = v;
+                for (int k = start[v + 1] - 1; k >= start[v]; k--) {
+                    if (!seen[children[k]]) {
+                        seen[children[k]] = true;
+                        stack[top++] = children[k];
+                    }
+                }
+            }
+            return (count == n ? order : Arrays.copyOf(order, count));
+        }
+
+        /**
+         * set the score to the cost of the current order in the layout
+         */
+        void score() {
+            score = computeCost(network, children);
+        }
+
+        /**
+         * positions: leaves are numbered consecutively in order, internal nodes lie between their first and last child
+         */
+        private void computeY(int[] order) {
+            int leafNumber = 0;
+            for (int v : order) {
+                if (start[v + 1] == start[v])
+                    y[v] = ++leafNumber;
+            }
+            for (int i = order.length - 1; i >= 0; i--) {
+                final int v = order[i];
+                if (start[v + 1] > start[v])
+                    y[v] = 0.5 * (y[children[start[v]]] + y[children[start[v + 1] - 1]]);
+            }
+        }
+
+        private double span(int e) {
+            return Math.abs(y[network.getSource(e)] - y[network.getTarget(e)]);
+        }
+
+        /**
+         * randomly permute all children lists, then recompute positions and cost
+         */
+        void shuffle(Random random) {
+            for (int v : candidates) {
+                for (int k = start[v + 1] - 1; k > start[v]; k--) {
+                    final int j = start[v] + random.nextInt(k - start[v] + 1);
+                    final int tmp = children[k];
+                    children[k] = children[j];
+                    children[j] = tmp;
+                    indexInParent[children[k]] = k;
+                    indexInParent[children[j]] = j;
+                }
+            }
+            computeY(preOrder());
+            cost = 0;
+            for (int e = 0; e < network.getNumberOfEdges(); e++) {
+                if (network.isReticulate(e))
+                    cost += span(e);
+            }
+        }
+
+        /**
+         * repeatedly apply improving swaps of adjacent children until there are none or the deadline is reached
+         */
+        void localSearch(Random random, long deadline) {
+            boolean improved = true;
+            int steps = 0;
+            while (improved) {
+                improved = false;
+                final int offset = random.nextInt(candidates.length);
+                for (int c = 0; c < candidates.length; c++) {
+                    final int v = candidates[(c + offset) % candidates.length];
+                    for (int k = start[v]; k + 1 < start[v + 1]; k++) {
+                        final double delta = swap(k);
+                        if (delta < -1e-9)
+                            improved = true;
+                        else
+                            swap(k); // undo
+                    }
+                    if ((++steps & 63) == 0 && System.currentTimeMillis() >= deadline)
+                        return;
+                }
+            }
+        }
+
+        /**
+         * swap the children at positions k and k+1, updating positions and cost
+         *
+         * @return change of cost
+         */
+        private double swap(int k) {
+            final int a = children[k];
+            final int b = children[k + 1];
+            final int v = parent[a];
+
+            // collect all nodes whose position changes: the two subtrees and the chain of ancestors
+            stamp++;
+            double before = 0;
+            before += subtreeSpans(a);
+            before += subtreeSpans(b);
+            before += ancestorSpans(v, k);
+
+            children[k] = b;
+            children[k + 1] = a;
+            indexInParent[a] = k + 1;
+            indexInParent[b] = k;
+            shiftSubtree(a, leaves[b]);
+            shiftSubtree(b, -leaves[a]);
+            updateAncestors(v);
+
+            stamp++;
+            double after = 0;
+            after += subtreeSpans(a);
+            after += subtreeSpans(b);
+            after += ancestorSpans(v, k);
+
+            final double delta = after - before;
+            cost += delta;
+            return delta;
+        }
+
+        /**
+         * sum the spans of reticulate edges incident to the subtree that haven't been counted in the current round
+         */
+        private double subtreeSpans(int root) {
+            double sum = 0;
+            int v = root;
+            // iterate over the subtree in pre-order, using the parent and child indices
+            while (true) {
+                sum += nodeSpans(v);
+                if (start[v + 1] > start[v])
+                    v = children[start[v]];
+                else {
+                    while (v != root && indexInParent[v] + 1 == start[parent[v] + 1])
+                        v = parent[v];
+                    if (v == root)
+                        break;
+                    v = children[indexInParent[v] + 1];
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * sum the spans of reticulate edges incident to v and to those of its ancestors whose position
+         * depends on the first or last child
+         */
+        private double ancestorSpans(int v, int k) {
+            double sum = 0;
+            boolean affected = (k == start[v] || k + 2 == start[v + 1]);
+            while (affected && v != -1) {
+                sum += nodeSpans(v);
+                final int p = parent[v];
+                affected = (p != -1 && (indexInParent[v] == start[p] || indexInParent[v] + 1 == start[p + 1]));
+                v = p;
+            }
+            return sum;
+        }
+
+        private double nodeSpans(int v) {
+            double sum = 0;
+            for (int i = retStart[v]; i < retStart[v + 1]; i++) {
+                final int e = retEdges[i];
+                if (edgeStamp[e] != stamp) {
+                    edgeStamp[e] = stamp;
+                    sum += span(e);
+                }
+            }
+            return sum;
+        }
+
+        private void shiftSubtree(int root, double delta) {
+            int v = root;
+            while (true) {
+                y[v] += delta;
+                if (start[v + 1] > start[v])
+                    v = children[start[v]];
+                else {
+                    while (v != root && indexInParent[v] + 1 == start[parent[v] + 1])
+                        v = parent[v];
+                    if (v == root)
+                        break;
+                    v = children[indexInParent[v] + 1];
+                }
+            }
+        }
+
+        private void updateAncestors(int v) {
+            while (v != -1) {
+                final double value = 0.5 * (y[children[start[v]]] + y[children[start[v + 1] - 1]]);
+                if (value == y[v])
+                    break;
+                y[v] = value;
+                v = parent[v];
+            }
+        }
+    }
+}
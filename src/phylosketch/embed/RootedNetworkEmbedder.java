@@ -20,117 +20,203 @@
 package phylosketch.embed;
 
 import javafx.scene.layout.Pane;
-import javafx.scene.shape.CubicCurve;
 import jloda.graph.*;
 import jloda.phylo.PhyloTree;
-import jloda.util.NumberUtils;
-import phylosketch.view.EdgeView;
+import phylosketch.commands.AffineTransformCommand;
 import phylosketch.view.PhyloView;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * computes an embedding of a rooted network
+ * The layout itself is computed by CladogramLayout, here we only translate between the graph and the index arrays
+ * and build all views in one batch
  */
 public class RootedNetworkEmbedder {
-    public enum Orientation {leftRight, down, up, rightLeft}
+    public enum Orientation {leftRight, down, up, rightLeft, radial, circular}
 
-    public static void apply(Pane mainPane, PhyloView view, Orientation orientation) {
-
-        final PhyloTree graph = view.getGraph();
+    /**
+     * cladograms ignore edge weights, phylograms place each node at its weighted distance from the root
+     */
+    public enum Scaling {cladogram, phylogram, logPhylogram}
 
-        final NodeArray<Node> reticulation2LSA = new NodeArray<>(graph);
-        final NodeArray<List<Node>> node2LSAChildren = new NodeArray<>(graph);
-        LSATreeUtilities.computeLSAOrdering(graph, reticulation2LSA, node2LSAChildren);
+    public static void apply(Pane mainPane, PhyloView view, Orientation orientation) {
+        final Layout layout = computeLayout(view.getGraph(), orientation);
+        if (layout != null)
+            populate(mainPane, view, layout, Function.identity(), Function.identity());
+    }
 
-        Optional<Node> root = graph.nodeStream().filter(v -> v.getInDegree() == 0).findFirst();
-        if (root.isPresent()) {
-            graph.setRoot(root.get());
-			NodeIntArray levels = computeLevels(graph, node2LSAChildren, 1);
-			final int maxLevel = NumberUtils.max(levels.values());
-			NodeDoubleArray yCoord = computeYCoordinates(graph, node2LSAChildren, graph.getRoot());
+    /**
+     * computes the layout of the given network. Does not touch any views, so can be run in a background thread,
+     * as long as no one else modifies the network
+     *
+     * @return the layout, or null, if the network has no root
+     */
+    public static Layout computeLayout(PhyloTree graph, Orientation orientation) {
+        return computeLayout(graph, orientation, 0);
+    }
 
-            computeCoordinatesCladogramRec(mainPane, view, graph.getRoot(), node2LSAChildren, yCoord, maxLevel, levels);
-            computeEdges(view);
-        }
+    /**
+     * computes the layout of the given network, after optionally reordering the LSA children so as to
+     * minimize the vertical span of reticulate edges, see ReticulationOrderOptimizer
+     *
+     * @param optimizeMillis time budget for the reordering, 0 for none
+     * @return the layout, or null, if the network has no root
+     */
+    public static Layout computeLayout(PhyloTree graph, Orientation orientation, long optimizeMillis) {
+        return computeLayout(graph, orientation, Scaling.cladogram, optimizeMillis);
     }
 
     /**
-     * recursively compute node coordinates from edge angles:
+     * computes the layout of the given network as a cladogram or phylogram, after optionally reordering the LSA children
      *
-     * @param v Node
+     * @param scaling        determines whether and how edge weights are used
+     * @param optimizeMillis time budget for the reordering, 0 for none
+     * @return the layout, or null, if the network has no root
      */
-    private static void computeCoordinatesCladogramRec(Pane mainPane, PhyloView view, Node v, NodeArray<List<Node>> node2LSAChildren, NodeDoubleArray yCoord, int maxLevel, NodeIntArray levels) {
-        view.addNode(v, mainPane, 50 * (maxLevel + 1 - levels.get(v)), 50 * yCoord.get(v));
-        for (Node w : node2LSAChildren.get(v)) {
-            computeCoordinatesCladogramRec(mainPane, view, w, node2LSAChildren, yCoord, maxLevel, levels);
-        }
+    public static Layout computeLayout(PhyloTree graph, Orientation orientation, Scaling scaling, long optimizeMillis) {
+        return computeLayout(graph, orientation, scaling, optimizeMillis, Runtime.getRuntime().availableProcessors());
     }
 
     /**
-     * compute edges
+     * computes the layout of the given network as a cladogram or phylogram, after optionally reordering the LSA children
      *
-	 */
-    private static void computeEdges(PhyloView view) {
-        for (Edge e : view.getGraph().edges()) {
-            final Node v = e.getSource();
-            final Node w = e.getTarget();
-
-            final EdgeView edgeView = view.addEdge(e);
-            final CubicCurve curve = edgeView.getCurve();
-
-            if (view.getX(v) == view.getX(w) || view.getY(v) == view.getY(w)) {
-                curve.setControlX1(0.7 * view.getX(v) + 0.3 * view.getX(w));
-                curve.setControlX2(0.3 * view.getX(v) + 0.7 * view.getX(w));
-                curve.setControlY1(0.7 * view.getY(v) + 0.3 * view.getY(w));
-                curve.setControlY2(0.3 * view.getY(v) + 0.7 * view.getY(w));
-            } else {
-                curve.setControlX1(view.getX(v));
-                curve.setControlY1(view.getY(w));
-                curve.setControlX2(view.getX(v));
-                curve.setControlY2(view.getY(w));
+     * @param scaling         determines whether and how edge weights are used
+     * @param optimizeMillis  time budget for the reordering, 0 for none
+     * @param optimizeThreads number of threads used by the reordering
+     * @return the layout, or null, if the network has no root
+     */
+    public static Layout computeLayout(PhyloTree graph, Orientation orientation, Scaling scaling, long optimizeMillis, int optimizeThreads) {
+        Optional<Node> root = graph.nodeStream().filter(v -> v.getInDegree() == 0).findFirst();
+        if (root.isPresent()) {
+            graph.setRoot(root.get());
+
+            final Node[] index2node = graph.getNodesAsList().toArray(new Node[0]);
+            final Edge[] index2edge = graph.getEdgesAsList().toArray(new Edge[0]);
+            CladogramLayout.Network network = createNetwork(graph, index2node, index2edge);
+            if (optimizeMillis > 0 && graph.getNumberReticulateEdges() > 0)
+                network = network.withLSAChildren(ReticulationOrderOptimizer.apply(network, optimizeMillis, 666, optimizeThreads));
+
+            final double[] depths;
+            if (scaling == Scaling.cladogram)
+                depths = null;
+            else {
+                final double[] edgeWeights = new double[index2edge.length];
+                for (int e = 0; e < index2edge.length; e++)
+                    edgeWeights[e] = graph.getWeight(index2edge[e]);
+                depths = CladogramLayout.computePhylogramDepths(network, edgeWeights, scaling == Scaling.logPhylogram);
             }
-        }
+
+            final double[] locations;
+            final double[] controlPoints;
+            switch (orientation) {
+                case radial -> {
+                    locations = CladogramLayout.computeRadialNodeLocations(network, depths);
+                    controlPoints = CladogramLayout.computeRadialEdgeControlPoints(network, locations);
+                }
+                case circular -> {
+                    locations = CladogramLayout.computeCircularNodeLocations(network, depths != null ? depths : CladogramLayout.computeDepths(network));
+                    controlPoints = CladogramLayout.computeCircularEdgeControlPoints(network, locations);
+                }
+                default -> {
+                    locations = CladogramLayout.computeNodeLocations(network, depths != null ? depths : CladogramLayout.computeDepths(network));
+                    controlPoints = CladogramLayout.computeEdgeControlPoints(network, locations);
+                    final double[] matrix = switch (orientation) {
+                        case rightLeft -> AffineTransformCommand.flip(true);
+                        case down -> new double[]{0, 1, 0, 1, 0, 0};
+                        case up -> new double[]{0, 1, 0, -1, 0, 0};
+                        default -> null;
+                    };
+                    if (matrix != null) {
+                        AffineTransformCommand.apply(matrix, locations, locations, 0, locations.length);
+                        AffineTransformCommand.apply(matrix, controlPoints, controlPoints, 0, controlPoints.length);
+                    }
+                }
+            }
+            if (orientation != Orientation.leftRight)
+                CladogramLayout.normalize(locations, controlPoints);
+            return new Layout(index2node, index2edge, locations, controlPoints);
+        } else
+            return null;
     }
 
     /**
-     * compute the levels in the tree or network (max number of edges from node to a leaf)
+     * creates all node and edge views of a computed layout in one batch
      *
-     * @return levels
+     * @param node2viewNode maps the nodes of the laid out network to the nodes of the view's graph
+     * @param edge2viewEdge maps the edges of the laid out network to the edges of the view's graph
      */
-    private static NodeIntArray computeLevels(PhyloTree graph, NodeArray<List<Node>> node2GuideTreeChildren, int add) {
-        NodeIntArray levels = new NodeIntArray(graph);
-        computeLevelsRec(graph, node2GuideTreeChildren, graph.getRoot(), levels, add, new HashSet<>());
-        return levels;
+    public static void populate(Pane mainPane, PhyloView view, Layout layout, Function<Node, Node> node2viewNode, Function<Edge, Edge> edge2viewEdge) {
+        final double[] locations = layout.locations;
+        final double[] controlPoints = layout.controlPoints;
+
+        view.batchUpdate(() -> {
+            for (int v = 0; v < layout.nodes.length; v++) {
+                if (!Double.isNaN(locations[2 * v]))
+                    view.addNode(node2viewNode.apply(layout.nodes[v]), mainPane, locations[2 * v], locations[2 * v + 1]);
+            }
+            for (int e = 0; e < layout.edges.length; e++) {
+                if (!Double.isNaN(controlPoints[4 * e]) && !Double.isNaN(controlPoints[4 * e + 3]))
+                    view.addEdge(edge2viewEdge.apply(layout.edges[e])).setControlCoordinates(controlPoints, 4 * e);
+            }
+        });
     }
 
     /**
-     * compute node levels
-     *
-	 */
-    private static void computeLevelsRec(PhyloTree graph, NodeArray<List<Node>> node2GuideTreeChildren, Node v, NodeIntArray levels, int add, Set<Node> path) {
-        path.add(v);
-        int level = 0;
-        Set<Node> below = new HashSet<>();
-        for (Edge f = v.getFirstOutEdge(); f != null; f = v.getNextOutEdge(f)) {
-            Node w = f.getTarget();
-            below.add(w);
-            if (levels.get(w) == null)
-                computeLevelsRec(graph, node2GuideTreeChildren, w, levels, add, path);
-            level = Math.max(level, levels.getInt(w) + (graph.isTransferEdge(f) ? 0 : add));
+     * a computed layout: packed node locations and edge control points, in the order of the given nodes and edges
+     */
+    public static class Layout {
+        private final Node[] nodes;
+        private final Edge[] edges;
+        private final double[] locations;
+        private final double[] controlPoints;
+
+        private Layout(Node[] nodes, Edge[] edges, double[] locations, double[] controlPoints) {
+            this.nodes = nodes;
+            this.edges = edges;
+            this.locations = locations;
+            this.controlPoints = controlPoints;
         }
-        final Collection<Node> lsaChildren = node2GuideTreeChildren.get(v);
-        if (lsaChildren != null) {
-            for (Node w : lsaChildren) {
-                if (!below.contains(w) && !path.contains(w)) {
-                    if (levels.get(w) == null)
-                        computeLevelsRec(graph, node2GuideTreeChildren, w, levels, add, path);
-                    level = Math.max(level, levels.getInt(w) + add);
-                }
-            }
+
+        public Node[] getNodes() {
+            return nodes;
+        }
+
+        public Edge[] getEdges() {
+            return edges;
+        }
+
+        /**
+         * @return packed node locations, NaN for nodes that have not been laid out
+         */
+        public double[] getLocations() {
+            return locations;
+        }
+
+        /**
+         * @return packed edge control points, NaN for edges that have not been laid out
+         */
+        public double[] getControlPoints() {
+            return controlPoints;
+        }
+
+        /**
+         * @param node2other maps the nodes of the laid out network to the nodes of another network, such as the one it was copied from
+         * @param edge2other maps the edges of the laid out network to the edges of the other network
+         * @return the same layout, for the nodes and edges of the other network
+         */
+        public Layout map(Function<Node, Node> node2other, Function<Edge, Edge> edge2other) {
+            final Node[] otherNodes = new Node[nodes.length];
+            for (int v = 0; v < nodes.length; v++)
+                otherNodes[v] = node2other.apply(nodes[v]);
+            final Edge[] otherEdges = new Edge[edges.length];
+            for (int e = 0; e < edges.length; e++)
+                otherEdges[e] = edge2other.apply(edges[e]);
+            return new Layout(otherNodes, otherEdges, locations, controlPoints);
         }
-        levels.set(v, level);
-        path.remove(v);
     }
 
     /**
@@ -139,86 +225,107 @@ public class RootedNetworkEmbedder {
      * @return y-coordinates
      */
     public static NodeDoubleArray computeYCoordinates(PhyloTree graph, NodeArray<List<Node>> node2LSAChildren, Node root) {
+        final Node[] index2node = graph.getNodesAsList().toArray(new Node[0]);
+        final Edge[] index2edge = graph.getEdgesAsList().toArray(new Edge[0]);
+        final Node oldRoot = graph.getRoot();
+        graph.setRoot(root);
+        final CladogramLayout.Network network = createNetwork(graph, node2LSAChildren, index2node, index2edge);
+        graph.setRoot(oldRoot);
+
+        final double[] y = CladogramLayout.computeYCoordinates(network);
         final NodeDoubleArray yCoord = new NodeDoubleArray(graph);
-        final List<Node> leafOrder = new ArrayList<>();
-        computeYCoordinateOfLeavesRec(root, node2LSAChildren, 0, yCoord, leafOrder);
-        if (graph.getNumberReticulateEdges() > 0)
-            fixSpacing(leafOrder, yCoord);
-        computeYCoordinateOfInternalRec(root, node2LSAChildren, yCoord);
+        for (int v = 0; v < index2node.length; v++) {
+            if (!Double.isNaN(y[v]))
+                yCoord.put(index2node[v], y[v]);
+        }
         return yCoord;
     }
 
     /**
-     * recursively compute the y coordinate for a parallel or triangular diagram
-     *
-     * @param leafNumber rank of leaf in vertical ordering
-     * @return index of last leaf
+     * translates the network into index arrays, using the given orders of nodes and edges, and computes its LSA tree on
+     * these arrays, see CladogramLayout.computeReticulationLSAs. The children of a node in the LSA tree are the targets
+     * of its tree edges, followed by the reticulations of which it is the LSA. Runs in time linear in the size of the
+     * network, for networks without reticulations, and never recurses
      */
-    private static int computeYCoordinateOfLeavesRec(Node v, NodeArray<List<Node>> node2LSAChildren, int leafNumber, NodeDoubleArray yCoord, List<Node> nodeOrder) {
-        List<Node> list = node2LSAChildren.get(v);
-
-        if (list.size() == 0) {
-            // String taxonName = tree.getLabel(v);
-            yCoord.put(v, (double) ++leafNumber);
-            nodeOrder.add(v);
-        } else {
-            for (Node w : list) {
-                leafNumber = computeYCoordinateOfLeavesRec(w, node2LSAChildren, leafNumber, yCoord, nodeOrder);
+    private static CladogramLayout.Network createNetwork(PhyloTree graph, Node[] index2node, Edge[] index2edge) {
+        try (NodeIntArray node2index = graph.newNodeIntArray()) {
+            for (int v = 0; v < index2node.length; v++)
+                node2index.set(index2node[v], v);
+
+            final int[] edgeSource = new int[index2edge.length];
+            final int[] edgeTarget = new int[index2edge.length];
+            final boolean[] edgeTransfer = new boolean[index2edge.length];
+            for (int e = 0; e < index2edge.length; e++) {
+                edgeSource[e] = node2index.getInt(index2edge[e].getSource());
+                edgeTarget[e] = node2index.getInt(index2edge[e].getTarget());
+                edgeTransfer[e] = graph.isTransferEdge(index2edge[e]);
             }
-        }
-        return leafNumber;
-    }
 
+            final int root = node2index.getInt(graph.getRoot());
+            final int[] lsa = CladogramLayout.computeReticulationLSAs(index2node.length, root, edgeSource, edgeTarget);
 
-    /**
-     * recursively compute the y coordinate for the internal nodes of a parallel diagram
-     *
-	 */
-    private static void computeYCoordinateOfInternalRec(Node v, NodeArray<List<Node>> node2LSAChildren, NodeDoubleArray yCoord) {
-        if (v.getOutDegree() > 0) {
-            double first = Double.NEGATIVE_INFINITY;
-            double last = Double.NEGATIVE_INFINITY;
-
-            for (Node w : node2LSAChildren.get(v)) {
-                double y = yCoord.getDouble(w);
-                if (y == 0) {
-                    computeYCoordinateOfInternalRec(w, node2LSAChildren, yCoord);
-                    y = yCoord.getDouble(w);
+            final int[] lsaStart = new int[index2node.length + 1];
+            for (int v = 0; v < index2node.length; v++) {
+                for (Edge f : index2node[v].outEdges()) {
+                    if (!graph.isReticulateEdge(f))
+                        lsaStart[v + 1]++;
+                }
+                if (lsa[v] != -1)
+                    lsaStart[lsa[v] + 1]++;
+            }
+            for (int v = 0; v < index2node.length; v++)
+                lsaStart[v + 1] += lsaStart[v];
+
+            final int[] lsaChildren = new int[lsaStart[index2node.length]];
+            final int[] next = Arrays.copyOf(lsaStart, index2node.length);
+            for (int v = 0; v < index2node.length; v++) {
+                for (Edge f : index2node[v].outEdges()) {
+                    if (!graph.isReticulateEdge(f))
+                        lsaChildren[next[v]++] = node2index.getInt(f.getTarget());
                 }
-                last = y;
-                if (first == Double.NEGATIVE_INFINITY)
-                    first = last;
             }
-            yCoord.put(v, 0.5 * (last + first));
+            for (int r = 0; r < index2node.length; r++) {
+                if (lsa[r] != -1)
+                    lsaChildren[next[lsa[r]]++] = r;
+            }
+            return new CladogramLayout.Network(index2node.length, root, edgeSource, edgeTarget, edgeTransfer,
+                    graph.getNumberReticulateEdges() > 0, lsaStart, lsaChildren);
         }
     }
 
     /**
-     * fix spacing so that space between any two true leaves is 1
-     *
-	 */
-    private static void fixSpacing(List<Node> leafOrder, NodeDoubleArray yCoord) {
-        final Node[] nodes = leafOrder.toArray(new Node[0]);
-        double leafPos = 0;
-        for (int lastLeaf = -1; lastLeaf < nodes.length; ) {
-            int nextLeaf = lastLeaf + 1;
-            while (nextLeaf < nodes.length && nodes[nextLeaf].getOutDegree() > 0)
-                nextLeaf++;
-            // assign fractional positions to intermediate nodes
-            int count = (nextLeaf - lastLeaf) - 1;
-            if (count > 0) {
-                double add = 1.0 / (count + 1); // if odd, use +2 to avoid the middle
-                double value = leafPos;
-                for (int i = lastLeaf + 1; i < nextLeaf; i++) {
-                    value += add;
-                    yCoord.put(nodes[i], value);
-                }
+     * translates the network and its LSA tree into index arrays, using the given orders of nodes and edges
+     */
+    private static CladogramLayout.Network createNetwork(PhyloTree graph, NodeArray<List<Node>> node2LSAChildren, Node[] index2node, Edge[] index2edge) {
+        try (NodeIntArray node2index = graph.newNodeIntArray()) {
+            for (int v = 0; v < index2node.length; v++)
+                node2index.set(index2node[v], v);
+
+            final int[] edgeSource = new int[index2edge.length];
+            final int[] edgeTarget = new int[index2edge.length];
+            final boolean[] edgeTransfer = new boolean[index2edge.length];
+            for (int e = 0; e < index2edge.length; e++) {
+                edgeSource[e] = node2index.getInt(index2edge[e].getSource());
+                edgeTarget[e] = node2index.getInt(index2edge[e].getTarget());
+                edgeTransfer[e] = graph.isTransferEdge(index2edge[e]);
+            }
+
+            final int[] lsaStart = new int[index2node.length + 1];
+            for (int v = 0; v < index2node.length; v++) {
+                final List<Node> children = node2LSAChildren.get(index2node[v]);
+                lsaStart[v + 1] = lsaStart[v] + (children != null ? children.size() : 0);
             }
-            // assign whole positions to actual leaves:
-            if (nextLeaf < nodes.length) {
-                yCoord.put(nodes[nextLeaf], ++leafPos);
+            final int[] lsaChildren = new int[lsaStart[index2node.length]];
+            for (int v = 0; v < index2node.length; v++) {
+                final List<Node> children = node2LSAChildren.get(index2node[v]);
+                if (children != null) {
+                    int i = lsaStart[v];
+                    for (Node w : children)
+                        lsaChildren[i++] = node2index.getInt(w);
+                }
             }
-            lastLeaf = nextLeaf;
+            return new CladogramLayout.Network(index2node.length, node2index.getInt(graph.getRoot()), edgeSource, edgeTarget, edgeTransfer,
+                    graph.getNumberReticulateEdges() > 0, lsaStart, lsaChildren);
         }
     }
 }
@@ -0,0 +1,106 @@
+/*
+ * BackgroundImport.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.io;
+
+import jloda.fx.util.AService;
+import jloda.fx.window.NotificationManager;
+import jloda.graph.Edge;
+import jloda.graph.EdgeArray;
+import jloda.graph.Node;
+import jloda.graph.NodeArray;
+import jloda.phylo.PhyloTree;
+import jloda.util.CanceledException;
+import jloda.util.Pair;
+import phylosketch.embed.RootedNetworkEmbedder;
+import phylosketch.view.PhyloView;
+import phylosketch.window.MainWindow;
+import phylosketch.window.MainWindowPresenter;
+
+import java.io.IOException;
+
+/**
+ * imports a tree or network: parsing and layout are performed by a background service that shows progress and
+ * can be canceled, only the creation of the views runs on the FX thread. The view is busy while the service runs,
+ * and its undo history is cleared once the import has replaced its content
+ * Daniel Huson, 10.2026
+ */
+public class BackgroundImport {
+    /**
+     * parses a tree or network, called in a background thread
+     */
+    public interface Parser {
+        PhyloTree parse() throws IOException;
+    }
+
+    /**
+     * import into the given window, replacing its current content. The network is laid out using the scaling
+     * selected in the layout menu of the window
+     *
+     * @param name        name of the source, used in progress and error messages
+     * @param onSucceeded run on the FX thread once the views have been created, may be null
+     */
+    public static void apply(MainWindow window, String name, Parser parser, Runnable onSucceeded) {
+        final RootedNetworkEmbedder.Scaling scaling = MainWindowPresenter.getScaling(window.getController());
+
+        final AService<Pair<PhyloTree, RootedNetworkEmbedder.Layout>> service = new AService<>(window.getController().getStatusFlowPane());
+        service.setCallable(() -> {
+            final var progress = service.getProgressListener();
+            progress.setTasks("Importing", name);
+            progress.setMaximum(2);
+            progress.setProgress(0);
+            final PhyloTree tree = parser.parse();
+            progress.incrementProgress();
+            final RootedNetworkEmbedder.Layout layout = RootedNetworkEmbedder.computeLayout(tree, RootedNetworkEmbedder.Orientation.leftRight, scaling, 0);
+            progress.incrementProgress();
+            return new Pair<>(tree, layout);
+        });
+
+        service.setOnSucceeded(c -> {
+            final PhyloTree tree = service.getValue().getFirst();
+            final RootedNetworkEmbedder.Layout layout = service.getValue().getSecond();
+
+            final PhyloView view = window.getView();
+            // one transaction, so that listeners of the graph are notified once, not once per copied node and edge:
+            view.batchUpdate(() -> {
+                view.clear();
+                final NodeArray<Node> oldNode2NewNode = new NodeArray<>(tree);
+                final EdgeArray<Edge> oldEdge2NewEdge = new EdgeArray<>(tree);
+                view.getGraph().copy(tree, oldNode2NewNode, oldEdge2NewEdge);
+                if (tree.getRoot() != null)
+                    view.getGraph().setRoot(oldNode2NewNode.get(tree.getRoot()));
+                if (layout != null)
+                    RootedNetworkEmbedder.populate(window.getController().getContentPane(), view, layout, oldNode2NewNode::get, oldEdge2NewEdge::get);
+            });
+            view.getUndoManager().clear();
+            view.setBusy(false);
+            if (onSucceeded != null)
+                onSucceeded.run();
+        });
+        service.setOnFailed(c -> {
+            window.getView().setBusy(false);
+            if (!(service.getException() instanceof CanceledException))
+                NotificationManager.showError("Import " + name + " failed: " + service.getException().getMessage());
+        });
+        service.setOnCancelled(c -> window.getView().setBusy(false));
+
+        window.getView().setBusy(true);
+        service.start();
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Figure.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.io;
+
+import phylosketch.embed.LabelPlacement;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * a drawing of a laid out network, computed from the packed layout arrays and drawn without any scene graph,
+ * so that figures can be produced headless
+ * Labels are placed using LabelPlacement and measured using AWT fonts, which also work in headless mode
+ * Daniel Huson, 10.2026
+ */
+public class Figure {
+    public static final double NODE_SIZE = 10;
+    public static final double NODE_STROKE_WIDTH = 2;
+    public static final double EDGE_STROKE_WIDTH = 3;
+    public static final double FONT_SIZE = 12;
+    public static final double MARGIN = 20;
+
+    private static final Font font = new Font(Font.SANS_SERIF, Font.PLAIN, (int) FONT_SIZE);
+    private static final FontRenderContext fontRenderContext = new FontRenderContext(null, true, true);
+
+    private final int[] nodeIndices;
+    private final double[] nodeLocations;
+    private final int[] edgeIndices;
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final double[] controlPoints;
+    private final int[] labelNodes;
+    private final String[] labelTexts;
+    private final double[] labelBoxes;
+    private final double[] labelScales;
+    private final double[] labelAscents;
+    private final double width;
+    private final double height;
+
+    private Figure(int[] nodeIndices, double[] nodeLocations, int[] edgeIndices, int[] edgeSource, int[] edgeTarget, double[] controlPoints, int[] labelNodes,
+                   String[] labelTexts, double[] labelBoxes, double[] labelScales, double[] labelAscents, double width, double height) {
+        this.nodeIndices = nodeIndices;
+        this.nodeLocations = nodeLocations;
+        this.edgeIndices = edgeIndices;
+        this.edgeSource = edgeSource;
+        this.edgeTarget = edgeTarget;
+        this.controlPoints = controlPoints;
+        this.labelNodes = labelNodes;
+        this.labelTexts = labelTexts;
+        this.labelBoxes = labelBoxes;
+        this.labelScales = labelScales;
+        this.labelAscents = labelAscents;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * computes the figure. Nodes whose location is NaN and edges incident to them are not drawn
+     *
+     * @param locations     packed node locations
+     * @param edgeSource    source node index of each edge
+     * @param edgeTarget    target node index of each edge
+     * @param controlPoints packed control points of all edges
+     * @param labels        label of each node, or null
+     * @param root          index of the root, used to place labels outward, if no side is given
+     * @param side          the preferred side for all labels, or null, to place each label on the side facing away from the root
+     * @param scales        decreasing label scales to try, the first usually being 1
+     * @return the figure, translated so that its top-left corner is at the origin
+     */
+    public static Figure create(double[] locations, int[] edgeSource, int[] edgeTarget, double[] controlPoints, String[] labels, int root,
+                                LabelPlacement.Side side, double[] scales) {
+        final int numberOfNodes = locations.length / 2;
+
+        // only nodes that have been laid out take part:
+        final int[] node2placed = new int[numberOfNodes];
+        int numberPlaced = 0;
+        for (int v = 0; v < numberOfNodes; v++) {
+            node2placed[v] = (Double.isNaN(locations[2 * v]) ? -1 : numberPlaced++);
+        }
+        final int[] nodeIndices = new int[numberPlaced];
+        final double[] nodeLocations = new double[2 * numberPlaced];
+        final double[] nodeSizes = new double[2 * numberPlaced];
+        for (int v = 0; v < numberOfNodes; v++) {
+            final int p = node2placed[v];
+            if (p != -1) {
+                nodeIndices[p] = v;
+                nodeLocations[2 * p] = locations[2 * v];
+                nodeLocations[2 * p + 1] = locations[2 * v + 1];
+                nodeSizes[2 * p] = NODE_SIZE;
+                nodeSizes[2 * p + 1] = NODE_SIZE;
+            }
+        }
+
+        int numberOfEdges = 0;
+        for (int e = 0; e < edgeSource.length; e++) {
+            if (node2placed[edgeSource[e]] != -1 && node2placed[edgeTarget[e]] != -1)
+                numberOfEdges++;
+        }
+        final int[] edgeIndices = new int[numberOfEdges];
+        final int[] source = new int[numberOfEdges];
+        final int[] target = new int[numberOfEdges];
+        final double[] points = new double[4 * numberOfEdges];
+        for (int e = 0, f = 0; e < edgeSource.length; e++) {
+            if (node2placed[edgeSource[e]] != -1 && node2placed[edgeTarget[e]] != -1) {
+                edgeIndices[f] = e;
+                source[f] = node2placed[edgeSource[e]];
+                target[f] = node2placed[edgeTarget[e]];
+                System.arraycopy(controlPoints, 4 * e, points, 4 * f, 4);
+                f++;
+            }
+        }
+
+        // labels:
+        final ArrayList<Integer> labeled = new ArrayList<>();
+        for (int v = 0; v < numberOfNodes; v++) {
+            if (node2placed[v] != -1 && labels[v] != null && !labels[v].isBlank())
+                labeled.add(v);
+        }
+        final int numberOfLabels = labeled.size();
+        final int[] labelNodes = new int[numberOfLabels];
+        final String[] labelTexts = new String[numberOfLabels];
+        final double[] labelSizes = new double[2 * numberOfLabels];
+        final double[] labelAscents = new double[numberOfLabels];
+        final LabelPlacement.Side[] labelSides = new LabelPlacement.Side[numberOfLabels];
+        for (int i = 0; i < numberOfLabels; i++) {
+            final int v = labeled.get(i);
+            labelNodes[i] = node2placed[v];
+            labelTexts[i] = labels[v];
+            final Rectangle2D bounds = font.getStringBounds(labels[v], fontRenderContext);
+            final LineMetrics lineMetrics = font.getLineMetrics(labels[v], fontRenderContext);
+            labelSizes[2 * i] = bounds.getWidth();
+            labelSizes[2 * i + 1] = lineMetrics.getAscent() + lineMetrics.getDescent();
+            labelAscents[i] = lineMetrics.getAscent();
+            labelSides[i] = (side != null ? side : computeOutwardSide(locations, root, v));
+        }
+
+        // place the labels of one side at a time, avoiding those already placed:
+        final double[] labelBoxes = new double[4 * numberOfLabels];
+        final double[] labelScales = new double[numberOfLabels];
+        final ArrayList<Integer> done = new ArrayList<>();
+        for (LabelPlacement.Side current : LabelPlacement.Side.values()) {
+            final ArrayList<Integer> group = new ArrayList<>();
+            for (int i = 0; i < numberOfLabels; i++) {
+                if (labelSides[i] == current)
+                    group.add(i);
+            }
+            if (!group.isEmpty()) {
+                final int[] groupNodes = new int[group.size()];
+                final double[] groupSizes = new double[2 * group.size()];
+                for (int j = 0; j < group.size(); j++) {
+                    final int i = group.get(j);
+                    groupNodes[j] = labelNodes[i];
+                    groupSizes[2 * j] = labelSizes[2 * i];
+                    groupSizes[2 * j + 1] = labelSizes[2 * i + 1];
+                }
+                final double[] obstacles = new double[4 * done.size()];
+                for (int k = 0; k < done.size(); k++)
+                    System.arraycopy(labelBoxes, 4 * done.get(k), obstacles, 4 * k, 4);
+
+                final double[] placement = LabelPlacement.apply(nodeLocations, nodeSizes, groupNodes, groupSizes, obstacles, current, scales);
+                for (int j = 0; j < group.size(); j++) {
+                    final int i = group.get(j);
+                    final double scale = placement[3 * j + 2];
+                    labelBoxes[4 * i] = nodeLocations[2 * labelNodes[i]] + placement[3 * j];
+                    labelBoxes[4 * i + 1] = nodeLocations[2 * labelNodes[i] + 1] + placement[3 * j + 1];
+                    labelBoxes[4 * i + 2] = scale * labelSizes[2 * i];
+                    labelBoxes[4 * i + 3] = scale * labelSizes[2 * i + 1];
+                    labelScales[i] = scale;
+                    labelAscents[i] *= scale;
+                }
+                done.addAll(group);
+            }
+        }
+
+        // translate everything so that the bounding box starts at the margin:
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        final double radius = 0.5 * NODE_SIZE + NODE_STROKE_WIDTH;
+        for (int p = 0; p < numberPlaced; p++) {
+            minX = Math.min(minX, nodeLocations[2 * p] - radius);
+            maxX = Math.max(maxX, nodeLocations[2 * p] + radius);
+            minY = Math.min(minY, nodeLocations[2 * p + 1] - radius);
+            maxY = Math.max(maxY, nodeLocations[2 * p + 1] + radius);
+        }
+        for (int i = 0; i < points.length; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxY = Math.max(maxY, points[i + 1]);
+        }
+        for (int i = 0; i < numberOfLabels; i++) {
+            minX = Math.min(minX, labelBoxes[4 * i]);
+            maxX = Math.max(maxX, labelBoxes[4 * i] + labelBoxes[4 * i + 2]);
+            minY = Math.min(minY, labelBoxes[4 * i + 1]);
+            maxY = Math.max(maxY, labelBoxes[4 * i + 1] + labelBoxes[4 * i + 3]);
+        }
+        if (numberPlaced == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        final double dx = MARGIN - minX;
+        final double dy = MARGIN - minY;
+        for (int i = 0; i < nodeLocations.length; i += 2) {
+            nodeLocations[i] += dx;
+            nodeLocations[i + 1] += dy;
+        }
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] += dx;
+            points[i + 1] += dy;
+        }
+        for (int i = 0; i < numberOfLabels; i++) {
+            labelBoxes[4 * i] += dx;
+            labelBoxes[4 * i + 1] += dy;
+        }
+        return new Figure(nodeIndices, nodeLocations, edgeIndices, source, target, points, labelNodes, labelTexts, labelBoxes, labelScales, labelAscents,
+                maxX - minX + 2 * MARGIN, maxY - minY + 2 * MARGIN);
+    }
+
+    /**
+     * the side of a node that faces away from the root
+     */
+    private static LabelPlacement.Side computeOutwardSide(double[] locations, int root, int v) {
+        final double dx = locations[2 * v] - locations[2 * root];
+        final double dy = locations[2 * v + 1] - locations[2 * root + 1];
+        if (Math.abs(dx) >= Math.abs(dy))
+            return dx >= 0 ? LabelPlacement.Side.Right : LabelPlacement.Side.Left;
+        else
+            return dy >= 0 ? LabelPlacement.Side.Below : LabelPlacement.Side.Above;
+    }
+
+    /**
+     * write the figure in SVG format
+     */
+    public void writeSVG(Writer w) throws IOException {
+        w.write(String.format(Locale.ROOT, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%.0f\" height=\"%.0f\" viewBox=\"0 0 %.0f %.0f\">\n",
+                Math.ceil(width), Math.ceil(height), Math.ceil(width), Math.ceil(height)));
+        w.write(String.format(Locale.ROOT, "<g fill=\"none\" stroke=\"black\" stroke-width=\"%.1f\">\n", EDGE_STROKE_WIDTH));
+        for (int e = 0; e < getNumberOfEdges(); e++) {
+            w.write(String.format(Locale.ROOT, "<path d=\"M%.2f %.2f C%.2f %.2f %.2f %.2f %.2f %.2f\"/>\n",
+                    getSourceX(e), getSourceY(e), controlPoints[4 * e], controlPoints[4 * e + 1], controlPoints[4 * e + 2], controlPoints[4 * e + 3], getTargetX(e), getTargetY(e)));
+        }
+        w.write("</g>\n");
+        w.write(String.format(Locale.ROOT, "<g fill=\"white\" stroke=\"black\" stroke-width=\"%.1f\">\n", NODE_STROKE_WIDTH));
+        for (int v = 0; v < getNumberOfNodes(); v++) {
+            w.write(String.format(Locale.ROOT, "<circle cx=\"%.2f\" cy=\"%.2f\" r=\"%.1f\"/>\n", nodeLocations[2 * v], nodeLocations[2 * v + 1], 0.5 * NODE_SIZE));
+        }
+        w.write("</g>\n");
+        w.write("<g font-family=\"Arial, Helvetica, sans-serif\" fill=\"black\">\n");
+        for (int i = 0; i < getNumberOfLabels(); i++) {
+            w.write(String.format(Locale.ROOT, "<text x=\"%.2f\" y=\"%.2f\" font-size=\"%.1f\">", getLabelX(i), getLabelBaseline(i), getLabelFontSize(i)));
+            w.write(escapeXML(labelTexts[i]));
+            w.write("</text>\n");
+        }
+        w.write("</g>\n</svg>\n");
+    }
+
+    /**
+     * write the figure as a PNG image, scaled down, if necessary, so that neither side exceeds the given number of pixels
+     */
+    public void writePNG(File file, double scale, int maxPixels) throws IOException {
+        scale = Math.min(scale, maxPixels / Math.max(width, height));
+        final BufferedImage image = new BufferedImage(Math.max(1, (int) Math.ceil(scale * width)), Math.max(1, (int) Math.ceil(scale * height)), BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.scale(scale, scale);
+
+            g.setColor(Color.BLACK);
+            g.setStroke(new BasicStroke((float) EDGE_STROKE_WIDTH));
+            final Path2D.Double path = new Path2D.Double();
+            for (int e = 0; e < getNumberOfEdges(); e++) {
+                path.moveTo(getSourceX(e), getSourceY(e));
+                path.curveTo(controlPoints[4 * e], controlPoints[4 * e + 1], controlPoints[4 * e + 2], controlPoints[4 * e + 3], getTargetX(e), getTargetY(e));
+            }
+            g.draw(path);
+
+            g.setStroke(new BasicStroke((float) NODE_STROKE_WIDTH));
+            final Ellipse2D.Double circle = new Ellipse2D.Double();
+            for (int v = 0; v < getNumberOfNodes(); v++) {
+                circle.setFrame(nodeLocations[2 * v] - 0.5 * NODE_SIZE, nodeLocations[2 * v + 1] - 0.5 * NODE_SIZE, NODE_SIZE, NODE_SIZE);
+                g.setColor(Color.WHITE);
+                g.fill(circle);
+                g.setColor(Color.BLACK);
+                g.draw(circle);
+            }
+
+            for (int i = 0; i < getNumberOfLabels(); i++) {
+                g.setFont(font.deriveFont((float) getLabelFontSize(i)));
+                g.drawString(labelTexts[i], (float) getLabelX(i), (float) getLabelBaseline(i));
+            }
+        } finally {
+            g.dispose();
+        }
+        if (!ImageIO.write(image, "png", file))
+            throw new IOException("No PNG writer available");
+    }
+
+    private static String escapeXML(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public int getNumberOfNodes() {
+        return nodeLocations.length / 2;
+    }
+
+    /**
+     * @return the index of the node in the arrays that the figure was created from
+     */
+    public int getNodeIndex(int v) {
+        return nodeIndices[v];
+    }
+
+    public double getNodeX(int v) {
+        return nodeLocations[2 * v];
+    }
+
+    public double getNodeY(int v) {
+        return nodeLocations[2 * v + 1];
+    }
+
+    public int getNumberOfEdges() {
+        return edgeSource.length;
+    }
+
+    /**
+     * @return the index of the edge in the arrays that the figure was created from
+     */
+    public int getEdgeIndex(int e) {
+        return edgeIndices[e];
+    }
+
+    public double getSourceX(int e) {
+        return nodeLocations[2 * edgeSource[e]];
+    }
+
+    public double getSourceY(int e) {
+        return nodeLocations[2 * edgeSource[e] + 1];
+    }
+
+    public double getTargetX(int e) {
+        return nodeLocations[2 * edgeTarget[e]];
+    }
+
+    public double getTargetY(int e) {
+        return nodeLocations[2 * edgeTarget[e] + 1];
+    }
+
+    /**
+     * @return packed control points, four per edge
+     */
+    public double[] getControlPoints() {
+        return controlPoints;
+    }
+
+    public int getNumberOfLabels() {
+        return labelTexts.length;
+    }
+
+    /**
+     * @return the index of the node that a label belongs to
+     */
+    public int getLabelNode(int i) {
+        return labelNodes[i];
+    }
+
+    public String getLabelText(int i) {
+        return labelTexts[i];
+    }
+
+    /**
+     * @return the left side of the label
+     */
+    public double getLabelX(int i) {
+        return labelBoxes[4 * i];
+    }
+
+    /**
+     * @return the top of the label
+     */
+    public double getLabelY(int i) {
+        return labelBoxes[4 * i + 1];
+    }
+
+    public double getLabelBaseline(int i) {
+        return labelBoxes[4 * i + 1] + labelAscents[i];
+    }
+
+    public double getLabelFontSize(int i) {
+        return labelScales[i] * FONT_SIZE;
+    }
+}
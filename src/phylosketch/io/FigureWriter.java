@@ -0,0 +1,160 @@
+/*
+ * FigureWriter.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.io;
+
+import jloda.fx.shapes.NodeShape;
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.graph.NodeIntArray;
+import jloda.phylo.PhyloTree;
+import jloda.phylo.algorithms.RootedNetworkProperties;
+import jloda.util.FileUtils;
+import phylosketch.embed.LabelPlacement;
+import phylosketch.embed.RootedNetworkEmbedder;
+import phylosketch.pdf.SaveToPDF;
+import splitstree5.core.datablocks.NetworkBlock;
+import splitstree5.core.datablocks.TaxaBlock;
+import splitstree5.io.nexus.NetworkNexusOutput;
+import splitstree5.io.nexus.TaxaNexusOutput;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * writes a computed layout of a network as a figure or as a PhyloSketch file, without using any views,
+ * so can be used headless and in parallel for different networks
+ * Daniel Huson, 10.2026
+ */
+public class FigureWriter {
+    public enum Format {svg, pdf, png, sptree5}
+
+    /**
+     * label scales tried when labels overlap, only used for figures, as files keep the default label font
+     */
+    private static final double[] SCALES = {1, 0.85, 0.7};
+
+    public static final double PNG_SCALE = 2;
+    public static final int MAX_PNG_PIXELS = 8192;
+
+    /**
+     * write the layout of the graph in the given format
+     */
+    public static void write(PhyloTree graph, RootedNetworkEmbedder.Layout layout, RootedNetworkEmbedder.Orientation orientation, Format format, File file) throws IOException {
+        final Node[] nodes = layout.getNodes();
+        final Edge[] edges = layout.getEdges();
+        final int[] edgeSource = new int[edges.length];
+        final int[] edgeTarget = new int[edges.length];
+        final String[] labels = new String[nodes.length];
+        int root = 0;
+
+        try (NodeIntArray node2index = graph.newNodeIntArray()) {
+            for (int v = 0; v < nodes.length; v++) {
+                node2index.set(nodes[v], v);
+                labels[v] = graph.getLabel(nodes[v]);
+                if (nodes[v] == graph.getRoot())
+                    root = v;
+            }
+            for (int e = 0; e < edges.length; e++) {
+                edgeSource[e] = node2index.getInt(edges[e].getSource());
+                edgeTarget[e] = node2index.getInt(edges[e].getTarget());
+            }
+        }
+
+        final LabelPlacement.Side side = switch (orientation) {
+            case leftRight -> LabelPlacement.Side.Right;
+            case rightLeft -> LabelPlacement.Side.Left;
+            case down -> LabelPlacement.Side.Below;
+            case up -> LabelPlacement.Side.Above;
+            default -> null;
+        };
+        final Figure figure = Figure.create(layout.getLocations(), edgeSource, edgeTarget, layout.getControlPoints(), labels, root, side,
+                (format == Format.sptree5 ? new double[]{1} : SCALES));
+
+        switch (format) {
+            case svg -> {
+                try (BufferedWriter w = new BufferedWriter(new FileWriter(file))) {
+                    figure.writeSVG(w);
+                }
+            }
+            case png -> figure.writePNG(file, PNG_SCALE, MAX_PNG_PIXELS);
+            case pdf -> SaveToPDF.apply(figure, file);
+            case sptree5 -> writeNexus(graph, nodes, edges, figure, file);
+        }
+    }
+
+    /**
+     * write the figure in the same format as PhyloSketchIO.save, so that the file can be opened in the program.
+     * Only the component of the root is laid out, so all other nodes and edges are placed at the origin
+     */
+    private static void writeNexus(PhyloTree graph, Node[] nodes, Edge[] edges, Figure figure, File file) throws IOException {
+        final TaxaBlock taxaBlock = new TaxaBlock();
+        taxaBlock.addTaxaByNames(RootedNetworkProperties.getLabel2Node(graph).keySet());
+
+        final NetworkBlock networkBlock = new NetworkBlock("Input", graph);
+        networkBlock.setNetworkType(NetworkBlock.Type.Other);
+        networkBlock.setName(FileUtils.replaceFileSuffix(file.getName(), ""));
+
+        for (Node v : graph.nodes()) {
+            final NetworkBlock.NodeData nodeData = networkBlock.getNodeData(v);
+            nodeData.put("x", "0.00");
+            nodeData.put("y", "0.00");
+            nodeData.put("w", String.format("%.2f", Figure.NODE_SIZE));
+            nodeData.put("h", String.format("%.2f", Figure.NODE_SIZE));
+            nodeData.put("type", NodeShape.Circle.name());
+        }
+        for (Edge e : graph.edges()) {
+            final NetworkBlock.EdgeData edgeData = networkBlock.getEdgeData(e);
+            edgeData.put("type", "CC");
+            for (String key : new String[]{"c1x", "c1y", "c2x", "c2y"})
+                edgeData.put(key, "0.00");
+            edgeData.put("sw", String.format("%.2f", Figure.EDGE_STROKE_WIDTH));
+        }
+
+        for (int v = 0; v < figure.getNumberOfNodes(); v++) {
+            final NetworkBlock.NodeData nodeData = networkBlock.getNodeData(nodes[figure.getNodeIndex(v)]);
+            nodeData.put("x", String.format("%.2f", figure.getNodeX(v)));
+            nodeData.put("y", String.format("%.2f", figure.getNodeY(v)));
+        }
+        for (int i = 0; i < figure.getNumberOfLabels(); i++) {
+            final int v = figure.getLabelNode(i);
+            final NetworkBlock.NodeData nodeData = networkBlock.getNodeData(nodes[figure.getNodeIndex(v)]);
+            nodeData.put("text", figure.getLabelText(i));
+            // label coordinates are relative to the node:
+            nodeData.put("lx", String.format("%.2f", figure.getLabelX(i) - figure.getNodeX(v)));
+            nodeData.put("ly", String.format("%.2f", figure.getLabelY(i) - figure.getNodeY(v)));
+        }
+        final double[] controlPoints = figure.getControlPoints();
+        for (int e = 0; e < figure.getNumberOfEdges(); e++) {
+            final NetworkBlock.EdgeData edgeData = networkBlock.getEdgeData(edges[figure.getEdgeIndex(e)]);
+            edgeData.put("c1x", String.format("%.2f", controlPoints[4 * e]));
+            edgeData.put("c1y", String.format("%.2f", controlPoints[4 * e + 1]));
+            edgeData.put("c2x", String.format("%.2f", controlPoints[4 * e + 2]));
+            edgeData.put("c2y", String.format("%.2f", controlPoints[4 * e + 3]));
+        }
+
+        try (BufferedWriter w = new BufferedWriter(new FileWriter(file))) {
+            w.write("#nexus [SplitsTree5 compatible]\n\n");
+            new TaxaNexusOutput().write(w, taxaBlock);
+            new NetworkNexusOutput().write(w, taxaBlock, networkBlock);
+        }
+    }
+}
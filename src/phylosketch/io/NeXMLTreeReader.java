@@ -0,0 +1,186 @@
+/*
+ * NeXMLTreeReader.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.io;
+
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+import jloda.util.NumberUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * streaming NeXML tree reader
+ * Builds one tree at a time and hands it to a consumer, so memory use does not depend on the number of trees in the file
+ * Daniel Huson, 10.2026
+ */
+public class NeXMLTreeReader {
+    /**
+     * read the tree of the given index (0-based), parsing stops as soon as that tree has been read
+     *
+     * @return the tree
+     * @throws IOException if the file can't be parsed or doesn't contain the requested tree
+     */
+    public static PhyloTree read(File file, int treeIndex) throws IOException {
+        final PhyloTree[] result = new PhyloTree[1];
+        final int count = apply(file, treeIndex, (tree) -> {
+            result[0] = tree;
+            return false;
+        });
+        if (result[0] == null)
+            throw new IOException("Tree " + (treeIndex + 1) + " not found, file contains " + count + " tree(s)");
+        return result[0];
+    }
+
+    /**
+     * parses the file and reports each tree to the consumer, starting at the given tree index (0-based).
+     * Trees before the first index are skipped without being built.
+     *
+     * @param consumer receives each tree in turn, returns false to stop parsing
+     * @return number of trees encountered
+     */
+    public static int apply(File file, int firstIndex, Predicate<PhyloTree> consumer) throws IOException {
+        final Handler handler = new Handler(firstIndex, consumer);
+        try {
+            final SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.newSAXParser().parse(file, handler);
+        } catch (StopParsing ignored) {
+        } catch (SAXParseException ex) {
+            throw new IOException("NeXML parse error in line " + ex.getLineNumber() + ": " + ex.getMessage());
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IOException("NeXML parse error: " + ex.getMessage());
+        }
+        return handler.treeCount;
+    }
+
+    /**
+     * thrown to terminate parsing once the consumer is done
+     */
+    private static class StopParsing extends SAXException {
+        public StopParsing() {
+            super("stop");
+        }
+    }
+
+    /**
+     * SAX handler that only keeps the otu labels and the current tree in memory
+     */
+    private static class Handler extends DefaultHandler {
+        private final int firstIndex;
+        private final Predicate<PhyloTree> consumer;
+
+        private final Map<String, String> otu2label = new HashMap<>();
+        private final Map<String, Node> id2node = new HashMap<>();
+
+        private PhyloTree tree;
+        private Node root;
+        private int treeCount = 0;
+
+        public Handler(int firstIndex, Predicate<PhyloTree> consumer) {
+            this.firstIndex = firstIndex;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            switch (stripPrefix(qName)) {
+                case "otu" -> {
+                    final String id = attributes.getValue("id");
+                    final String label = attributes.getValue("label");
+                    if (id != null)
+                        otu2label.put(id, label != null ? label : id);
+                }
+                case "tree", "network" -> {
+                    if (treeCount++ >= firstIndex) {
+                        tree = new PhyloTree();
+                    }
+                }
+                case "node" -> {
+                    if (tree != null) {
+                        final Node v = getNode(requireAttribute(attributes, "id", qName));
+                        final String otu = attributes.getValue("otu");
+                        if (otu != null && otu2label.containsKey(otu))
+                            tree.setLabel(v, otu2label.get(otu));
+                        else if (attributes.getValue("label") != null)
+                            tree.setLabel(v, attributes.getValue("label"));
+                        if ("true".equalsIgnoreCase(attributes.getValue("root")))
+                            root = v;
+                    }
+                }
+                case "edge" -> {
+                    if (tree != null) {
+                        final Node v = getNode(requireAttribute(attributes, "source", qName));
+                        final Node w = getNode(requireAttribute(attributes, "target", qName));
+                        final Edge e = tree.newEdge(v, w);
+                        final String length = attributes.getValue("length");
+                        if (length != null && NumberUtils.isDouble(length))
+                            tree.setWeight(e, NumberUtils.parseDouble(length));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            final String name = stripPrefix(qName);
+            if (tree != null && (name.equals("tree") || name.equals("network"))) {
+                if (root == null)
+                    root = tree.nodeStream().filter(v -> v.getInDegree() == 0).findFirst().orElse(null);
+                tree.setRoot(root);
+
+                final PhyloTree done = tree;
+                tree = null;
+                root = null;
+                id2node.clear();
+
+                if (!consumer.test(done))
+                    throw new StopParsing();
+            }
+        }
+
+        private Node getNode(String id) {
+            return id2node.computeIfAbsent(id, k -> tree.newNode());
+        }
+
+        private static String requireAttribute(Attributes attributes, String name, String element) throws SAXException {
+            final String value = attributes.getValue(name);
+            if (value == null)
+                throw new SAXException("Element '" + element + "': missing attribute '" + name + "'");
+            return value;
+        }
+
+        private static String stripPrefix(String qName) {
+            final int pos = qName.indexOf(':');
+            return pos == -1 ? qName : qName.substring(pos + 1);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * NewickWriter.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.io;
+
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.graph.NodeIntArray;
+import jloda.phylo.PhyloTree;
+import jloda.phylo.algorithms.RootedNetworkProperties;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * writes a rooted network in extended Newick format, one line per root
+ * Uses a single depth-first pass with an explicit stack, so runtime is linear in the size of the network
+ * and deep networks don't overflow the call stack
+ * Daniel Huson, 10.2026
+ */
+public class NewickWriter {
+    /**
+     * write all components of the network, each terminated by a semicolon and new line
+     */
+    public static void write(PhyloTree graph, Writer w) throws IOException {
+        final NodeIntArray reticulationNumber = new NodeIntArray(graph);
+        final int[] numberOfReticulations = {0};
+
+        for (Node root : RootedNetworkProperties.findRoots(graph)) {
+            write(graph, root, reticulationNumber, numberOfReticulations, w);
+            w.write(";\n");
+        }
+    }
+
+    /**
+     * write the sub-network below the given root. A reticulation is written with its sub-network at its first
+     * occurrence and as a tag only at all later occurrences
+     */
+    private static void write(PhyloTree graph, Node root, NodeIntArray reticulationNumber, int[] numberOfReticulations, Writer w) throws IOException {
+        final ArrayDeque<Node> nodeStack = new ArrayDeque<>();
+        final ArrayDeque<Iterator<Edge>> edgeStack = new ArrayDeque<>();
+
+        if (open(graph, root, reticulationNumber, numberOfReticulations, w)) {
+            nodeStack.push(root);
+            edgeStack.push(root.outEdges().iterator());
+        }
+
+        while (!nodeStack.isEmpty()) {
+            final Node v = nodeStack.peek();
+            final Iterator<Edge> it = edgeStack.peek();
+            if (it.hasNext()) {
+                final Edge e = it.next();
+                if (e != v.getFirstOutEdge())
+                    w.write(',');
+                final Node u = e.getTarget();
+                if (open(graph, u, reticulationNumber, numberOfReticulations, w)) {
+                    nodeStack.push(u);
+                    edgeStack.push(u.outEdges().iterator());
+                }
+            } else {
+                nodeStack.pop();
+                edgeStack.pop();
+                w.write(')');
+                writeLabel(graph, v, reticulationNumber, w);
+            }
+        }
+    }
+
+    /**
+     * start writing a node
+     *
+     * @return true, if the children of the node must be written next
+     */
+    private static boolean open(PhyloTree graph, Node v, NodeIntArray reticulationNumber, int[] numberOfReticulations, Writer w) throws IOException {
+        if (v.getInDegree() > 1) {
+            if (reticulationNumber.getInt(v) > 0) { // seen before, only write tag
+                writeLabel(graph, v, reticulationNumber, w);
+                return false;
+            }
+            reticulationNumber.set(v, ++numberOfReticulations[0]);
+        }
+        if (v.getOutDegree() > 0) {
+            w.write('(');
+            return true;
+        } else {
+            writeLabel(graph, v, reticulationNumber, w);
+            return false;
+        }
+    }
+
+    private static void writeLabel(PhyloTree graph, Node v, NodeIntArray reticulationNumber, Writer w) throws IOException {
+        final String label = graph.getLabel(v);
+        if (label != null && !label.isEmpty())
+            writeQuotedIfNecessary(label, w);
+        if (v.getInDegree() > 1) {
+            w.write("#H");
+            w.write(String.valueOf(reticulationNumber.getInt(v)));
+        }
+    }
+
+    private static void writeQuotedIfNecessary(String label, Writer w) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < label.length() && !quote; i++) {
+            final char ch = label.charAt(i);
+            quote = (Character.isWhitespace(ch) || "()[]{}:;,'#".indexOf(ch) != -1);
+        }
+        if (quote) {
+            w.write('\'');
+            w.write(label.replace("'", "''"));
+            w.write('\'');
+        } else
+            w.write(label);
+    }
+
+    /**
+     * a writer that collects text up to a maximum length, beyond which further text is dropped
+     */
+    public static class BoundedStringWriter extends Writer {
+        private final StringBuilder buf = new StringBuilder();
+        private final int maxLength;
+        private boolean overflow = false;
+
+        public BoundedStringWriter(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            if (!overflow) {
+                if (buf.length() + len > maxLength)
+                    overflow = true;
+                else
+                    buf.append(chars, off, len);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            if (!overflow) {
+                if (buf.length() + len > maxLength)
+                    overflow = true;
+                else
+                    buf.append(str, off, off + len);
+            }
+        }
+
+        @Override
+        public void write(int c) {
+            if (!overflow) {
+                if (buf.length() + 1 > maxLength)
+                    overflow = true;
+                else
+                    buf.append((char) c);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * @return true, if text has been dropped because the maximum length was exceeded
+         */
+        public boolean isOverflow() {
+            return overflow;
+        }
+
+        @Override
+        public String toString() {
+            return buf.toString();
+        }
+    }
+}
@@ -22,13 +22,12 @@ package phylosketch.io;
 
 import jloda.fx.util.RecentFilesManager;
 import jloda.fx.window.MainWindowManager;
-import jloda.fx.window.NotificationManager;
 import jloda.util.FileUtils;
 import phylosketch.util.NewWindow;
 import phylosketch.window.MainWindow;
 
 import java.io.File;
-import java.io.IOException;
+import java.io.FileReader;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -41,24 +40,33 @@ public class PhyloSketchFileOpener implements Consumer<String> {
     @Override
     public void accept(String fileName) {
         MainWindow window = (MainWindow) MainWindowManager.getInstance().getLastFocusedMainWindow();
-        if (window == null || !window.isEmpty())
+        if (window == null || !window.isEmpty() || window.getView().isBusy())
             window = NewWindow.apply();
-        else
-            window.getView().getUndoManager().clear();
 
 		String firstLine = Objects.requireNonNull(FileUtils.getFirstLineFromFile(new File(fileName))).trim().toLowerCase();
-        try {
-            if (firstLine.startsWith("#nexus"))
-                PhyloSketchIO.open(window.getController().getContentPane(), window.getView(), new File(fileName));
-            else if (firstLine.startsWith("<nex:nexml") || firstLine.startsWith("<?xml version="))
-                PhyloSketchIO.importNeXML(window.getController().getContentPane(), window.getView(), new File(fileName));
-            else
-                PhyloSketchIO.importNewick(window.getController().getContentPane(), window.getView(), new File(fileName));
-
-            window.getView().setFileName(fileName);
-            RecentFilesManager.getInstance().insertRecentFile(fileName);
-        } catch (IOException e) {
-            NotificationManager.showError("Open file failed: " + e.getMessage());
+        if (firstLine.startsWith("#nexus")) {
+            final MainWindow targetWindow = window;
+            ProgressiveOpen.apply(window, new File(fileName), () -> {
+                targetWindow.getView().getUndoManager().clear();
+                targetWindow.getView().setFileName(fileName);
+                RecentFilesManager.getInstance().insertRecentFile(fileName);
+            });
+            return;
         }
+        final MainWindow targetWindow = window;
+        final File file = new File(fileName);
+        final BackgroundImport.Parser parser;
+        if (firstLine.startsWith("<nex:nexml") || firstLine.startsWith("<?xml version="))
+            parser = () -> NeXMLTreeReader.read(file, 0);
+        else
+            parser = () -> {
+                try (var reader = new FileReader(file)) {
+                    return PhyloSketchIO.readNewick(reader);
+                }
+            };
+        BackgroundImport.apply(window, file.getName(), parser, () -> {
+            targetWindow.getView().setFileName(fileName);
+            RecentFilesManager.getInstance().insertRecentFile(fileName);
+        });
     }
 }
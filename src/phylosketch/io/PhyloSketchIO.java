@@ -24,34 +24,33 @@ import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.CubicCurve;
+import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import jloda.fx.control.RichTextLabel;
 import jloda.fx.shapes.NodeShape;
-import jloda.fx.util.FontUtils;
+import jloda.fx.window.NotificationManager;
 import jloda.graph.Edge;
 import jloda.graph.Node;
 import jloda.phylo.PhyloTree;
 import jloda.phylo.algorithms.RootedNetworkProperties;
 import jloda.util.*;
 import jloda.util.parse.NexusStreamParser;
-import org.xml.sax.SAXException;
-import phylosketch.embed.RootedNetworkEmbedder;
 import phylosketch.view.EdgeView;
 import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
+import phylosketch.view.StyleTable;
 import splitstree5.core.datablocks.NetworkBlock;
 import splitstree5.core.datablocks.TaxaBlock;
-import splitstree5.io.imports.nexml.handlers.NexmlTreesHandler;
 import splitstree5.io.nexus.NetworkNexusInput;
 import splitstree5.io.nexus.NetworkNexusOutput;
 import splitstree5.io.nexus.TaxaNexusInput;
 import splitstree5.io.nexus.TaxaNexusOutput;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 
 /**
@@ -81,24 +80,25 @@ public class PhyloSketchIO {
             nodeData.put("y", String.format("%.2f", nodeView.getTranslateY()));
             nodeData.put("w", String.format("%.2f", nodeView.getWidth()));
             nodeData.put("h", String.format("%.2f", nodeView.getHeight()));
-			if (!NumberUtils.equals(nodeView.getLabel().getRotate(), 0, 0.00001)) {
-				nodeData.put("lr", String.format("%.0f", nodeView.getLabel().getRotate()));
+			if (!NumberUtils.equals(nodeView.getLabelAngle(), 0, 0.00001)) {
+				nodeData.put("lr", String.format("%.0f", nodeView.getLabelAngle()));
 			}
 
             nodeData.put("type", NodeShape.getCode(nodeView.getShape()));
             if (nodeView.getShape().getFill() != null)
-				nodeData.put("clr", nodeView.getShape().getFill().toString());
-            final RichTextLabel label = nodeView.getLabel();
-			if (!label.getText().isEmpty()) {
-                nodeData.put("text", label.getText());
-                nodeData.put("lx", String.format("%.2f", label.getLayoutX()));
-                nodeData.put("ly", String.format("%.2f", label.getLayoutY()));
-
-				if (label.getTextFill() != null)
-					nodeData.put("lclr", label.getTextFill().toString());
-
-                if (!label.getFont().equals(PhyloView.DefaultFont))
-                    nodeData.put("font", label.getFont().getFamily() + "," + label.getFont().getStyle() + "," + label.getFont().getSize());
+				nodeData.put("clr", editor.getStyleTable().toString(nodeView.getShape().getFill()));
+			final String text = nodeView.getLabelText();
+			if (text != null && !text.isEmpty()) {
+                nodeData.put("text", text);
+                nodeData.put("lx", String.format("%.2f", nodeView.getLabelLayoutX()));
+                nodeData.put("ly", String.format("%.2f", nodeView.getLabelLayoutY()));
+
+				if (nodeView.getLabelTextFill() != null)
+					nodeData.put("lclr", editor.getStyleTable().toString(nodeView.getLabelTextFill()));
+
+				final Font font = nodeView.getLabelFont();
+                if (!font.equals(PhyloView.DefaultFont))
+                    nodeData.put("font", editor.getStyleTable().toString(font));
             }
         }
 
@@ -113,7 +113,7 @@ public class PhyloSketchIO {
             edgeData.put("c2y", String.format("%.2f", curve.getControlY2()));
             edgeData.put("sw", String.format("%.2f", curve.getStrokeWidth()));
             if (!curve.getStroke().equals(Color.BLACK))
-                edgeData.put("clr", curve.getStroke().toString());
+                edgeData.put("clr", editor.getStyleTable().toString(curve.getStroke()));
             if (!edgeView.getArrowHead().isVisible())
                 edgeData.put("arw", "false");
         }
@@ -134,8 +134,12 @@ public class PhyloSketchIO {
         editor.setFileName(selectedFile.getPath());
     }
 
-    public static void open(Pane mainPane, PhyloView editor, File selectedFile) throws IOException {
-        final PhyloTree graph = editor.getGraph();
+    /**
+     * parse a file into the given graph, does not touch any views and so can be run off the FX thread
+     *
+     * @return network block containing the node and edge data
+     */
+    public static NetworkBlock parse(File selectedFile, PhyloTree graph) throws IOException {
         graph.clear();
 
         final TaxaBlock taxaBlock = new TaxaBlock();
@@ -148,96 +152,96 @@ public class PhyloSketchIO {
 			taxaInput.parse(np, taxaBlock);
 			networkInput.parse(np, taxaBlock, networkBlock);
 		}
+        return networkBlock;
+    }
 
-        for (Node v : graph.nodes()) {
-			final NetworkBlock.NodeData nodeData = networkBlock.getNodeData(v);
-			final NodeView nodeView = editor.addNode(v, mainPane, NumberUtils.parseDouble(nodeData.get("x")), NumberUtils.parseDouble(nodeData.get("y")));
-
-            if (nodeData.get("type") != null) {
-				NodeShape nodeShape = StringUtils.valueOfMatchingSubsequence(NodeShape.class, nodeData.get("type"));
-                if (nodeShape != null && nodeShape != editor.getNodeView(v).getNodeShape())
-                    nodeView.changeShape(nodeShape);
-                if (nodeShape == NodeShape.None) {
-                    nodeView.setWidth(1);
-                    nodeView.setHeight(1);
-                } else {
-					final double w = NumberUtils.parseDouble(nodeData.get("w"));
-					final double h = NumberUtils.parseDouble(nodeData.get("h"));
-					if (w > 0)
-						nodeView.setWidth(w);
-					if (h > 0)
-						nodeView.setHeight(h);
-				}
-            }
+    /**
+     * add the view for a node of the editor's graph, as described by the node data
+     */
+    public static NodeView addNode(Pane mainPane, PhyloView editor, Node v, NetworkBlock.NodeData nodeData) {
+        final PhyloTree graph = editor.getGraph();
+        final NodeView nodeView = editor.addNode(v, mainPane, NumberUtils.parseDouble(nodeData.get("x")), NumberUtils.parseDouble(nodeData.get("y")));
+
+        if (nodeData.get("type") != null) {
+			NodeShape nodeShape = StringUtils.valueOfMatchingSubsequence(NodeShape.class, nodeData.get("type"));
+            if (nodeShape != null && nodeShape != editor.getNodeView(v).getNodeShape())
+                nodeView.changeShape(nodeShape);
+            if (nodeShape == NodeShape.None) {
+                nodeView.setWidth(1);
+                nodeView.setHeight(1);
+            } else {
+				final double w = NumberUtils.parseDouble(nodeData.get("w"));
+				final double h = NumberUtils.parseDouble(nodeData.get("h"));
+				if (w > 0)
+					nodeView.setWidth(w);
+				if (h > 0)
+					nodeView.setHeight(h);
+			}
+        }
 
-            if (nodeData.get("clr") != null) {
-                nodeView.getShape().setFill(Color.valueOf(nodeData.get("clr")));
-            }
+        if (nodeData.get("clr") != null) {
+            nodeView.getShape().setFill(editor.getStyleTable().parseColor(nodeData.get("clr")));
+        }
 
 
-            if (nodeData.get("text") != null) {
-				final RichTextLabel label = nodeView.getLabel();
-				label.setText(nodeData.get("text"));
+        if (nodeData.get("text") != null) {
+			// only record the label properties here, the label is created and laid out when first needed
+			graph.setLabel(v, nodeData.get("text"));
+			nodeView.setLabelText(nodeData.get("text"));
 
-				label.setLayoutX(NumberUtils.parseDouble(nodeData.get("lx")));
-				label.setLayoutY(NumberUtils.parseDouble(nodeData.get("ly")));
+			nodeView.setLabelLayout(NumberUtils.parseDouble(nodeData.get("lx")), NumberUtils.parseDouble(nodeData.get("ly")));
 
-				if (nodeData.get("font") != null) {
-					final String[] tokens = StringUtils.split(nodeData.get("font"), ',');
-					if (tokens.length == 3 && NumberUtils.isDouble(tokens[2])) {
-						label.setFont(FontUtils.font(tokens[0], tokens[1], NumberUtils.parseDouble(tokens[2])));
-					}
-				}
-				if (nodeData.get("lclr") != null) {
-					label.setTextFill(Color.valueOf(nodeData.get("lclr")));
-				}
+			if (nodeData.get("font") != null) {
+				final Font font = editor.getStyleTable().parseFont(nodeData.get("font"));
+				if (font != null)
+					nodeView.setLabelFont(font);
+			}
+			if (nodeData.get("lclr") != null) {
+				nodeView.setLabelTextFill(editor.getStyleTable().parseColor(nodeData.get("lclr")));
+			}
 
-                if (nodeData.get("lr") != null) {
-					label.setRotate(NumberUtils.parseDouble(nodeData.get("lr")));
-                }
+            if (nodeData.get("lr") != null) {
+				nodeView.setLabelAngle(NumberUtils.parseDouble(nodeData.get("lr")));
             }
         }
+        return nodeView;
+    }
 
-        for (Edge e : graph.edges()) {
-            final NetworkBlock.EdgeData edgeData = networkBlock.getEdgeData(e);
-            if (edgeData.get("type").equals("CC")) {
-				editor.addEdge(e);
-				final EdgeView edgeView = editor.getEdgeView(e);
-				final double c1x = NumberUtils.parseDouble(edgeData.get("c1x"));
-				final double c1y = NumberUtils.parseDouble(edgeData.get("c1y"));
-				final double c2x = NumberUtils.parseDouble(edgeData.get("c2x"));
-				final double c2y = NumberUtils.parseDouble(edgeData.get("c2y"));
-				edgeView.setControlCoordinates(new double[]{c1x, c1y, c2x, c2y});
-
-				if (edgeData.get("clr") != null) {
-					edgeView.getCurve().setStroke(Color.valueOf(edgeData.get("clr")));
-				}
-
-				if (edgeData.get("sw") != null) {
-					final double sw = NumberUtils.parseDouble(edgeData.get("sw"));
-					if (sw > 0)
-						edgeView.getCurve().setStrokeWidth(sw);
-                }
-                if (edgeData.get("arw") != null) {
-					edgeView.getArrowHead().setVisible(NumberUtils.parseBoolean(edgeData.get("arw")));
-                }
+    /**
+     * add the view for an edge of the editor's graph, as described by the edge data
+     */
+    public static void addEdge(PhyloView editor, Edge e, NetworkBlock.EdgeData edgeData) {
+        if (edgeData.get("type").equals("CC")) {
+			editor.addEdge(e);
+			final EdgeView edgeView = editor.getEdgeView(e);
+			final double c1x = NumberUtils.parseDouble(edgeData.get("c1x"));
+			final double c1y = NumberUtils.parseDouble(edgeData.get("c1y"));
+			final double c2x = NumberUtils.parseDouble(edgeData.get("c2x"));
+			final double c2y = NumberUtils.parseDouble(edgeData.get("c2y"));
+			edgeView.setControlCoordinates(new double[]{c1x, c1y, c2x, c2y});
+
+			if (edgeData.get("clr") != null) {
+				edgeView.getCurve().setStroke(editor.getStyleTable().parseColor(edgeData.get("clr")));
 			}
-		}
-	}
 
-	public static void importNewick(Pane contentPane, PhyloView view, File selectedFile) throws IOException {
-		try (var reader = new FileReader(selectedFile)) {
-			importNewick(contentPane, view, reader);
+			if (edgeData.get("sw") != null) {
+				final double sw = NumberUtils.parseDouble(edgeData.get("sw"));
+				if (sw > 0)
+					edgeView.getCurve().setStrokeWidth(sw);
+            }
+            if (edgeData.get("arw") != null) {
+				edgeView.getArrowHead().setVisible(NumberUtils.parseBoolean(edgeData.get("arw")));
+            }
 		}
-	}
+    }
 
-	public static void importNewick(Pane contentPane, PhyloView view, Reader reader) throws IOException {
+	/**
+	 * read a tree or network in extended Newick format, does not involve any views
+	 */
+	public static PhyloTree readNewick(Reader reader) throws IOException {
 		final var tree = new PhyloTree();
 		tree.read(reader);
-		final var graph = view.getGraph();
-		var map = graph.copy(tree);
-		map.close();
-		RootedNetworkEmbedder.apply(contentPane, view, RootedNetworkEmbedder.Orientation.leftRight);
+		return tree;
 	}
 
 	/**
@@ -254,48 +258,81 @@ public class PhyloSketchIO {
                 new FileChooser.ExtensionFilter("Text", "*.txt"));
         File selectedFile = fileChooser.showSaveDialog(owner);
         if (selectedFile != null) {
-            try (BufferedWriter w = new BufferedWriter(new FileWriter(selectedFile))) {
-				for (Node root : RootedNetworkProperties.findRoots(editor.getGraph())) {
-					editor.getGraph().setRoot(root);
-					editor.getGraph().write(w, false);
-					w.write(";\n");
-				}
+            final NewickWriter.BoundedStringWriter clipboardWriter = new NewickWriter.BoundedStringWriter(ProgramProperties.get("MaxClipboardNewickLength", 10000000));
+            try (FileChannel channel = FileChannel.open(selectedFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 BufferedWriter w = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16)) {
+                NewickWriter.write(editor.getGraph(), new TeeWriter(w, clipboardWriter));
+                ProgramProperties.put("ExportDir", selectedFile.getParent());
+            } catch (IOException ex) {
+                NotificationManager.showError("Export Newick failed: " + ex.getMessage());
+                return;
+            }
+            if (!clipboardWriter.isOverflow()) {
                 final ClipboardContent clipboardContent = new ClipboardContent();
-                clipboardContent.putString(w.toString());
+                clipboardContent.putString(clipboardWriter.toString());
                 Clipboard.getSystemClipboard().setContent(clipboardContent);
-
-                ProgramProperties.put("ExportDir", selectedFile.getParent());
-            } catch (IOException ignored) {
             }
         }
     }
 
     /**
-     * Import NeXML tree
-     *
-	 */
-    public static void importNeXML(Pane contentPane, PhyloView view, File selectedFile) throws IOException {
+     * copy the network in extended Newick format to the clipboard
+     */
+    public static void copyNewick(PhyloView editor) {
+        final NewickWriter.BoundedStringWriter w = new NewickWriter.BoundedStringWriter(ProgramProperties.get("MaxClipboardNewickLength", 10000000));
+        try {
+            NewickWriter.write(editor.getGraph(), w);
+        } catch (IOException ignored) { // doesn't happen
+        }
+        if (w.isOverflow())
+            NotificationManager.showWarning("Network too large to copy to clipboard, use Export instead");
+        else {
+            final ClipboardContent clipboardContent = new ClipboardContent();
+            clipboardContent.putString(w.toString());
+            Clipboard.getSystemClipboard().setContent(clipboardContent);
+        }
+    }
 
-        PhyloTree tree = new PhyloTree();
+    /**
+     * writes to two writers at once
+     */
+    private static class TeeWriter extends Writer {
+        private final Writer first;
+        private final Writer second;
+
+        public TeeWriter(Writer first, Writer second) {
+            this.first = first;
+            this.second = second;
+        }
 
-        try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser saxParser;
-            saxParser = factory.newSAXParser();
-            NexmlTreesHandler handler = new NexmlTreesHandler();
-            saxParser.parse(selectedFile, handler);
-
-            //for (PhyloTree t : handler.getTrees())
-            //trees.getTrees().add(t);
-            tree = handler.getTrees().get(0);
-
-        } catch (ParserConfigurationException | SAXException e) {
-            e.printStackTrace();
+        @Override
+        public void write(char[] chars, int off, int len) throws IOException {
+            first.write(chars, off, len);
+            second.write(chars, off, len);
         }
 
-        final PhyloTree graph = view.getGraph();
-        graph.copy(tree);
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            first.write(str, off, len);
+            second.write(str, off, len);
+        }
 
-        RootedNetworkEmbedder.apply(contentPane, view, RootedNetworkEmbedder.Orientation.leftRight);
+        @Override
+        public void write(int c) throws IOException {
+            first.write(c);
+            second.write(c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            first.close();
+            second.close();
+        }
     }
 }
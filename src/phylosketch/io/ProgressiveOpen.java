@@ -0,0 +1,153 @@
+/*
+ * ProgressiveOpen.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.io;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.Pane;
+import jloda.fx.util.AService;
+import jloda.fx.util.ProgramProperties;
+import jloda.fx.window.NotificationManager;
+import jloda.graph.Edge;
+import jloda.graph.EdgeArray;
+import jloda.graph.Node;
+import jloda.graph.NodeArray;
+import jloda.phylo.PhyloTree;
+import jloda.util.Pair;
+import phylosketch.view.PhyloView;
+import phylosketch.window.MainWindow;
+import splitstree5.core.datablocks.NetworkBlock;
+
+import java.io.File;
+
+/**
+ * opens a file progressively: the file is parsed in a background thread and the nodes and edges are then added to the
+ * view in batches during successive pulses, so that the window stays responsive while a large file is loaded
+ * Daniel Huson, 10.2026
+ */
+public class ProgressiveOpen {
+    /**
+     * open the file in the given window
+     *
+     * @param onSucceeded run once all nodes and edges have been added
+     */
+    public static void apply(MainWindow window, File file, Runnable onSucceeded) {
+        final FlowPane statusFlowPane = window.getController().getStatusFlowPane();
+
+        final AService<Pair<PhyloTree, NetworkBlock>> service = new AService<>(statusFlowPane);
+        service.setCallable(() -> {
+            service.getProgressListener().setTasks("Opening", file.getName());
+            final PhyloTree tree = new PhyloTree();
+            final NetworkBlock networkBlock = PhyloSketchIO.parse(file, tree);
+            return new Pair<>(tree, networkBlock);
+        });
+        service.setOnFailed(c -> {
+            window.getView().setBusy(false);
+            NotificationManager.showError("Open file failed: " + service.getException().getMessage());
+        });
+        service.setOnCancelled(c -> window.getView().setBusy(false));
+        service.setOnSucceeded(c -> new Populator(window, service.getValue().getFirst(), service.getValue().getSecond(), onSucceeded).start());
+
+        // the view stays busy until the populator is done, so that nothing can be edited or opened into the half-built view:
+        window.getView().setBusy(true);
+        service.start();
+    }
+
+    /**
+     * adds node and edge views in batches, each batch is limited by a time budget per pulse
+     */
+    private static class Populator extends AnimationTimer {
+        private final MainWindow window;
+        private final PhyloView view;
+        private final Pane contentPane;
+        private final NetworkBlock networkBlock;
+        private final Runnable onSucceeded;
+
+        private final Node[] nodes;
+        private final Edge[] edges;
+        private final NodeArray<Node> oldNode2NewNode;
+        private final EdgeArray<Edge> oldEdge2NewEdge;
+        private int nextNode = 0;
+        private int nextEdge = 0;
+
+        private final long timeBudget = 1000000L * ProgramProperties.get("ProgressiveOpenMillisPerPulse", 10);
+
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Button cancelButton = new Button("Cancel");
+
+        public Populator(MainWindow window, PhyloTree tree, NetworkBlock networkBlock, Runnable onSucceeded) {
+            this.window = window;
+            this.view = window.getView();
+            this.contentPane = window.getController().getContentPane();
+            this.networkBlock = networkBlock;
+            this.onSucceeded = onSucceeded;
+
+            oldNode2NewNode = new NodeArray<>(tree);
+            oldEdge2NewEdge = new EdgeArray<>(tree);
+            // one transaction, so that listeners of the graph are notified once, not once per copied node and edge:
+            view.batchUpdate(() -> {
+                view.clear();
+                view.getGraph().copy(tree, oldNode2NewNode, oldEdge2NewEdge);
+            });
+
+            nodes = tree.getNodesAsList().toArray(new Node[0]);
+            edges = tree.getEdgesAsList().toArray(new Edge[0]);
+
+            cancelButton.setOnAction(e -> {
+                stop();
+                view.batchUpdate(view::clear);
+                finish();
+            });
+        }
+
+        @Override
+        public void start() {
+            window.getController().getStatusFlowPane().getChildren().addAll(progressBar, cancelButton);
+            super.start();
+        }
+
+        @Override
+        public void handle(long now) {
+            final long start = System.nanoTime();
+            while (nextNode < nodes.length && System.nanoTime() - start < timeBudget) {
+                final Node v = nodes[nextNode++];
+                PhyloSketchIO.addNode(contentPane, view, oldNode2NewNode.get(v), networkBlock.getNodeData(v));
+            }
+            while (nextNode == nodes.length && nextEdge < edges.length && System.nanoTime() - start < timeBudget) {
+                final Edge e = edges[nextEdge++];
+                PhyloSketchIO.addEdge(view, oldEdge2NewEdge.get(e), networkBlock.getEdgeData(e));
+            }
+            progressBar.setProgress((double) (nextNode + nextEdge) / Math.max(1, nodes.length + edges.length));
+
+            if (nextNode == nodes.length && nextEdge == edges.length) {
+                stop();
+                finish();
+                onSucceeded.run();
+            }
+        }
+
+        private void finish() {
+            window.getController().getStatusFlowPane().getChildren().removeAll(progressBar, cancelButton);
+            view.setBusy(false);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * LayoutBenchmark.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.main;
+
+import phylosketch.embed.CladogramLayout;
+
+import java.util.Random;
+
+/**
+ * reports the time taken by the rectangular, radial and circular cladogram layouts and the rectangular
+ * phylogram layout on random trees,
+ * no graph or scene classes are involved
+ * Usage: LayoutBenchmark [maxNumberOfLeaves [runs]], defaults are 1000000 and 3. Trees of 1000, 10000,... leaves up
+ * to the maximum are laid out
+ * Daniel Huson, 10.2026
+ */
+public class LayoutBenchmark {
+    public static void main(String[] args) {
+        final int maxNumberOfLeaves = (args.length > 0 ? Integer.parseInt(args[0]) : 1000000);
+        final int runs = (args.length > 1 ? Integer.parseInt(args[1]) : 3);
+
+        for (int numberOfLeaves = 1000; numberOfLeaves <= maxNumberOfLeaves; numberOfLeaves *= 10) {
+            final CladogramLayout.Network network = randomBinaryTree(numberOfLeaves, new Random(666));
+            final double[] edgeWeights = new Random(666).doubles(network.getNumberOfEdges()).toArray();
+            for (String mode : new String[]{"rectangular", "radial", "circular", "phylogram"}) {
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < runs; run++) {
+                    final long start = System.nanoTime();
+                    final double[] locations;
+                    final double[] controlPoints;
+                    switch (mode) {
+                        case "radial" -> {
+                            locations = CladogramLayout.computeRadialNodeLocations(network);
+                            controlPoints = CladogramLayout.computeRadialEdgeControlPoints(network, locations);
+                            CladogramLayout.normalize(locations, controlPoints);
+                        }
+                        case "circular" -> {
+                            locations = CladogramLayout.computeCircularNodeLocations(network);
+                            controlPoints = CladogramLayout.computeCircularEdgeControlPoints(network, locations);
+                            CladogramLayout.normalize(locations, controlPoints);
+                        }
+                        case "phylogram" -> {
+                            locations = CladogramLayout.computeNodeLocations(network, CladogramLayout.computePhylogramDepths(network, edgeWeights, false));
+                            controlPoints = CladogramLayout.computeEdgeControlPoints(network, locations);
+                        }
+                        default -> {
+                            locations = CladogramLayout.computeNodeLocations(network);
+                            controlPoints = CladogramLayout.computeEdgeControlPoints(network, locations);
+                        }
+                    }
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.err.printf("%-12s %,10d leaves: %,8.1f ms (best of %d)%n", mode + ":", numberOfLeaves, best / 1000000.0, runs);
+            }
+        }
+    }
+
+    /**
+     * random binary tree, obtained by repeatedly splitting a random leaf. Node 0 is the root and the LSA tree is the tree itself
+     */
+    private static CladogramLayout.Network randomBinaryTree(int numberOfLeaves, Random random) {
+        final int numberOfNodes = 2 * numberOfLeaves - 1;
+        final int[] edgeSource = new int[numberOfNodes - 1];
+        final int[] edgeTarget = new int[numberOfNodes - 1];
+        final int[] leaves = new int[numberOfLeaves];
+        int leafCount = 1;
+        int nodeCount = 1;
+        int edgeCount = 0;
+        while (leafCount < numberOfLeaves) {
+            final int i = random.nextInt(leafCount);
+            final int v = leaves[i];
+            for (int k = 0; k < 2; k++) {
+                edgeSource[edgeCount] = v;
+                edgeTarget[edgeCount++] = nodeCount;
+                if (k == 0)
+                    leaves[i] = nodeCount++;
+                else
+                    leaves[leafCount++] = nodeCount++;
+            }
+        }
+        final int[] lsaStart = new int[numberOfNodes + 1];
+        for (int e = 0; e < edgeCount; e++)
+            lsaStart[edgeSource[e] + 1]++;
+        for (int v = 0; v < numberOfNodes; v++)
+            lsaStart[v + 1] += lsaStart[v];
+        final int[] next = lsaStart.clone();
+        final int[] lsaChildren = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++)
+            lsaChildren[next[edgeSource[e]]++] = edgeTarget[e];
+        return new CladogramLayout.Network(numberOfNodes, 0, edgeSource, edgeTarget, null, false, lsaStart, lsaChildren);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * PhyloSketchBatch.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.main;
+
+import jloda.fx.util.ArgsOptions;
+import jloda.fx.util.ProgramProperties;
+import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+import jloda.util.Basic;
+import jloda.util.CanceledException;
+import jloda.util.FileUtils;
+import jloda.util.StringUtils;
+import jloda.util.UsageException;
+import phylosketch.embed.RootedNetworkEmbedder;
+import phylosketch.io.FigureWriter;
+import phylosketch.io.PhyloSketchIO;
+import splitstree5.core.datablocks.NetworkBlock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * command-line program that lays out networks and writes them as figures or PhyloSketch files, without starting the GUI
+ * Input files are given in Newick or nexus format, either singly or as a directory, and are processed in parallel,
+ * one file per thread. Only the first network of each file is used
+ * Daniel Huson, 10.2026
+ */
+public class PhyloSketchBatch {
+    private static final String[] INPUT_SUFFIXES = {".tre", ".tree", ".trees", ".new", ".nwk", ".newick", ".nex", ".nexus", ".nxs", ".sptree5"};
+
+    /**
+     * main
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        ProgramProperties.setUseGUI(false);
+        ProgramProperties.setProgramName(Version.NAME);
+        ProgramProperties.setProgramVersion(Version.SHORT_DESCRIPTION);
+
+        try {
+            final int failed = run(args);
+            System.exit(failed == 0 ? 0 : 1);
+        } catch (Throwable th) {
+            //catch any exceptions and the like that propagate up to the top level
+            if (th.getMessage() == null || !th.getMessage().startsWith("Help")) {
+                System.err.println("Fatal error:" + "\n" + th);
+                Basic.caught(th);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * parse the arguments and process all input files
+     *
+     * @return number of files that could not be processed
+     */
+    private static int run(String[] args) throws CanceledException, UsageException, InterruptedException {
+        final ArgsOptions options = new ArgsOptions(args, PhyloSketchBatch.class, Version.NAME + " - batch layout of phylogenetic trees and networks");
+        options.setAuthors("Daniel H. Huson");
+        options.setVersion(ProgramProperties.getProgramVersion());
+
+        options.comment("Input and output:");
+        final String input = options.getOptionMandatory("-i", "input", "Input file or directory of files in Newick or nexus format", "");
+        final String outputDirectory = options.getOption("-o", "output", "Output directory (default: directory of input file)", "");
+        final String formatName = options.getOption("-f", "format", "Output format: " + StringUtils.toString(FigureWriter.Format.values(), ", "), FigureWriter.Format.svg.name());
+
+        options.comment("Layout:");
+        final String orientationName = options.getOption("-l", "layout", "Layout: " + StringUtils.toString(RootedNetworkEmbedder.Orientation.values(), ", "), RootedNetworkEmbedder.Orientation.leftRight.name());
+        final String scalingName = options.getOption("-s", "scaling", "Scaling: " + StringUtils.toString(RootedNetworkEmbedder.Scaling.values(), ", "), RootedNetworkEmbedder.Scaling.cladogram.name());
+        final long optimizeMillis = options.getOption("-m", "optimize", "Time in milliseconds spent per network on reducing the span of reticulate edges", 0);
+
+        options.comment("Other:");
+        final int threads = options.getOption("-t", "threads", "Number of files to process in parallel (0=all available cores)", 0);
+        options.done();
+
+        final FigureWriter.Format format = StringUtils.valueOfIgnoreCase(FigureWriter.Format.class, formatName);
+        if (format == null)
+            throw new UsageException("Unknown format: " + formatName);
+        final RootedNetworkEmbedder.Orientation orientation = StringUtils.valueOfIgnoreCase(RootedNetworkEmbedder.Orientation.class, orientationName);
+        if (orientation == null)
+            throw new UsageException("Unknown layout: " + orientationName);
+        final RootedNetworkEmbedder.Scaling scaling = StringUtils.valueOfIgnoreCase(RootedNetworkEmbedder.Scaling.class, scalingName);
+        if (scaling == null)
+            throw new UsageException("Unknown scaling: " + scalingName);
+
+        final List<File> inputFiles = getInputFiles(new File(input));
+        if (inputFiles.isEmpty())
+            throw new UsageException("No input files found: " + input);
+        if (!outputDirectory.isEmpty() && !new File(outputDirectory).isDirectory() && !new File(outputDirectory).mkdirs())
+            throw new UsageException("Can't create output directory: " + outputDirectory);
+
+        final long start = System.currentTimeMillis();
+        final AtomicInteger failed = new AtomicInteger();
+        final int numberOfThreads = Math.max(1, Math.min(inputFiles.size(), threads > 0 ? threads : Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            for (File inputFile : inputFiles) {
+                final File outputFile = new File(outputDirectory.isEmpty() ? inputFile.getAbsoluteFile().getParent() : outputDirectory,
+                        FileUtils.replaceFileSuffix(inputFile.getName(), "." + format.name()));
+                executor.submit(() -> {
+                    try {
+                        apply(inputFile, outputFile, orientation, scaling, optimizeMillis, format);
+                    } catch (Throwable th) { // also count errors such as OutOfMemoryError or StackOverflowError as failures
+                        System.err.println(inputFile.getPath() + ": " + (th.getMessage() != null ? th.getMessage() : th));
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+        System.err.printf("Wrote %,d of %,d files (%.1f s)%n", inputFiles.size() - failed.get(), inputFiles.size(), (System.currentTimeMillis() - start) / 1000.0);
+        return failed.get();
+    }
+
+    /**
+     * read, lay out and write one network
+     */
+    public static void apply(File inputFile, File outputFile, RootedNetworkEmbedder.Orientation orientation, RootedNetworkEmbedder.Scaling scaling,
+                             long optimizeMillis, FigureWriter.Format format) throws IOException {
+        if (outputFile.getAbsoluteFile().equals(inputFile.getAbsoluteFile()))
+            throw new IOException("Output file would overwrite input file");
+
+        final PhyloTree graph = read(inputFile);
+        // files are processed in parallel, so each optimization uses a single thread:
+        final RootedNetworkEmbedder.Layout layout = RootedNetworkEmbedder.computeLayout(graph, orientation, scaling, optimizeMillis, 1);
+        if (layout == null)
+            throw new IOException("Network has no root");
+        FigureWriter.write(graph, layout, orientation, format, outputFile);
+    }
+
+    /**
+     * read the first network contained in a file in nexus or Newick format
+     */
+    private static PhyloTree read(File file) throws IOException {
+        if (isNexus(file)) {
+            final PhyloTree graph = new PhyloTree();
+            final NetworkBlock networkBlock = PhyloSketchIO.parse(file, graph);
+            for (Node v : graph.nodes()) {
+                final String text = networkBlock.getNodeData(v).get("text");
+                if (text != null && graph.getLabel(v) == null)
+                    graph.setLabel(v, text);
+            }
+            return graph;
+        } else {
+            try (FileReader reader = new FileReader(file)) {
+                return PhyloSketchIO.readNewick(reader);
+            }
+        }
+    }
+
+    private static boolean isNexus(File file) throws IOException {
+        try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isBlank())
+                    return line.trim().toLowerCase().startsWith("#nexus");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the given file, or all files of the given directory that have a known suffix
+     */
+    private static List<File> getInputFiles(File input) {
+        final List<File> files = new ArrayList<>();
+        if (input.isDirectory()) {
+            final File[] contents = input.listFiles();
+            if (contents != null) {
+                Arrays.sort(contents);
+                for (File file : contents) {
+                    final String name = file.getName().toLowerCase();
+                    if (file.isFile() && !file.isHidden() && Arrays.stream(INPUT_SUFFIXES).anyMatch(name::endsWith))
+                        files.add(file);
+                }
+            }
+        } else if (input.isFile())
+            files.add(input);
+        return files;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * UndoMemoryBenchmark.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.main;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.stage.Stage;
+import jloda.fx.undo.UndoableRedoableCommand;
+import jloda.fx.util.ProgramProperties;
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+import jloda.util.Basic;
+import jloda.util.IteratorUtils;
+import phylosketch.commands.ChangeEdgeShapeCommand;
+import phylosketch.commands.LayoutCommand;
+import phylosketch.commands.MoveSelectedNodesCommand;
+import phylosketch.commands.UndoHistoryBudget;
+import phylosketch.embed.RootedNetworkEmbedder;
+import phylosketch.view.PhyloView;
+import phylosketch.window.MainWindow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * reports the heap held by the undo stack after repeated edits of a large network: moves of all nodes, shape changes
+ * of all edges and layouts of the whole network. The commands are created on a main window that is not shown, from
+ * the same arguments that the editor passes, and are kept in a list, like the undo stack. Their own estimates of
+ * their memory footprints, which the undo history budget uses, are reported alongside
+ * Usage: UndoMemoryBenchmark [numberOfNodes [numberOfEdits]], defaults are 50000 and 100
+ * Daniel Huson, 10.2026
+ */
+public class UndoMemoryBenchmark extends Application {
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
+        ProgramProperties.setProgramName(Version.NAME);
+        final List<String> args = getParameters().getRaw();
+        final int numberOfNodes = (args.size() > 0 ? Integer.parseInt(args.get(0)) : 50000);
+        final int numberOfEdits = (args.size() > 1 ? Integer.parseInt(args.get(1)) : 100);
+        try {
+            run(numberOfNodes, numberOfEdits);
+        } catch (Throwable th) {
+            Basic.caught(th);
+        } finally {
+            Platform.exit();
+        }
+    }
+
+    private static void run(int numberOfNodes, int numberOfEdits) {
+        final MainWindow window = new MainWindow();
+        final PhyloView view = window.getView();
+        final PhyloTree graph = view.getGraph();
+
+        // random binary tree, obtained by repeatedly splitting a random leaf:
+        view.batchUpdate(() -> {
+            final Random random = new Random(666);
+            final ArrayList<Node> leaves = new ArrayList<>();
+            leaves.add(graph.newNode());
+            while (graph.getNumberOfNodes() + 2 <= numberOfNodes) {
+                final int i = random.nextInt(leaves.size());
+                final Node v = leaves.get(i);
+                final Node a = graph.newNode();
+                graph.newEdge(v, a);
+                final Node b = graph.newNode();
+                graph.newEdge(v, b);
+                leaves.set(i, a);
+                leaves.add(b);
+            }
+        });
+        RootedNetworkEmbedder.apply(window.getController().getContentPane(), view, RootedNetworkEmbedder.Orientation.leftRight);
+
+        final ObservableList<Node> nodes = FXCollections.observableArrayList(IteratorUtils.asList(graph.nodes()));
+        final List<Edge> edges = IteratorUtils.asList(graph.edges());
+
+        // the control points of all edges before and after moving all nodes, as collected by the editor while dragging:
+        final Map<Integer, double[]> oldControlPoints = new HashMap<>();
+        final Map<Integer, double[]> newControlPoints = new HashMap<>();
+        for (Edge e : edges) {
+            final double[] coordinates = view.getEdgeView(e).getControlCoordinates();
+            oldControlPoints.put(e.getId(), coordinates);
+            newControlPoints.put(e.getId(), new double[]{coordinates[0] + 10, coordinates[1] + 10, coordinates[2] + 10, coordinates[3] + 10});
+        }
+
+        System.err.printf("Network: %,d nodes and %,d edges, %,d edits of each kind%n", graph.getNumberOfNodes(), graph.getNumberOfEdges(), numberOfEdits);
+        report("Move", numberOfEdits, () -> new MoveSelectedNodesCommand(10, 10, view, nodes, oldControlPoints, newControlPoints));
+        report("Edge shape", numberOfEdits, () -> new ChangeEdgeShapeCommand(view, edges, ChangeEdgeShapeCommand.EdgeShape.Straight));
+        report("Layout", numberOfEdits, () -> LayoutCommand.create(view, RootedNetworkEmbedder.Orientation.leftRight));
+    }
+
+    /**
+     * creates the given number of commands, keeps them in a list and reports the heap that they hold
+     */
+    private static void report(String name, int numberOfEdits, Supplier<UndoableRedoableCommand> command) {
+        final ArrayList<UndoableRedoableCommand> undoStack = new ArrayList<>(numberOfEdits);
+        long estimate = 0;
+        final long before = usedHeap();
+        for (int i = 0; i < numberOfEdits; i++) {
+            undoStack.add(command.get());
+            estimate += UndoHistoryBudget.estimate(undoStack.get(i));
+        }
+        final long bytes = usedHeap() - before;
+        System.err.printf("%-12s %,.1f MB undo stack (%,.0f bytes per edit), estimated %,.1f MB%n",
+                name + ":", bytes / 1048576.0, (double) bytes / numberOfEdits, estimate / 1048576.0);
+        undoStack.clear();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -37,12 +37,14 @@ import jloda.util.StringUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.util.Matrix;
+import phylosketch.io.Figure;
 
 import java.io.File;
 import java.io.IOException;
@@ -209,6 +211,55 @@ public class SaveToPDF {
 		document.close();
 	}
 
+	/**
+	 * save a figure to PDF, using a page of the same size as the figure. Does not require a scene, so can be used headless
+	 */
+	public static void apply(Figure figure, File file) throws IOException {
+		file.delete();
+
+		try (var document = new PDDocument()) {
+			var page = new PDPage(new PDRectangle((float) figure.getWidth(), (float) figure.getHeight()));
+			document.addPage(page);
+
+			var pdfMaxY = page.getCropBox().getUpperRightY();
+			Function<Double, Float> py = y -> (float) (pdfMaxY - y);
+
+			try (var contentStream = new PDPageContentStream(document, page)) {
+				contentStream.setStrokingColor(0f, 0f, 0f);
+				contentStream.setLineWidth((float) Figure.EDGE_STROKE_WIDTH);
+				var controlPoints = figure.getControlPoints();
+				for (var e = 0; e < figure.getNumberOfEdges(); e++) {
+					contentStream.moveTo((float) figure.getSourceX(e), py.apply(figure.getSourceY(e)));
+					contentStream.curveTo((float) controlPoints[4 * e], py.apply(controlPoints[4 * e + 1]), (float) controlPoints[4 * e + 2], py.apply(controlPoints[4 * e + 3]),
+							(float) figure.getTargetX(e), py.apply(figure.getTargetY(e)));
+				}
+				contentStream.stroke();
+
+				contentStream.setLineWidth((float) Figure.NODE_STROKE_WIDTH);
+				contentStream.setNonStrokingColor(1f, 1f, 1f);
+				for (var v = 0; v < figure.getNumberOfNodes(); v++) {
+					addCircle(contentStream, (float) figure.getNodeX(v), py.apply(figure.getNodeY(v)), (float) (0.5 * Figure.NODE_SIZE));
+				}
+				contentStream.fillAndStroke();
+
+				var font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+				contentStream.setNonStrokingColor(0f, 0f, 0f);
+				for (var i = 0; i < figure.getNumberOfLabels(); i++) {
+					contentStream.beginText();
+					contentStream.setFont(font, (float) figure.getLabelFontSize(i));
+					contentStream.newLineAtOffset((float) figure.getLabelX(i), py.apply(figure.getLabelBaseline(i)));
+					try {
+						contentStream.showText(figure.getLabelText(i));
+					} catch (IllegalArgumentException ex) { // character not available in standard font
+						contentStream.showText(figure.getLabelText(i).replaceAll("[^\\x20-\\x7E]", "?"));
+					}
+					contentStream.endText();
+				}
+			}
+			document.save(file);
+		}
+	}
+
 	private static void setFont(PDPageContentStream contentStream, Text text, float size) throws IOException {
 		contentStream.setFont(convertToPDFBoxFont(text.getFont()), size);
 	}
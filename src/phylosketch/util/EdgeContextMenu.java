@@ -57,7 +57,7 @@ public class EdgeContextMenu {
             straightEdge.setOnAction(z -> view.getUndoManager().doAndAdd(new ChangeEdgeShapeCommand(view, edges, ChangeEdgeShapeCommand.EdgeShape.Straight)));
 
             final MenuItem reshapeEdge = new MenuItem("Reshape Edge");
-            reshapeEdge.setOnAction(z -> view.getUndoManager().doAndAdd(new ChangeEdgeShapeCommand(view, edges, ChangeEdgeShapeCommand.EdgeShape.Reshape)));
+            reshapeEdge.setOnAction(z -> ChangeEdgeShapeCommand.reshape(view, edges));
 
             final MenuItem split = new MenuItem("Split");
             split.setOnAction(s -> view.getUndoManager().doAndAdd(new SplitEdgeCommand(pane, view, e, locationLocation)));
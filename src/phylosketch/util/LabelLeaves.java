@@ -20,6 +20,7 @@
 package phylosketch.util;
 
 import javafx.stage.Stage;
+import jloda.fx.control.RichTextLabel;
 import jloda.graph.Node;
 import jloda.phylo.PhyloTree;
 import jloda.util.Pair;
@@ -44,7 +45,7 @@ public class LabelLeaves {
         final Set<String> seen = new HashSet<>();
         graph.nodeStream().filter(v -> graph.getLabel(v) != null).forEach(v -> seen.add(graph.getLabel(v)));
 
-        return sortLeaves(editor).stream().filter(v -> editor.getLabel(v).getRawText().length() == 0).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getLabel(v).getText(), getNextLabelABC(seen))).collect(Collectors.toList());
+        return sortLeaves(editor).stream().filter(v -> RichTextLabel.getRawText(editor.getNodeView(v).getLabelText()).isEmpty()).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getNodeView(v).getLabelText(), getNextLabelABC(seen))).collect(Collectors.toList());
     }
 
     public static List<ChangeNodeLabelsCommand.Data> labelInternalABC(PhyloView editor) {
@@ -52,7 +53,7 @@ public class LabelLeaves {
 
         final Set<String> seen = new HashSet<>();
         graph.nodeStream().filter(v -> graph.getLabel(v) != null).forEach(v -> seen.add(graph.getLabel(v)));
-        return sortInternal(editor).stream().filter(v -> editor.getLabel(v).getRawText().length() == 0).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getLabel(v).getText(), getNextLabelABC(seen))).collect(Collectors.toList());
+        return sortInternal(editor).stream().filter(v -> RichTextLabel.getRawText(editor.getNodeView(v).getLabelText()).isEmpty()).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getNodeView(v).getLabelText(), getNextLabelABC(seen))).collect(Collectors.toList());
     }
 
     public static List<ChangeNodeLabelsCommand.Data> labelLeaves123(PhyloView editor) {
@@ -60,7 +61,7 @@ public class LabelLeaves {
 
         final Set<String> seen = new HashSet<>();
         graph.nodeStream().filter(v -> graph.getLabel(v) != null).forEach(v -> seen.add(graph.getLabel(v)));
-        return sortLeaves(editor).stream().filter(v -> editor.getLabel(v).getRawText().length() == 0).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getLabel(v).getText(), getNextLabel123(seen))).collect(Collectors.toList());
+        return sortLeaves(editor).stream().filter(v -> RichTextLabel.getRawText(editor.getNodeView(v).getLabelText()).isEmpty()).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getNodeView(v).getLabelText(), getNextLabel123(seen))).collect(Collectors.toList());
     }
 
     public static List<ChangeNodeLabelsCommand.Data> labelInternal123(PhyloView editor) {
@@ -68,7 +69,7 @@ public class LabelLeaves {
 
         final Set<String> seen = new HashSet<>();
         graph.nodeStream().filter(v -> graph.getLabel(v) != null).forEach(v -> seen.add(graph.getLabel(v)));
-        return sortInternal(editor).stream().filter(v -> editor.getLabel(v).getRawText().length() == 0).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getLabel(v).getText(), getNextLabel123(seen))).collect(Collectors.toList());
+        return sortInternal(editor).stream().filter(v -> RichTextLabel.getRawText(editor.getNodeView(v).getLabelText()).isEmpty()).map(v -> new ChangeNodeLabelsCommand.Data(v.getId(), editor.getNodeView(v).getLabelText(), getNextLabel123(seen))).collect(Collectors.toList());
     }
 
     public static void labelLeaves(Stage owner, PhyloView editor) {
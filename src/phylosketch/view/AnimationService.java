@@ -0,0 +1,213 @@
+/*
+ * AnimationService.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.view;
+
+import javafx.animation.AnimationTimer;
+import jloda.fx.util.ProgramProperties;
+
+import java.util.ArrayList;
+
+/**
+ * animates changes of many coordinates on a single animation timer
+ * Each animation interpolates between packed from and to arrays into a reusable buffer and passes the values of
+ * each item to a sink. The work per frame is limited by a time budget: if not all items can be updated in one frame,
+ * the remaining items are updated in the following frames, so that large changes animate without stalling the
+ * application thread.
+ * Starting a new animation first completes all animations that are already running, so that animations of the same
+ * items started by successive edits never overlap. Animations started together, before the next frame, run together.
+ * Daniel Huson, 10.2026
+ */
+public class AnimationService {
+    public static final long DURATION_MILLIS = 500;
+    private static final int BLOCK_SIZE = 256;
+
+    private static AnimationService instance;
+
+    private final ArrayList<Job> jobs = new ArrayList<>();
+    private int nextJob = 0;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulse(now);
+        }
+    };
+
+    /**
+     * receives the current values of an item
+     */
+    public interface Sink {
+        /**
+         * @param item   index of the item
+         * @param values packed values of all items
+         * @param offset offset of the values of the item
+         */
+        void apply(int item, double[] values, int offset);
+    }
+
+    /**
+     * computes the current values for a range of the packed arrays
+     */
+    public interface Interpolation {
+        void interpolate(double[] from, double[] to, double[] current, int start, int end, double t);
+    }
+
+    /**
+     * linear interpolation between from and to
+     */
+    public static final Interpolation LINEAR = (from, to, current, start, end, t) -> {
+        final double s = 1.0 - t;
+        for (int i = start; i < end; i++)
+            current[i] = s * from[i] + t * to[i];
+    };
+
+    private AnimationService() {
+    }
+
+    public static AnimationService getInstance() {
+        if (instance == null)
+            instance = new AnimationService();
+        return instance;
+    }
+
+    /**
+     * animate linearly from one set of values to another
+     *
+     * @param from   packed start values
+     * @param to     packed end values
+     * @param stride number of values per item
+     * @param sink   receives the values of each item
+     */
+    public void play(double[] from, double[] to, int stride, Sink sink) {
+        play(from, to, stride, LINEAR, sink, null);
+    }
+
+    /**
+     * animate from one set of values to another
+     *
+     * @param from          packed start values
+     * @param to            packed end values, must be the result of the interpolation at t=1
+     * @param stride        number of values per item
+     * @param interpolation computes the values for a given time
+     * @param sink          receives the values of each item
+     * @param onFinished    run when all items have reached their end values, or null
+     */
+    public void play(double[] from, double[] to, int stride, Interpolation interpolation, Sink sink, Runnable onFinished) {
+        finish(true);
+        jobs.add(new Job(from, to, stride, interpolation, sink, onFinished));
+        timer.start();
+    }
+
+    /**
+     * immediately set all running animations to their end values
+     */
+    public void finishAll() {
+        finish(false);
+    }
+
+    /**
+     * set animations to their end values
+     *
+     * @param onlyRunning if true, animations that haven't received a frame yet are kept
+     */
+    private void finish(boolean onlyRunning) {
+        final ArrayList<Job> toFinish = new ArrayList<>();
+        for (Job job : jobs) {
+            if (!onlyRunning || job.startTime != 0)
+                toFinish.add(job);
+        }
+        jobs.removeAll(toFinish);
+        if (jobs.isEmpty())
+            timer.stop();
+        for (Job job : toFinish) {
+            job.update(0, job.numberOfItems, 1.0);
+            if (job.onFinished != null)
+                job.onFinished.run();
+        }
+    }
+
+    private void pulse(long now) {
+        final long deadline = System.nanoTime() + 1000000L * ProgramProperties.get("AnimationFrameBudgetMillis", 8);
+
+        for (int count = 0; count < jobs.size() && System.nanoTime() < deadline; count++) {
+            if (nextJob >= jobs.size())
+                nextJob = 0;
+            final Job job = jobs.get(nextJob);
+            if (job.startTime == 0)
+                job.startTime = now;
+            final double t = Math.min(1.0, (now - job.startTime) / (1000000.0 * DURATION_MILLIS));
+
+            while (System.nanoTime() < deadline && job.itemsAtEnd < job.numberOfItems) {
+                final int end = Math.min(job.numberOfItems, job.cursor + BLOCK_SIZE);
+                job.update(job.cursor, end, t);
+                if (t == 1.0)
+                    job.itemsAtEnd += (end - job.cursor);
+                job.cursor = (end == job.numberOfItems ? 0 : end);
+            }
+
+            if (job.itemsAtEnd >= job.numberOfItems) {
+                jobs.remove(nextJob);
+                if (job.onFinished != null)
+                    job.onFinished.run();
+            } else
+                nextJob++;
+        }
+        if (jobs.isEmpty())
+            timer.stop();
+    }
+
+    private static class Job {
+        private final double[] from;
+        private final double[] to;
+        private final double[] current;
+        private final int stride;
+        private final int numberOfItems;
+        private final Interpolation interpolation;
+        private final Sink sink;
+        private final Runnable onFinished;
+
+        private long startTime = 0;
+        private int cursor = 0;
+        private int itemsAtEnd = 0;
+
+        Job(double[] from, double[] to, int stride, Interpolation interpolation, Sink sink, Runnable onFinished) {
+            this.from = from;
+            this.to = to;
+            this.current = new double[from.length];
+            this.stride = stride;
+            this.numberOfItems = from.length / stride;
+            this.interpolation = interpolation;
+            this.sink = sink;
+            this.onFinished = onFinished;
+        }
+
+        /**
+         * compute values for the given range of items and pass them to the sink
+         */
+        void update(int startItem, int endItem, double t) {
+            if (t == 1.0)
+                System.arraycopy(to, startItem * stride, current, startItem * stride, (endItem - startItem) * stride);
+            else
+                interpolation.interpolate(from, to, current, startItem * stride, endItem * stride, t);
+            for (int i = startItem; i < endItem; i++)
+                sink.apply(i, current, i * stride);
+        }
+    }
+}
@@ -51,12 +51,14 @@ public class EdgeView {
     final private Circle circle2;
     final private Shape arrowHead;
     private final ObservableList<Node> children;
+    private final StyleTable styleTable;
 
     /**
      * constructor
      *
      */
     public EdgeView(PhyloView view, Edge edge, ReadOnlyDoubleProperty aX, ReadOnlyDoubleProperty aY, ReadOnlyDoubleProperty bX, ReadOnlyDoubleProperty bY) {
+        styleTable = view.getStyleTable();
         curve = new CubicCurve();
         curve.setFill(Color.TRANSPARENT);
         curve.setStroke(Color.BLACK);
@@ -236,14 +238,37 @@ public class EdgeView {
         }
     }
 
+    public int getStrokeId() {
+        return styleTable.getPaintId(curve.getStroke());
+    }
+
+    public void setStrokeId(int id) {
+        curve.setStroke(styleTable.getPaint(id));
+    }
+
+    public int getStrokeWidthId() {
+        return styleTable.getStrokeWidthId(curve.getStrokeWidth());
+    }
+
+    public void setStrokeWidthId(int id) {
+        curve.setStrokeWidth(styleTable.getStrokeWidth(id));
+    }
+
     public double[] getControlCoordinates() {
         return new double[]{curve.getControlX1(), curve.getControlY1(), curve.getControlX2(), curve.getControlY2()};
     }
 
     public void setControlCoordinates(double[] coordinates) {
-        curve.setControlX1(coordinates[0]);
-        curve.setControlY1(coordinates[1]);
-        curve.setControlX2(coordinates[2]);
-        curve.setControlY2(coordinates[3]);
+        setControlCoordinates(coordinates, 0);
+    }
+
+    /**
+     * set the control coordinates from four consecutive values of a packed array
+     */
+    public void setControlCoordinates(double[] coordinates, int offset) {
+        curve.setControlX1(coordinates[offset]);
+        curve.setControlY1(coordinates[offset + 1]);
+        curve.setControlX2(coordinates[offset + 2]);
+        curve.setControlY2(coordinates[offset + 3]);
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * NodeCentroids.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.view;
+
+/**
+ * running sums of the coordinates of all nodes and of all roots, so that the centroids, and thus the root location,
+ * are available in constant time. PhyloView keeps the sums up to date when nodes are added, removed or moved and when
+ * edges change which nodes are roots. A bulk affine transformation updates the sums in one step
+ * Daniel Huson, 10.2026
+ */
+public class NodeCentroids {
+    private double sumX;
+    private double sumY;
+    private int count;
+
+    private double rootSumX;
+    private double rootSumY;
+    private int rootCount;
+
+    private int transforms = 0; // number of transformations that have been applied to the sums, but not yet to all nodes
+    private boolean ignoreMoves = false; // set while a transformation moves a node
+    private boolean valid = true;
+
+    /**
+     * start counting the node
+     */
+    void add(NodeView nodeView, boolean root) {
+        if (!nodeView.countedAsNode) {
+            nodeView.countedAsNode = true;
+            sumX += nodeView.getTranslateX();
+            sumY += nodeView.getTranslateY();
+            count++;
+            if (transforms > 0) // the node may be moved by a running transformation
+                valid = false;
+        }
+        setRoot(nodeView, root);
+    }
+
+    /**
+     * stop counting the node
+     */
+    void remove(NodeView nodeView) {
+        setRoot(nodeView, false);
+        if (nodeView.countedAsNode) {
+            nodeView.countedAsNode = false;
+            sumX -= nodeView.getTranslateX();
+            sumY -= nodeView.getTranslateY();
+            count--;
+        }
+        if (transforms > 0) // the current position is not the one that has been added to the sums
+            valid = false;
+    }
+
+    /**
+     * count or stop counting the node as a root
+     */
+    void setRoot(NodeView nodeView, boolean root) {
+        if (root != nodeView.countedAsRoot) {
+            nodeView.countedAsRoot = root;
+            final double sign = (root ? 1 : -1);
+            rootSumX += sign * nodeView.getTranslateX();
+            rootSumY += sign * nodeView.getTranslateY();
+            rootCount += (root ? 1 : -1);
+            if (transforms > 0)
+                valid = false;
+        }
+    }
+
+    /**
+     * the node has moved by the given amount
+     */
+    void moved(NodeView nodeView, double dx, double dy) {
+        if (ignoreMoves)
+            return;
+        if (transforms > 0) // the node might also be moved by the running transformation, which would overwrite this move
+            valid = false;
+        else {
+            if (nodeView.countedAsNode) {
+                sumX += dx;
+                sumY += dy;
+            }
+            if (nodeView.countedAsRoot) {
+                rootSumX += dx;
+                rootSumY += dy;
+            }
+        }
+    }
+
+    /**
+     * applies the affine transformation to the sums of all nodes. The transformation can then be applied to the nodes in
+     * any number of steps, each inside of ignoreMoves(true) and ignoreMoves(false), until endTransform() is called.
+     * Any other change of a node before then invalidates the sums
+     *
+     * @param m the transformation mxx, mxy, tx, myx, myy, ty
+     */
+    public void beginTransform(double[] m) {
+        final double x = sumX;
+        sumX = m[0] * x + m[1] * sumY + count * m[2];
+        sumY = m[3] * x + m[4] * sumY + count * m[5];
+        final double rootX = rootSumX;
+        rootSumX = m[0] * rootX + m[1] * rootSumY + rootCount * m[2];
+        rootSumY = m[3] * rootX + m[4] * rootSumY + rootCount * m[5];
+        transforms++;
+    }
+
+    /**
+     * while true, moves of nodes are ignored, because they are part of a transformation passed to beginTransform()
+     */
+    public void ignoreMoves(boolean ignoreMoves) {
+        this.ignoreMoves = ignoreMoves;
+    }
+
+    /**
+     * call once the transformation passed to beginTransform() has been applied to all nodes
+     */
+    public void endTransform() {
+        transforms--;
+    }
+
+    /**
+     * forget all sums
+     */
+    void clear() {
+        sumX = sumY = rootSumX = rootSumY = 0;
+        count = rootCount = 0;
+        valid = (transforms == 0);
+    }
+
+    /**
+     * @return true, if the sums are known to match the given number of nodes
+     */
+    boolean isValid(int numberOfNodes) {
+        return valid && count == numberOfNodes;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getRootCount() {
+        return rootCount;
+    }
+
+    double getSumX() {
+        return sumX;
+    }
+
+    double getSumY() {
+        return sumY;
+    }
+
+    double getRootSumX() {
+        return rootSumX;
+    }
+
+    double getRootSumY() {
+        return rootSumY;
+    }
+}
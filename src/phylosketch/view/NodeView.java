@@ -21,29 +21,53 @@
 package phylosketch.view;
 
 import javafx.beans.property.DoubleProperty;
+import javafx.geometry.Bounds;
 import javafx.scene.Group;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Shape;
 import javafx.scene.text.Font;
+import javafx.scene.text.Text;
 import jloda.fx.control.RichTextLabel;
 import jloda.fx.shapes.ISized;
 import jloda.fx.shapes.NodeShape;
 
+import java.util.function.Consumer;
+
 public class NodeView {
-    private final RichTextLabel label = new RichTextLabel();
+    private RichTextLabel label; // created on demand, see getLabel()
+
+    private static final Text measuringText = new Text(); // used to measure labels that have not been created
     private final Group shapeGroup = new Group();
     private Shape shape;
 
+    // label properties kept until the label is created:
+    private String labelText = "";
+    private Font labelFont;
+    private Paint labelTextFill = Color.BLACK;
+    private double labelLayoutX = 10;
+    private double labelLayoutY = -7;
+    private double labelAngle = 0;
+
+    private Consumer<RichTextLabel> labelCreatedCallback;
+    private Consumer<String> labelTextChangedCallback;
+
+    private final StyleTable styleTable;
+
+    // maintained by NodeCentroids:
+    boolean countedAsNode = false;
+    boolean countedAsRoot = false;
+
     /**
      * constructor
      *
 	 */
-    public NodeView(Font font, double x, double y) {
+    public NodeView(StyleTable styleTable, Font font, double x, double y) {
+        this.styleTable = styleTable;
         changeShape(NodeShape.Circle);
 
-        label.setFont(font);
-        label.setTextFill(Color.BLACK);
+        labelFont = font;
 
         shapeGroup.setTranslateX(x);
         shapeGroup.setTranslateY(y);
@@ -55,23 +79,173 @@ public class NodeView {
             spacer.setMouseTransparent(true);
             shapeGroup.getChildren().add(spacer);
         }
-
-        label.setLayoutX(10);
-        label.setLayoutY(-7);
-        label.translateXProperty().bind(translateXProperty());
-        label.translateYProperty().bind(translateYProperty());
     }
 
+    /**
+     * gets the label, creating and laying it out, if this hasn't happened yet
+     *
+     * @return label
+     */
     public RichTextLabel getLabel() {
+        if (label == null) {
+            label = new RichTextLabel();
+            label.setFont(labelFont);
+            label.setTextFill(labelTextFill);
+            label.setText(labelText);
+            label.setLayoutX(labelLayoutX);
+            label.setLayoutY(labelLayoutY);
+            label.setRotate(labelAngle);
+            label.translateXProperty().bind(translateXProperty());
+            label.translateYProperty().bind(translateYProperty());
+            labelText = null;
+            labelFont = null;
+            labelTextFill = null;
+            if (labelCreatedCallback != null)
+                labelCreatedCallback.accept(label);
+        }
         return label;
     }
 
+    /**
+     * @return true, if the label has been created
+     */
+    public boolean hasLabel() {
+        return label != null;
+    }
+
+    /**
+     * set the method that is called when the label is created, used to add it to the scene and setup interaction
+     */
+    public void setLabelCreatedCallback(Consumer<RichTextLabel> labelCreatedCallback) {
+        this.labelCreatedCallback = labelCreatedCallback;
+    }
+
+    public String getLabelText() {
+        final String text = (label != null ? label.getText() : labelText);
+        return text != null ? text : "";
+    }
+
+    public void setLabelText(String text) {
+        if (label != null)
+            label.setText(text);
+        else {
+            labelText = (text != null ? text : "");
+            if (labelTextChangedCallback != null)
+                labelTextChangedCallback.accept(text);
+        }
+    }
+
+    /**
+     * set the method that is called when the text is changed before the label has been created, used to keep
+     * the label of the graph node up-to-date. Once the label exists, its text property is observed instead
+     */
+    public void setLabelTextChangedCallback(Consumer<String> labelTextChangedCallback) {
+        this.labelTextChangedCallback = labelTextChangedCallback;
+    }
+
+    public Font getLabelFont() {
+        return label != null ? label.getFont() : labelFont;
+    }
+
+    public void setLabelFont(Font font) {
+        if (label != null)
+            label.setFont(font);
+        else
+            labelFont = font;
+    }
+
+    public Paint getLabelTextFill() {
+        return label != null ? label.getTextFill() : labelTextFill;
+    }
+
+    public void setLabelTextFill(Paint fill) {
+        if (label != null)
+            label.setTextFill(fill);
+        else
+            labelTextFill = fill;
+    }
+
+    public int getLabelFontId() {
+        return styleTable.getFontId(getLabelFont());
+    }
+
+    public void setLabelFontId(int id) {
+        setLabelFont(styleTable.getFont(id));
+    }
+
+    public int getLabelTextFillId() {
+        return styleTable.getPaintId(getLabelTextFill());
+    }
+
+    public void setLabelTextFillId(int id) {
+        setLabelTextFill(styleTable.getPaint(id));
+    }
+
+    public int getFillId() {
+        return styleTable.getPaintId(shape.getFill());
+    }
+
+    public void setFillId(int id) {
+        shape.setFill(styleTable.getPaint(id));
+    }
+
+    public double getLabelLayoutX() {
+        return label != null ? label.getLayoutX() : labelLayoutX;
+    }
+
+    public double getLabelLayoutY() {
+        return label != null ? label.getLayoutY() : labelLayoutY;
+    }
+
+    public void setLabelLayout(double x, double y) {
+        if (label != null) {
+            label.setLayoutX(x);
+            label.setLayoutY(y);
+        } else {
+            labelLayoutX = x;
+            labelLayoutY = y;
+        }
+    }
+
     public void setLabelAngle(Double angle) {
-        label.setRotate(angle);
+        if (label != null)
+            label.setRotate(angle);
+        else
+            labelAngle = angle;
     }
 
     public double getLabelAngle() {
-        return label.getRotate();
+        return label != null ? label.getRotate() : labelAngle;
+    }
+
+    /**
+     * computes the size of the unrotated label from the metrics of its font and text, without creating the label.
+     * Must be called on the FX thread
+     *
+     * @return width and height
+     */
+    public double[] computeLabelSize() {
+        measuringText.setFont(getLabelFont() != null ? getLabelFont() : Font.getDefault());
+        measuringText.setText(RichTextLabel.getRawText(getLabelText()));
+        final Bounds bounds = measuringText.getLayoutBounds();
+        return new double[]{bounds.getWidth(), bounds.getHeight()};
+    }
+
+    /**
+     * computes the box occupied by the label in the coordinates of its parent, using computeLabelSize(). A rotated
+     * label occupies the bounding box of the rotated text
+     *
+     * @return min x, min y, width and height
+     */
+    public double[] computeLabelBox() {
+        final double[] size = computeLabelSize();
+        final double cos = Math.abs(Math.cos(Math.toRadians(getLabelAngle())));
+        final double sin = Math.abs(Math.sin(Math.toRadians(getLabelAngle())));
+        final double width = cos * size[0] + sin * size[1];
+        final double height = sin * size[0] + cos * size[1];
+        final double centerX = getTranslateX() + getLabelLayoutX() + 0.5 * size[0];
+        final double centerY = getTranslateY() + getLabelLayoutY() + 0.5 * size[1];
+        return new double[]{centerX - 0.5 * width, centerY - 0.5 * height, width, height};
     }
 
     public Shape getShape() {
@@ -22,6 +22,7 @@ package phylosketch.view;
 
 import javafx.beans.property.*;
 import javafx.collections.ListChangeListener;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Cursor;
 import javafx.scene.Group;
@@ -37,7 +38,6 @@ import jloda.fx.control.ItemSelectionModel;
 import jloda.fx.control.RichTextLabel;
 import jloda.fx.graph.GraphFX;
 import jloda.fx.shapes.NodeShape;
-import jloda.fx.undo.UndoManager;
 import jloda.fx.util.GeometryUtilsFX;
 import jloda.fx.util.SelectionEffect;
 import jloda.graph.*;
@@ -45,16 +45,17 @@ import jloda.graph.algorithms.IsDAG;
 import jloda.phylo.PhyloTree;
 import jloda.util.IteratorUtils;
 import jloda.util.Single;
+import phylosketch.commands.CommandCoalescer;
 import phylosketch.commands.MoveNodeLabelCommand;
 import phylosketch.commands.MoveSelectedNodesCommand;
 import phylosketch.commands.NewEdgeAndNodeCommand;
+import phylosketch.commands.BudgetedUndoManager;
+import phylosketch.commands.UndoHistoryBudget;
 import phylosketch.util.EdgeContextMenu;
 import phylosketch.util.NodeLabelDialog;
 import phylosketch.window.MainWindow;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * phylo view
@@ -104,9 +105,11 @@ public class PhyloView {
 
     private final PhyloTree graph = new PhyloTree();
     private final GraphFX<PhyloTree> graphFX = new GraphFX<>(graph);
-    private final UndoManager undoManager = new UndoManager();
+    private final BudgetedUndoManager undoManager = new BudgetedUndoManager();
+    private final StyleTable styleTable = new StyleTable();
 
     private final BooleanProperty dirty = new SimpleBooleanProperty(false);
+    private final BooleanProperty busy = new SimpleBooleanProperty(false);
 
     public static final Font DefaultFont = Font.font("Arial", 12);
     private final ObjectProperty<Font> font = new SimpleObjectProperty<>(DefaultFont);
@@ -116,6 +119,23 @@ public class PhyloView {
     private final NodeArray<NodeView> node2view;
     private final EdgeArray<EdgeView> edge2view;
 
+    // state of the running transaction, see batchUpdate:
+    private int batchDepth = 0;
+    private final ReadOnlyBooleanWrapper inTransaction = new ReadOnlyBooleanWrapper(false);
+    private final Map<Group, PendingChildren> group2pending = new HashMap<>();
+    private final Set<Node> pendingSelectionNodes = new HashSet<>();
+    private final Set<Edge> pendingSelectionEdges = new HashSet<>();
+    private final Set<Node> transactionNewEdgeTargets = new HashSet<>();
+    private final Set<Node> transactionDeletedEdgeTargets = new HashSet<>();
+
+    // dense indices from ids to nodes, edges and their views, maintained by addNode, removeNode, addEdge and removeEdge:
+    private Node[] id2node = new Node[1024];
+    private NodeView[] id2nodeView = new NodeView[1024];
+    private Edge[] id2edge = new Edge[1024];
+    private EdgeView[] id2edgeView = new EdgeView[1024];
+
+    private final NodeCentroids nodeCentroids = new NodeCentroids();
+
     private final ItemSelectionModel<Node> nodeSelection = new ItemSelectionModel<>();
     private final ItemSelectionModel<Edge> edgeSelection = new ItemSelectionModel<>();
 
@@ -140,12 +160,33 @@ public class PhyloView {
         node2view = new NodeArray<>(graph);
         edge2view = new EdgeArray<>(graph);
 
+        // GraphFX is detached during a transaction, so record the targets of edges added and deleted:
+        graph.addGraphUpdateListener(new GraphUpdateAdapter() {
+            @Override
+            public void newEdge(Edge e) {
+                if (isInTransaction())
+                    transactionNewEdgeTargets.add(e.getTarget());
+            }
+
+            @Override
+            public void deleteEdge(Edge e) {
+                if (isInTransaction())
+                    transactionDeletedEdgeTargets.add(e.getTarget());
+            }
+        });
+
         nodeSelection.getSelectedItems().addListener((ListChangeListener<Node>) (e) -> {
             while (e.next()) {
+                if (isInTransaction()) { // effects are updated once, when the transaction ends
+                    pendingSelectionNodes.addAll(e.getAddedSubList());
+                    pendingSelectionNodes.addAll(e.getRemoved());
+                    continue;
+                }
                 for (Node v : e.getAddedSubList()) {
                     try {
                         getNodeView(v).getShapeGroup().setEffect(SelectionEffect.getInstance());
-                        getLabel(v).setEffect(SelectionEffect.getInstance());
+                        if (getNodeView(v).hasLabel())
+                            getLabel(v).setEffect(SelectionEffect.getInstance());
                     } catch (NotOwnerException ignored) {
                     }
 
@@ -153,7 +194,8 @@ public class PhyloView {
                 for (Node v : e.getRemoved()) {
                     try {
                         getNodeView(v).getShapeGroup().setEffect(null);
-                        getLabel(v).setEffect(null);
+                        if (getNodeView(v).hasLabel())
+                            getLabel(v).setEffect(null);
                     } catch (NotOwnerException ignored) {
                     }
                 }
@@ -162,6 +204,11 @@ public class PhyloView {
 
         edgeSelection.getSelectedItems().addListener((ListChangeListener<Edge>) (e) -> {
             while (e.next()) {
+                if (isInTransaction()) {
+                    pendingSelectionEdges.addAll(e.getAddedSubList());
+                    pendingSelectionEdges.addAll(e.getRemoved());
+                    continue;
+                }
                 for (Edge edge : e.getAddedSubList()) {
                     try {
                         final EdgeView edgeView = edge2view.get(edge);
@@ -185,15 +232,18 @@ public class PhyloView {
             }
         });
 
+        // a transaction is reported as one bulk change, deleted items are removed from the selection in commitTransaction()
         graphFX.getNodeList().addListener((ListChangeListener<Node>) c -> {
             while (c.next()) {
-                nodeSelection.clearSelection(c.getRemoved());
+                if (!isInTransaction())
+                    nodeSelection.clearSelection(c.getRemoved());
             }
         });
 
         graphFX.getEdgeList().addListener((ListChangeListener<Edge>) c -> {
             while (c.next()) {
-                edgeSelection.clearSelection(c.getRemoved());
+                if (!isInTransaction())
+                    edgeSelection.clearSelection(c.getRemoved());
             }
         });
 
@@ -201,44 +251,132 @@ public class PhyloView {
     }
 
     public NodeView addNode(Node v, Pane pane, double x, double y) {
-        final NodeView nodeView = new NodeView(getFont(), x, y);
+        final NodeView nodeView = new NodeView(styleTable, getFont(), x, y);
 
-        graphNodes.getChildren().add(nodeView.getShapeGroup());
+        addChildren(graphNodes, List.of(nodeView.getShapeGroup()));
         node2view.put(v, nodeView);
+        nodeCentroids.add(nodeView, v.getInDegree() == 0);
+        nodeView.translateXProperty().addListener((c, o, n) -> nodeCentroids.moved(nodeView, n.doubleValue() - o.doubleValue(), 0));
+        nodeView.translateYProperty().addListener((c, o, n) -> nodeCentroids.moved(nodeView, 0, n.doubleValue() - o.doubleValue()));
+        if (v.getId() >= id2node.length) {
+            final int length = Math.max(2 * id2node.length, v.getId() + 1);
+            id2node = Arrays.copyOf(id2node, length);
+            id2nodeView = Arrays.copyOf(id2nodeView, length);
+        }
+        id2node[v.getId()] = v;
+        id2nodeView[v.getId()] = nodeView;
         setupMouseInteraction(pane, v);
 
+        nodeView.setLabelTextChangedCallback(text -> graph.setLabel(v, text != null && !text.isEmpty() ? text : null));
         if (graph.getLabel(v) != null)
-            nodeView.getLabel().setText(graph.getLabel(v));
-        nodeView.getLabel().textProperty().addListener((c, o, n) -> graph.setLabel(v, n));
-        graphNodeLabels.getChildren().add(nodeView.getLabel());
+            nodeView.setLabelText(graph.getLabel(v));
 
         nodeView.getShapeGroup().setOnContextMenuRequested(c -> {
             final MenuItem setLabel = new MenuItem("Edit label");
             setLabel.setOnAction((e) -> NodeLabelDialog.apply(window.getStage(), this, v));
             new ContextMenu(setLabel).show(window.getStage(), c.getScreenX(), c.getScreenY());
         });
-        nodeView.getLabel().setOnContextMenuRequested(c -> {
+        return nodeView;
+    }
+
+    /**
+     * setup a node label once it has been created
+     */
+    private void setupLabel(Node v, RichTextLabel label, Runnable setupMouseInteraction) {
+        label.textProperty().addListener((c, o, n) -> graph.setLabel(v, n));
+        addChildren(graphNodeLabels, List.of(label));
+
+        label.setOnContextMenuRequested(c -> {
             final MenuItem setLabel = new MenuItem("Edit Label");
             setLabel.setOnAction((e) -> NodeLabelDialog.apply(window.getStage(), this, v));
             new ContextMenu(setLabel).show(window.getStage(), c.getScreenX(), c.getScreenY());
         });
-        return nodeView;
+        setupMouseInteraction.run();
+
+        if (nodeSelection.isSelected(v))
+            label.setEffect(SelectionEffect.getInstance());
+    }
+
+    /**
+     * creates the labels of all nodes that lie in the given bounds (in world coordinates). Labels are created lazily,
+     * so that opening a large file doesn't have to layout all labels up front
+     */
+    public void createVisibleLabels(Bounds bounds) {
+        for (Node v : graph.nodes()) {
+            final NodeView nodeView = node2view.get(v);
+            if (nodeView != null && !nodeView.hasLabel() && !nodeView.getLabelText().isEmpty() && bounds.contains(nodeView.getTranslateX(), nodeView.getTranslateY()))
+                nodeView.getLabel();
+        }
+    }
+
+    /**
+     * creates all labels that haven't been created yet, needed before printing or exporting the scene
+     */
+    public void createAllLabels() {
+        for (Node v : graph.nodes()) {
+            final NodeView nodeView = node2view.get(v);
+            if (nodeView != null && !nodeView.hasLabel() && !nodeView.getLabelText().isEmpty())
+                nodeView.getLabel();
+        }
+    }
+
+    /**
+     * removes all nodes and edges and their views
+     */
+    public void clear() {
+        nodeSelection.clearSelection();
+        edgeSelection.clearSelection();
+        group2pending.clear();
+        pendingSelectionNodes.clear();
+        pendingSelectionEdges.clear();
+        graphEdges.getChildren().clear();
+        graphNodes.getChildren().clear();
+        graphNodeLabels.getChildren().clear();
+        Arrays.fill(id2node, null);
+        Arrays.fill(id2nodeView, null);
+        Arrays.fill(id2edge, null);
+        Arrays.fill(id2edgeView, null);
+        graph.clear();
+        nodeCentroids.clear();
     }
 
     public void changeNodeShape(Node v, NodeShape nodeShape) {
         node2view.get(v).changeShape(nodeShape);
     }
 
+    /**
+     * removes the views of the node and its edges, call before deleting the node from the graph
+     */
     public void removeNode(Node v) {
+        for (Edge e : v.outEdges()) { // children whose only parent is v become roots
+            final Node w = e.getTarget();
+            var onlyParent = (w != v && node2view.get(w) != null);
+            for (Edge f : w.inEdges()) {
+                if (f.getSource() != v)
+                    onlyParent = false;
+            }
+            if (onlyParent)
+                nodeCentroids.setRoot(node2view.get(w), true);
+        }
         for (Edge e : v.adjacentEdges()) {
             final EdgeView edgeView = getEdgeView(e);
             if (edgeView != null)
-                graphEdges.getChildren().removeAll(edgeView.getChildren());
+                removeChildren(graphEdges, edgeView.getChildren());
+            if (e.getId() < id2edge.length) {
+                id2edge[e.getId()] = null;
+                id2edgeView[e.getId()] = null;
+            }
+        }
+        if (v.getId() < id2node.length) {
+            id2node[v.getId()] = null;
+            id2nodeView[v.getId()] = null;
         }
         final NodeView nodeView = node2view.get(v);
         if (nodeView != null) {
-            graphNodes.getChildren().remove(nodeView.getShapeGroup());
-            graphNodeLabels.getChildren().remove(nodeView.getLabel());
+            nodeCentroids.remove(nodeView);
+            removeChildren(graphNodes, List.of(nodeView.getShapeGroup()));
+            if (nodeView.hasLabel())
+                removeChildren(graphNodeLabels, List.of(nodeView.getLabel()));
         }
     }
 
@@ -246,17 +384,219 @@ public class PhyloView {
         final NodeView sourceView = node2view.get(e.getSource());
         final NodeView targetView = node2view.get(e.getTarget());
 
+        nodeCentroids.setRoot(targetView, false);
+
         final EdgeView edgeView = new EdgeView(this, e, sourceView.translateXProperty(), sourceView.translateYProperty(), targetView.translateXProperty(), targetView.translateYProperty());
         edge2view.put(e, edgeView);
+        if (e.getId() >= id2edge.length) {
+            final int length = Math.max(2 * id2edge.length, e.getId() + 1);
+            id2edge = Arrays.copyOf(id2edge, length);
+            id2edgeView = Arrays.copyOf(id2edgeView, length);
+        }
+        id2edge[e.getId()] = e;
+        id2edgeView[e.getId()] = edgeView;
 
         EdgeContextMenu.setup(window.getController().getContentPane(), this, e);
 
-        graphEdges.getChildren().addAll(edgeView.getChildren());
+        addChildren(graphEdges, edgeView.getChildren());
         return edgeView;
     }
 
+    /**
+     * removes the view of the edge, call before deleting the edge from the graph
+     */
     public void removeEdge(Edge e) {
-        graphEdges.getChildren().removeAll(getEdgeView(e).getChildren());
+        if (e.getTarget().getInDegree() == 1 && node2view.get(e.getTarget()) != null)
+            nodeCentroids.setRoot(node2view.get(e.getTarget()), true);
+        removeChildren(graphEdges, getEdgeView(e).getChildren());
+        if (e.getId() < id2edge.length) {
+            id2edge[e.getId()] = null;
+            id2edgeView[e.getId()] = null;
+        }
+    }
+
+    /**
+     * runs the given update as a transaction: nodes and edges added or removed via this view during the update are
+     * added to or removed from the scene with a single change of each children list, and selection effects are updated
+     * once, all at the end. GraphFX is detached during the update and reattached at the end, so that it reports the
+     * transaction as one bulk change of its node and edge lists, while inTransactionProperty() is still true. Listeners
+     * should not try to derive individual changes from it, but use getTransactionNewEdgeTargets() and
+     * getTransactionDeletedEdgeTargets() when inTransactionProperty() becomes false. Transactions may be nested
+     */
+    public void batchUpdate(Runnable update) {
+        if (batchDepth++ == 0) {
+            inTransaction.set(true);
+            graphFX.setGraph(null);
+        }
+        try {
+            update.run();
+        } finally {
+            if (batchDepth == 1) {
+                try {
+                    commitTransaction();
+                } finally {
+                    batchDepth = 0;
+                    inTransaction.set(false);
+                    transactionNewEdgeTargets.clear();
+                    transactionDeletedEdgeTargets.clear();
+                }
+            } else
+                batchDepth--;
+        }
+    }
+
+    private void commitTransaction() {
+        for (Map.Entry<Group, PendingChildren> entry : group2pending.entrySet()) {
+            final List<javafx.scene.Node> children = entry.getKey().getChildren();
+            if (!entry.getValue().removed.isEmpty())
+                children.removeAll(entry.getValue().removed);
+            if (!entry.getValue().added.isEmpty())
+                children.addAll(entry.getValue().added);
+        }
+        group2pending.clear();
+
+        graphFX.setGraph(graph);
+
+        nodeSelection.clearSelection(nodeSelection.getSelectedItems().stream().filter(v -> v.getOwner() != graph).toList());
+        edgeSelection.clearSelection(edgeSelection.getSelectedItems().stream().filter(e -> e.getOwner() != graph).toList());
+
+        for (Node v : pendingSelectionNodes) {
+            try {
+                final SelectionEffect effect = (nodeSelection.isSelected(v) ? SelectionEffect.getInstance() : null);
+                getNodeView(v).getShapeGroup().setEffect(effect);
+                if (getNodeView(v).hasLabel())
+                    getLabel(v).setEffect(effect);
+            } catch (NotOwnerException ignored) {
+            }
+        }
+        pendingSelectionNodes.clear();
+        for (Edge edge : pendingSelectionEdges) {
+            try {
+                final EdgeView edgeView = edge2view.get(edge);
+                if (edgeView != null) {
+                    final SelectionEffect effect = (edgeSelection.isSelected(edge) ? SelectionEffect.getInstance() : null);
+                    for (javafx.scene.Node node : edgeView.getChildren())
+                        node.setEffect(effect);
+                }
+            } catch (NotOwnerException ignored) {
+            }
+        }
+        pendingSelectionEdges.clear();
+    }
+
+    /**
+     * is true while a transaction is running, see batchUpdate(Runnable)
+     */
+    public ReadOnlyBooleanProperty inTransactionProperty() {
+        return inTransaction.getReadOnlyProperty();
+    }
+
+    public boolean isInTransaction() {
+        return inTransaction.get();
+    }
+
+    /**
+     * the targets of edges added to the graph during the transaction that has just ended, available to listeners while
+     * inTransactionProperty() changes to false. May contain nodes that have since been deleted
+     */
+    public Set<Node> getTransactionNewEdgeTargets() {
+        return transactionNewEdgeTargets;
+    }
+
+    /**
+     * the targets of edges deleted from the graph during the transaction that has just ended, available to listeners while
+     * inTransactionProperty() changes to false. May contain nodes that have since been deleted
+     */
+    public Set<Node> getTransactionDeletedEdgeTargets() {
+        return transactionDeletedEdgeTargets;
+    }
+
+    private void addChildren(Group group, Collection<? extends javafx.scene.Node> nodes) {
+        if (batchDepth == 0)
+            group.getChildren().addAll(nodes);
+        else {
+            final PendingChildren pending = group2pending.computeIfAbsent(group, k -> new PendingChildren());
+            for (javafx.scene.Node node : nodes) {
+                if (!pending.removed.remove(node))
+                    pending.added.add(node);
+            }
+        }
+    }
+
+    private void removeChildren(Group group, Collection<? extends javafx.scene.Node> nodes) {
+        if (batchDepth == 0)
+            group.getChildren().removeAll(nodes);
+        else {
+            final PendingChildren pending = group2pending.computeIfAbsent(group, k -> new PendingChildren());
+            for (javafx.scene.Node node : nodes) {
+                if (!pending.added.remove(node))
+                    pending.removed.add(node);
+            }
+        }
+    }
+
+    /**
+     * scene changes collected during a batch update
+     */
+    private static class PendingChildren {
+        private final Set<javafx.scene.Node> added = new LinkedHashSet<>();
+        private final Set<javafx.scene.Node> removed = new HashSet<>();
+    }
+
+    /**
+     * get a node by its id in constant time
+     *
+     * @return node or null, if no node with this id has been added
+     */
+    public Node getNodeById(int id) {
+        return id < id2node.length ? id2node[id] : null;
+    }
+
+    public NodeView getNodeViewById(int id) {
+        return id < id2nodeView.length ? id2nodeView[id] : null;
+    }
+
+    /**
+     * get an edge by its id in constant time
+     *
+     * @return edge or null, if no edge with this id has been added
+     */
+    public Edge getEdgeById(int id) {
+        return id < id2edge.length ? id2edge[id] : null;
+    }
+
+    public EdgeView getEdgeViewById(int id) {
+        return id < id2edgeView.length ? id2edgeView[id] : null;
+    }
+
+    /**
+     * resolve many node ids at once
+     */
+    public Node[] getNodesById(int[] ids) {
+        final Node[] nodes = new Node[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            nodes[i] = getNodeById(ids[i]);
+        return nodes;
+    }
+
+    /**
+     * resolve many node ids to their views at once
+     */
+    public NodeView[] getNodeViewsById(int[] ids) {
+        final NodeView[] nodeViews = new NodeView[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            nodeViews[i] = getNodeViewById(ids[i]);
+        return nodeViews;
+    }
+
+    /**
+     * resolve many edge ids to their views at once
+     */
+    public EdgeView[] getEdgeViewsById(int[] ids) {
+        final EdgeView[] edgeViews = new EdgeView[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            edgeViews[i] = getEdgeViewById(ids[i]);
+        return edgeViews;
     }
 
     enum What {moveNode, growEdge}
@@ -384,10 +724,10 @@ public class PhyloView {
                 }
             } else {
                 if (what.get() == What.moveNode) {
-                    // yes, add, not doAndAdd()
+                    // yes, add, not doAndAdd(); consecutive nudges of the same nodes share one undo entry
                     final double dx = previousMousePosition[0] - mouseDownPosition[0];
                     final double dy = previousMousePosition[1] - mouseDownPosition[1];
-                    undoManager.add(new MoveSelectedNodesCommand(dx, dy, this,
+                    CommandCoalescer.add(this, new MoveSelectedNodesCommand(dx, dy, this,
                             nodeSelection.getSelectedItems(), oldControlPointLocations, newControlPointLocations));
 
                 } else if (what.get() == What.growEdge) {
@@ -419,47 +759,48 @@ public class PhyloView {
             line.setVisible(false);
         });
 
-        nodeView.getLabel().setOnMousePressed(c -> {
-            mouseDownPosition[0] = previousMousePosition[0] = c.getSceneX();
-            mouseDownPosition[1] = previousMousePosition[1] = c.getSceneY();
-            moved.set(false);
-        });
+        nodeView.setLabelCreatedCallback(label -> setupLabel(v, label, () -> {
+            label.setOnMousePressed(c -> {
+                mouseDownPosition[0] = previousMousePosition[0] = c.getSceneX();
+                mouseDownPosition[1] = previousMousePosition[1] = c.getSceneY();
+                moved.set(false);
+            });
 
-        nodeView.getLabel().setOnMouseDragged(c -> {
-            moved.set(true);
+            label.setOnMouseDragged(c -> {
+                moved.set(true);
 
-            final double mouseX = c.getSceneX();
-            final double mouseY = c.getSceneY();
+                final double mouseX = c.getSceneX();
+                final double mouseY = c.getSceneY();
 
-            final RichTextLabel label = nodeView.getLabel();
-            label.setLayoutX(label.getLayoutX() + (mouseX - previousMousePosition[0]));
-            label.setLayoutY(label.getLayoutY() + (mouseY - previousMousePosition[1]));
+                label.setLayoutX(label.getLayoutX() + (mouseX - previousMousePosition[0]));
+                label.setLayoutY(label.getLayoutY() + (mouseY - previousMousePosition[1]));
 
-            previousMousePosition[0] = mouseX;
-            previousMousePosition[1] = mouseY;
-            c.consume();
-        });
+                previousMousePosition[0] = mouseX;
+                previousMousePosition[1] = mouseY;
+                c.consume();
+            });
 
-        nodeView.getLabel().setOnMouseReleased(c -> {
-            if (!moved.get()) {
-                if (!c.isPopupTrigger()) {
-                    if (!c.isShiftDown()) {
-                        nodeSelection.clearSelection();
-                        edgeSelection.clearSelection();
-                        nodeSelection.select(v);
-                    } else {
-                        if (nodeSelection.isSelected(v))
-                            nodeSelection.clearSelection(v);
-                        else
+            label.setOnMouseReleased(c -> {
+                if (!moved.get()) {
+                    if (!c.isPopupTrigger()) {
+                        if (!c.isShiftDown()) {
+                            nodeSelection.clearSelection();
+                            edgeSelection.clearSelection();
                             nodeSelection.select(v);
+                        } else {
+                            if (nodeSelection.isSelected(v))
+                                nodeSelection.clearSelection(v);
+                            else
+                                nodeSelection.select(v);
+                        }
                     }
+                } else {
+                    final double mouseX = c.getSceneX();
+                    final double mouseY = c.getSceneY();
+                    undoManager.add(new MoveNodeLabelCommand(this, v, mouseX - mouseDownPosition[0], mouseY - mouseDownPosition[1]));
                 }
-            } else {
-                final double mouseX = c.getSceneX();
-                final double mouseY = c.getSceneY();
-                undoManager.add(new MoveNodeLabelCommand(this, v, mouseX - mouseDownPosition[0], mouseY - mouseDownPosition[1]));
-            }
-        });
+            });
+        }));
     }
 
     public void moveNode(Node v, double x, double y) {
@@ -479,26 +820,18 @@ public class PhyloView {
         return null;
     }
 
+    /**
+     * determines the location of the roots relative to the other nodes, from the centroids of all roots and of all nodes.
+     * Runs in constant time, as the coordinate sums are maintained as nodes are added, removed and moved
+     */
     public RootLocation computeRootLocation() {
-        Point2D averageRoot = new Point2D(0, 0);
-        int roots = 0;
-        Point2D averageNode = new Point2D(0, 0);
-        int nodes = 0;
+        if (!nodeCentroids.isValid(graph.getNumberOfNodes()))
+            recomputeNodeCentroids();
 
-        for (Node v : graph.nodes()) {
-            final double x = getX(v);
-            final double y = getY(v);
-            if (v.getInDegree() == 0) {
-                averageRoot = new Point2D(averageRoot.getX() + x, averageRoot.getY() + y);
-                roots++;
-            }
-            averageNode = new Point2D(averageNode.getX() + x, averageNode.getY() + y);
-            nodes++;
-        }
-        if (roots > 0)
-            averageRoot = new Point2D(averageRoot.getX() / roots, averageRoot.getY() / roots);
-        if (nodes > 0)
-            averageNode = new Point2D(averageNode.getX() / nodes, averageNode.getY() / nodes);
+        final int roots = nodeCentroids.getRootCount();
+        final int nodes = nodeCentroids.getCount();
+        final Point2D averageRoot = (roots > 0 ? new Point2D(nodeCentroids.getRootSumX() / roots, nodeCentroids.getRootSumY() / roots) : new Point2D(0, 0));
+        final Point2D averageNode = (nodes > 0 ? new Point2D(nodeCentroids.getSumX() / nodes, nodeCentroids.getSumY() / nodes) : new Point2D(0, 0));
 
         final double angle = GeometryUtilsFX.computeAngle(averageRoot.subtract(averageNode));
         if (angle >= 45 && angle <= 135)
@@ -511,6 +844,26 @@ public class PhyloView {
             return RootLocation.Right;
     }
 
+    /**
+     * recomputes the coordinate sums from scratch, needed only if nodes have been added or removed bypassing
+     * addNode and removeNode, or during a bulk transformation
+     */
+    private void recomputeNodeCentroids() {
+        nodeCentroids.clear();
+        for (Node v : graph.nodes()) {
+            final NodeView nodeView = node2view.get(v);
+            if (nodeView != null) {
+                nodeView.countedAsNode = false;
+                nodeView.countedAsRoot = false;
+                nodeCentroids.add(nodeView, v.getInDegree() == 0);
+            }
+        }
+    }
+
+    public NodeCentroids getNodeCentroids() {
+        return nodeCentroids;
+    }
+
     public Font getFont() {
         return font.get();
     }
@@ -585,14 +938,26 @@ public class PhyloView {
         return edgeSelection;
     }
 
+    public MainWindow getWindow() {
+        return window;
+    }
+
     public GraphFX<PhyloTree> getGraphFX() {
         return graphFX;
     }
 
-    public UndoManager getUndoManager() {
+    public BudgetedUndoManager getUndoManager() {
         return undoManager;
     }
 
+    public UndoHistoryBudget getUndoHistoryBudget() {
+        return undoManager.getBudget();
+    }
+
+    public StyleTable getStyleTable() {
+        return styleTable;
+    }
+
     public String getFileName() {
         return fileName.get();
     }
@@ -616,4 +981,19 @@ public class PhyloView {
     public void setDirty(boolean dirty) {
         this.dirty.set(dirty);
     }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    /**
+     * is true while a background task is building or changing the view, editing is disabled while busy
+     */
+    public BooleanProperty busyProperty() {
+        return busy;
+    }
+
+    public void setBusy(boolean busy) {
+        this.busy.set(busy);
+    }
 }
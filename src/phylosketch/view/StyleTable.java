@@ -0,0 +1,198 @@
+/*
+ * StyleTable.java Copyright (C) 2026 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package phylosketch.view;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+import jloda.fx.util.FontUtils;
+import jloda.util.NumberUtils;
+import jloda.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * table of all paints, fonts and stroke widths in use in one view, each identified by a small integer id
+ * All nodes and edges that use the same style share one instance, undo records only keep ids,
+ * and the string form of a style is parsed and formatted only once per distinct value
+ * Each view has its own table, which holds the styles of its document and its undo history and is
+ * released together with the view. Ids are never reused, because undo records may still refer to them
+ * Id 0 always represents null (no paint or no font)
+ * Daniel Huson, 10.2026
+ */
+public class StyleTable {
+    private final ArrayList<Paint> paints = new ArrayList<>();
+    private final Map<Paint, Integer> paint2id = new HashMap<>();
+    private final Map<String, Integer> paintSpec2id = new HashMap<>();
+    private final ArrayList<String> paintSpecs = new ArrayList<>();
+
+    private final ArrayList<Font> fonts = new ArrayList<>();
+    private final Map<Font, Integer> font2id = new HashMap<>();
+    private final Map<String, Integer> fontSpec2id = new HashMap<>();
+    private final ArrayList<String> fontSpecs = new ArrayList<>();
+
+    private double[] strokeWidths = new double[16];
+    private int numberOfStrokeWidths = 0;
+    private final Map<Double, Integer> strokeWidth2id = new HashMap<>();
+
+    public StyleTable() {
+        paints.add(null);
+        paintSpecs.add(null);
+        fonts.add(null);
+        fontSpecs.add(null);
+    }
+
+    /**
+     * get the id of a paint, adding the paint to the table, if necessary
+     */
+    public synchronized int getPaintId(Paint paint) {
+        if (paint == null)
+            return 0;
+        return paint2id.computeIfAbsent(paint, p -> {
+            paints.add(p);
+            paintSpecs.add(p.toString());
+            return paints.size() - 1;
+        });
+    }
+
+    public synchronized Paint getPaint(int id) {
+        return paints.get(id);
+    }
+
+    /**
+     * get the shared color for the given web or hex specification, the specification is only parsed the first time it is seen
+     *
+     * @throws IllegalArgumentException if the specification is not a color
+     */
+    public synchronized Color parseColor(String spec) {
+        final Integer id = paintSpec2id.get(spec);
+        if (id != null)
+            return (Color) paints.get(id);
+        final int newId = getPaintId(Color.valueOf(spec));
+        paintSpec2id.put(spec, newId);
+        return (Color) paints.get(newId);
+    }
+
+    /**
+     * @return string representation of paint, as used in files
+     */
+    public synchronized String toString(Paint paint) {
+        return paintSpecs.get(getPaintId(paint));
+    }
+
+    /**
+     * get the id of a font, adding the font to the table, if necessary
+     */
+    public synchronized int getFontId(Font font) {
+        if (font == null)
+            return 0;
+        return font2id.computeIfAbsent(font, f -> {
+            fonts.add(f);
+            fontSpecs.add(f.getFamily() + "," + f.getStyle() + "," + f.getSize());
+            return fonts.size() - 1;
+        });
+    }
+
+    public synchronized Font getFont(int id) {
+        return fonts.get(id);
+    }
+
+    /**
+     * get the shared font for a specification of the form family,style,size
+     *
+     * @return font or null, if the specification is not well formed
+     */
+    public synchronized Font parseFont(String spec) {
+        final Integer id = fontSpec2id.get(spec);
+        if (id != null)
+            return fonts.get(id);
+        final String[] tokens = StringUtils.split(spec, ',');
+        if (tokens.length == 3 && NumberUtils.isDouble(tokens[2])) {
+            final int newId = getFontId(FontUtils.font(tokens[0], tokens[1], NumberUtils.parseDouble(tokens[2])));
+            fontSpec2id.put(spec, newId);
+            return fonts.get(newId);
+        } else
+            return null;
+    }
+
+    /**
+     * @return string representation of font of the form family,style,size
+     */
+    public synchronized String toString(Font font) {
+        return fontSpecs.get(getFontId(font));
+    }
+
+    /**
+     * get the id of a stroke width, adding the width to the table, if necessary
+     */
+    public synchronized int getStrokeWidthId(double width) {
+        return strokeWidth2id.computeIfAbsent(width, w -> {
+            if (numberOfStrokeWidths == strokeWidths.length) {
+                final double[] tmp = new double[2 * strokeWidths.length];
+                System.arraycopy(strokeWidths, 0, tmp, 0, numberOfStrokeWidths);
+                strokeWidths = tmp;
+            }
+            strokeWidths[numberOfStrokeWidths] = w;
+            return numberOfStrokeWidths++;
+        });
+    }
+
+    public synchronized double getStrokeWidth(int id) {
+        return strokeWidths[id];
+    }
+
+    /**
+     * resolve many paint ids at once, acquiring the table lock only once
+     *
+     * @return paints in the same order as the ids
+     */
+    public synchronized Paint[] getPaints(int[] ids) {
+        final Paint[] result = new Paint[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            result[i] = paints.get(ids[i]);
+        return result;
+    }
+
+    /**
+     * resolve many font ids at once
+     *
+     * @return fonts in the same order as the ids
+     */
+    public synchronized Font[] getFonts(int[] ids) {
+        final Font[] result = new Font[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            result[i] = fonts.get(ids[i]);
+        return result;
+    }
+
+    /**
+     * resolve many stroke width ids at once
+     *
+     * @return widths in the same order as the ids
+     */
+    public synchronized double[] getStrokeWidths(int[] ids) {
+        final double[] result = new double[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            result[i] = strokeWidths[ids[i]];
+        return result;
+    }
+}
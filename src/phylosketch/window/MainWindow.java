@@ -20,6 +20,7 @@
 package phylosketch.window;
 
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.FileChooser;
@@ -56,7 +57,7 @@ public class MainWindow implements IMainWindow {
         }
 
         final MemoryUsage memoryUsage = MemoryUsage.getInstance();
-        controller.getMemoryUsageLabel().textProperty().bind(memoryUsage.memoryUsageStringProperty());
+        controller.getMemoryUsageLabel().textProperty().bind(Bindings.concat(memoryUsage.memoryUsageStringProperty(), view.getUndoHistoryBudget().gaugeProperty()));
 
         FileOpenManager.setExtensions(Arrays.asList(new FileChooser.ExtensionFilter("Nexus", "*.nexus", "*.nex"),
                 new FileChooser.ExtensionFilter("All", "*.*")));
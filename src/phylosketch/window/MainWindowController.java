@@ -217,6 +217,9 @@ public class MainWindowController {
     @FXML
     private MenuItem labelPositionBelowMenuItem;
 
+    @FXML
+    private MenuItem avoidLabelOverlapsMenuItem;
+
     @FXML
     private MenuItem removeDiNodesMenuItem;
 
@@ -226,6 +229,27 @@ public class MainWindowController {
     @FXML
     private MenuItem inducedNetworkMenuItem;
 
+    @FXML
+    private MenuItem rectangularLayoutMenuItem;
+
+    @FXML
+    private MenuItem radialLayoutMenuItem;
+
+    @FXML
+    private MenuItem circularLayoutMenuItem;
+
+    @FXML
+    private CheckMenuItem useEdgeWeightsCheckMenuItem;
+
+    @FXML
+    private CheckMenuItem logScaleCheckMenuItem;
+
+    @FXML
+    private MenuItem optimizeLayoutMenuItem;
+
+    @FXML
+    private MenuItem relaxLayoutMenuItem;
+
     @FXML
     private MenuItem straightenEdgesMenuItem;
 
@@ -800,6 +824,10 @@ public class MainWindowController {
         return labelPositionBelowMenuItem;
     }
 
+    public MenuItem getAvoidLabelOverlapsMenuItem() {
+        return avoidLabelOverlapsMenuItem;
+    }
+
     public MenuItem getRemoveDiNodesMenuItem() {
         return removeDiNodesMenuItem;
     }
@@ -812,6 +840,34 @@ public class MainWindowController {
         return inducedNetworkMenuItem;
     }
 
+    public MenuItem getRectangularLayoutMenuItem() {
+        return rectangularLayoutMenuItem;
+    }
+
+    public MenuItem getRadialLayoutMenuItem() {
+        return radialLayoutMenuItem;
+    }
+
+    public MenuItem getCircularLayoutMenuItem() {
+        return circularLayoutMenuItem;
+    }
+
+    public CheckMenuItem getUseEdgeWeightsCheckMenuItem() {
+        return useEdgeWeightsCheckMenuItem;
+    }
+
+    public CheckMenuItem getLogScaleCheckMenuItem() {
+        return logScaleCheckMenuItem;
+    }
+
+    public MenuItem getOptimizeLayoutMenuItem() {
+        return optimizeLayoutMenuItem;
+    }
+
+    public MenuItem getRelaxLayoutMenuItem() {
+        return relaxLayoutMenuItem;
+    }
+
     public MenuItem getStraightenEdgesMenuItem() {
         return straightenEdgesMenuItem;
     }
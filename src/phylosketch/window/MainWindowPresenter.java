@@ -19,10 +19,14 @@
 
 package phylosketch.window;
 
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
+import javafx.beans.binding.BooleanBinding;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Point2D;
@@ -35,13 +39,11 @@ import javafx.scene.layout.Pane;
 import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import jloda.fx.control.ItemSelectionModel;
-import jloda.fx.control.RichTextLabel;
 import jloda.fx.control.ZoomableScrollPane;
 import jloda.fx.find.FindToolBar;
 import jloda.fx.find.GraphSearcher;
 import jloda.fx.selection.rubberband.RubberBandSelection;
 import jloda.fx.selection.rubberband.RubberBandSelectionHandler;
-import jloda.fx.undo.CompositeCommand;
 import jloda.fx.undo.UndoManager;
 import jloda.fx.util.*;
 import jloda.fx.window.MainWindowManager;
@@ -55,23 +57,28 @@ import jloda.phylo.algorithms.RootedNetworkProperties;
 import jloda.util.FileUtils;
 import jloda.util.StringUtils;
 import phylosketch.algorithms.Extract;
+import phylosketch.algorithms.OptimizeLayout;
+import phylosketch.algorithms.RelaxLayout;
 import phylosketch.commands.*;
+import phylosketch.embed.RootedNetworkEmbedder;
 import phylosketch.formattab.FormatTab;
 import phylosketch.io.*;
 import phylosketch.pdf.SaveToPDF;
 import phylosketch.util.LabelLeaves;
 import phylosketch.util.NewWindow;
+import phylosketch.view.NodeView;
 import phylosketch.view.PhyloView;
 import splitstree5.main.CheckForUpdate;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -89,7 +96,12 @@ public class MainWindowPresenter {
         final ItemSelectionModel<Edge> edgeSelection = view.getEdgeSelection();
         final UndoManager undoManager = view.getUndoManager();
 
+        // while busy, a background task is building or changing the view, so all edit and file actions are disabled:
+        final BooleanProperty busy = view.busyProperty();
+        final BooleanBinding emptyOrBusy = view.getGraphFX().emptyProperty().or(busy);
+
         final ZoomableScrollPane scrollPane = controller.getScrollPane();
+        busy.addListener((c, o, n) -> scrollPane.setDisable(n));
 
         scrollPane.setLockAspectRatio(false);
         scrollPane.setRequireShiftOrControlToZoom(true);
@@ -102,6 +114,23 @@ public class MainWindowPresenter {
 
         scrollPane.setUpdateScaleMethod(() -> ZoomCommand.zoom(scrollPane.getZoomFactorX(), scrollPane.getZoomFactorY(), contentPane, view));
 
+        // node labels are created lazily, create those that become visible. Each call scans all nodes, so at most one is pending:
+        final var createLabelsPending = new SimpleBooleanProperty(false);
+        final InvalidationListener createVisibleLabels = e -> {
+            if (!view.isInTransaction() && !createLabelsPending.get()) {
+                createLabelsPending.set(true);
+                Platform.runLater(() -> {
+                    createLabelsPending.set(false);
+                    view.createVisibleLabels(view.getWorld().sceneToLocal(scrollPane.localToScene(scrollPane.getLayoutBounds())));
+                });
+            }
+        };
+        scrollPane.hvalueProperty().addListener(createVisibleLabels);
+        scrollPane.vvalueProperty().addListener(createVisibleLabels);
+        scrollPane.viewportBoundsProperty().addListener(createVisibleLabels);
+        view.getGraphFX().getNodeList().addListener(createVisibleLabels);
+        view.inTransactionProperty().addListener(createVisibleLabels);
+
         contentPane.prefWidthProperty().bind(controller.getBorderPane().widthProperty());
         contentPane.prefHeightProperty().bind(controller.getBorderPane().heightProperty());
 
@@ -116,59 +145,82 @@ public class MainWindowPresenter {
 
         final var updatingProperties = new SimpleBooleanProperty(false);
         final var isLeafLabeledDAG = new SimpleBooleanProperty(false);
-        SetupNetworkProperties.setup(controller.getStatusFlowPane(), view.getGraphFX(), updatingProperties, isLeafLabeledDAG);
-
-        view.getGraphFX().getEdgeList().addListener((ListChangeListener<Edge>) c -> {
-            while (c.next()) {
-                for (var e : c.getAddedSubList()) {
-                    if (e.getTarget().getInDegree() > 1) {
-                        for (var f : e.getTarget().inEdges()) {
-                            graph.setReticulate(f, true);
-                            graph.setWeight(f, 0);
-                        }
+        SetupNetworkProperties.setup(controller.getStatusFlowPane(), view.getGraphFX(), view.inTransactionProperty(), updatingProperties, isLeafLabeledDAG);
+
+        // in-edges of a node that gains a second in-edge become reticulate, those of a node that loses it become tree edges.
+        // A transaction is reported by GraphFX as one bulk change, the affected nodes are then obtained from the view
+        final Set<Node> gainedInEdge = new HashSet<>();
+        final Set<Node> lostInEdge = new HashSet<>();
+        final Runnable updateReticulateEdges = () -> {
+            for (var v : gainedInEdge) {
+                if (v.getOwner() == graph && v.getInDegree() > 1) {
+                    for (var f : v.inEdges()) {
+                        graph.setReticulate(f, true);
+                        graph.setWeight(f, 0);
                     }
                 }
-                for (var e : c.getRemoved()) {
-                    if (e.getTarget().getInDegree() <= 1) {
-                        for (var f : e.getTarget().inEdges()) {
-                            graph.setReticulate(f, false);
-                            graph.setWeight(f, 1);
-                        }
+            }
+            for (var v : lostInEdge) {
+                if (v.getOwner() == graph && v.getInDegree() <= 1) {
+                    for (var f : v.inEdges()) {
+                        graph.setReticulate(f, false);
+                        graph.setWeight(f, 1);
                     }
                 }
             }
+            gainedInEdge.clear();
+            lostInEdge.clear();
+        };
+        view.getGraphFX().getEdgeList().addListener((ListChangeListener<Edge>) c -> {
+            if (view.isInTransaction())
+                return;
+            while (c.next()) {
+                for (var e : c.getAddedSubList())
+                    gainedInEdge.add(e.getTarget());
+                for (var e : c.getRemoved())
+                    lostInEdge.add(e.getTarget());
+            }
+            updateReticulateEdges.run();
+        });
+        view.inTransactionProperty().addListener((c, o, n) -> {
+            if (!n) {
+                gainedInEdge.addAll(view.getTransactionNewEdgeTargets());
+                lostInEdge.addAll(view.getTransactionDeletedEdgeTargets());
+                updateReticulateEdges.run();
+            }
         });
 
         controller.getSelectionLabel().setText("");
-        nodeSelection.getSelectedItems().addListener((InvalidationListener) c -> {
-            if (nodeSelection.size() > 0 || edgeSelection.size() > 0)
-                controller.getSelectionLabel().setText(String.format("Selected %d nodes and %d edges",
-                        nodeSelection.size(), edgeSelection.size()));
-            else
-                controller.getSelectionLabel().setText("");
-        });
-        edgeSelection.getSelectedItems().addListener((InvalidationListener) c -> {
+        final InvalidationListener selectionLabelListener = c -> {
+            if (view.isInTransaction())
+                return;
             if (nodeSelection.size() > 0 || edgeSelection.size() > 0)
                 controller.getSelectionLabel().setText(String.format("Selected %d node(s) and %d edge(s)",
                         nodeSelection.size(), edgeSelection.size()));
             else
                 controller.getSelectionLabel().setText("");
-        });
+        };
+        nodeSelection.getSelectedItems().addListener(selectionLabelListener);
+        edgeSelection.getSelectedItems().addListener(selectionLabelListener);
+        view.inTransactionProperty().addListener(selectionLabelListener);
 
         controller.getNewMenuItem().setOnAction(e -> NewWindow.apply());
 
         controller.getOpenMenuItem().setOnAction(e -> OpenDialog.apply(window.getStage()));
         controller.getOpenButton().setOnAction(controller.getOpenMenuItem().getOnAction());
+        controller.getOpenMenuItem().disableProperty().bind(busy);
+        controller.getOpenButton().disableProperty().bind(busy);
 
         controller.getImportMenuItem().setOnAction(e -> ImportDialog.apply(window.getStage()));
+        controller.getImportMenuItem().disableProperty().bind(busy);
 
         controller.getSaveAsMenuItem().setOnAction(e -> Save.showSaveDialog(window));
-        controller.getSaveAsMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSaveAsMenuItem().disableProperty().bind(emptyOrBusy);
         controller.getSaveButton().setOnAction(controller.getSaveAsMenuItem().getOnAction());
         controller.getSaveButton().disableProperty().bind(controller.getSaveAsMenuItem().disableProperty());
 
         controller.getExportMenuItem().setOnAction(e -> PhyloSketchIO.exportNewick(window.getStage(), view));
-        controller.getExportMenuItem().disableProperty().bind(isLeafLabeledDAG.not());
+        controller.getExportMenuItem().disableProperty().bind(isLeafLabeledDAG.not().or(busy));
 
         controller.getExportButton().setOnAction(controller.getExportMenuItem().getOnAction());
         controller.getExportButton().disableProperty().bind(controller.getExportMenuItem().disableProperty());
@@ -183,19 +235,23 @@ public class MainWindowPresenter {
             file = fileChooser.showSaveDialog(window.getStage());
             if (file != null) {
                 try {
+                    view.createAllLabels();
                     SaveToPDF.apply(contentPane, file);
                 } catch (IOException ex) {
                     NotificationManager.showError("Export to PDF failed: " + ex.getMessage());
                 }
             }
         });
-        controller.getExportPDFMenuItem().disableProperty().bind(isLeafLabeledDAG.not());
+        controller.getExportPDFMenuItem().disableProperty().bind(isLeafLabeledDAG.not().or(busy));
 
 
         controller.getPageSetupMenuItem().setOnAction((e) -> Print.showPageLayout(window.getStage()));
 
-        controller.getPrintMenuItem().setOnAction((e) -> Print.print(window.getStage(), contentPane));
-        controller.getPrintMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getPrintMenuItem().setOnAction((e) -> {
+            view.createAllLabels();
+            Print.print(window.getStage(), contentPane);
+        });
+        controller.getPrintMenuItem().disableProperty().bind(emptyOrBusy);
         controller.getPrintButton().setOnAction(controller.getPrintMenuItem().getOnAction());
         controller.getPrintButton().disableProperty().bind(controller.getPrintMenuItem().disableProperty());
 
@@ -221,34 +277,35 @@ public class MainWindowPresenter {
 
         controller.getCopyMenuItem().setOnAction(e -> {
             if (view.getNodeSelection().size() > 0) {
-                final List<String> labels = graph.nodeStream().map(view::getLabel).map(RichTextLabel::getText).filter(text -> text.length() > 0).collect(Collectors.toList());
+                final List<String> labels = graph.nodeStream().map(view::getNodeView).map(NodeView::getLabelText).filter(text -> text.length() > 0).collect(Collectors.toList());
                 final ClipboardContent clipboardContent = new ClipboardContent();
 				clipboardContent.putString(StringUtils.toString(labels, "\n"));
 				Clipboard.getSystemClipboard().setContent(clipboardContent);
             } else if (graph.getNumberOfNodes() > 0) {
+                view.createAllLabels();
                 final Image snapshot = contentPane.snapshot(null, null);
                 final ClipboardContent clipboardContent = new ClipboardContent();
                 clipboardContent.putImage(snapshot);
                 Clipboard.getSystemClipboard().setContent(clipboardContent);
             }
         });
-        controller.getCopyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getCopyMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getUndoMenuItem().setOnAction(e -> undoManager.undo());
-        controller.getUndoMenuItem().disableProperty().bind(undoManager.undoableProperty().not());
+        controller.getUndoMenuItem().disableProperty().bind(undoManager.undoableProperty().not().or(busy));
         controller.getUndoMenuItem().textProperty().bind(undoManager.undoNameProperty());
 
         controller.getUndoButton().setOnAction(e -> undoManager.undo());
-        controller.getUndoButton().disableProperty().bind(undoManager.undoableProperty().not());
+        controller.getUndoButton().disableProperty().bind(undoManager.undoableProperty().not().or(busy));
         controller.getUndoButton().setTooltip(new Tooltip());
         controller.getUndoButton().getTooltip().textProperty().bind(undoManager.undoNameProperty());
 
         controller.getRedoMenuItem().setOnAction(e -> undoManager.redo());
-        controller.getRedoMenuItem().disableProperty().bind(undoManager.redoableProperty().not());
+        controller.getRedoMenuItem().disableProperty().bind(undoManager.redoableProperty().not().or(busy));
         controller.getRedoMenuItem().textProperty().bind(undoManager.redoNameProperty());
 
         controller.getRedoButton().setOnAction(e -> undoManager.redo());
-        controller.getRedoButton().disableProperty().bind(undoManager.redoableProperty().not());
+        controller.getRedoButton().disableProperty().bind(undoManager.redoableProperty().not().or(busy));
         controller.getRedoButton().setTooltip(new Tooltip());
         controller.getRedoButton().getTooltip().textProperty().bind(undoManager.redoNameProperty());
 
@@ -259,40 +316,43 @@ public class MainWindowPresenter {
                 undoManager.doAndAdd(new SetImageCommand(window.getStage(), controller.getContentPane(), image));
             }
         });
+        controller.getPasteMenuItem().disableProperty().bind(busy);
 
         controller.getPasteNewickMenuItem().setOnAction(e -> {
             final Clipboard cb = Clipboard.getSystemClipboard();
             if (cb.hasString()) {
-                undoManager.clear();
-                try (var reader = new StringReader(cb.getString())) {
-                    PhyloSketchIO.importNewick(contentPane, view, reader);
-                } catch (IOException ex) {
-                    NotificationManager.showError("Paste Newick failed: " + ex);
-                }
+                final String newick = cb.getString();
+                BackgroundImport.apply(window, "Newick from clipboard", () -> {
+                    try (var reader = new StringReader(newick)) {
+                        return PhyloSketchIO.readNewick(reader);
+                    }
+                }, null);
             }
         });
+        controller.getPasteNewickMenuItem().disableProperty().bind(busy);
 
         controller.getNormalizationMenuItem().setOnAction(c -> Extract.apply(window, Extract.Normalization));
-        controller.getNormalizationMenuItem().disableProperty().bind(isLeafLabeledDAG.not());
+        controller.getNormalizationMenuItem().disableProperty().bind(isLeafLabeledDAG.not().or(busy));
 
         controller.getLsaTreeMenuItem().setOnAction(c -> Extract.apply(window, Extract.LSA));
-        controller.getLsaTreeMenuItem().disableProperty().bind(isLeafLabeledDAG.not());
+        controller.getLsaTreeMenuItem().disableProperty().bind(isLeafLabeledDAG.not().or(busy));
 
         controller.getRemoveBackgroundImageMenuItem().setOnAction(e -> undoManager.doAndAdd(new SetImageCommand(window.getStage(), controller.getContentPane(), null)));
-        controller.getRemoveBackgroundImageMenuItem().disableProperty().bind(hasBackgroundImage.not());
+        controller.getRemoveBackgroundImageMenuItem().disableProperty().bind(hasBackgroundImage.not().or(busy));
 
         controller.getLoadBackgroundImageMenuItem().setOnAction(e -> {
             final Image image = ImageDialog.apply(window.getStage());
             if (image != null)
                 undoManager.doAndAdd(new SetImageCommand(window.getStage(), controller.getContentPane(), image));
         });
+        controller.getLoadBackgroundImageMenuItem().disableProperty().bind(busy);
 
         controller.getDeleteMenuItem().setOnAction(e ->
                 undoManager.doAndAdd(new DeleteNodesEdgesCommand(contentPane, view, view.getNodeSelection().getSelectedItems(), view.getEdgeSelection().getSelectedItems())));
-        controller.getDeleteMenuItem().disableProperty().bind(nodeSelection.emptyProperty().and(edgeSelection.emptyProperty()));
+        controller.getDeleteMenuItem().disableProperty().bind(nodeSelection.emptyProperty().and(edgeSelection.emptyProperty()).or(busy));
 
         controller.getDeleteLabelsMenuItem().setOnAction(e -> nodeSelection.getSelectedItems().forEach(v -> view.getNodeView(v).getLabel().setText(null)));
-        controller.getDeleteLabelsMenuItem().disableProperty().bind(nodeSelection.emptyProperty());
+        controller.getDeleteLabelsMenuItem().disableProperty().bind(nodeSelection.emptyProperty().or(busy));
 
         contentPane.setOnMousePressed(e -> {
             if (e.getClickCount() == 2) {
@@ -302,23 +362,10 @@ public class MainWindowPresenter {
                 controller.getSelectNoneMenuItem().getOnAction().handle(null);
         });
 
-        controller.getCopyNewickMenuItem().setOnAction(e -> {
-            try (StringWriter w = new StringWriter()) {
-                for (Node root : RootedNetworkProperties.findRoots(graph)) {
-                    graph.setRoot(root);
-                    graph.write(w, false);
-                    w.write(";\n");
-                }
-                final ClipboardContent clipboardContent = new ClipboardContent();
-                clipboardContent.putString(w.toString());
-                Clipboard.getSystemClipboard().setContent(clipboardContent);
-            } catch (IOException ignored) {
-            }
-
-        });
-        controller.getCopyNewickMenuItem().disableProperty().bind(isLeafLabeledDAG.not());
+        controller.getCopyNewickMenuItem().setOnAction(e -> PhyloSketchIO.copyNewick(view));
+        controller.getCopyNewickMenuItem().disableProperty().bind(isLeafLabeledDAG.not().or(busy));
 
-        final GraphSearcher graphSearcher = new GraphSearcher(view.getGraph(), view.getNodeSelection(), (v) -> view.getLabel(v).getText(), (v, t) -> undoManager.doAndAdd(new ChangeLabelCommand(view, v, t)));
+        final GraphSearcher graphSearcher = new GraphSearcher(view.getGraph(), view.getNodeSelection(), (v) -> view.getNodeView(v).getLabelText(), (v, t) -> undoManager.doAndAdd(new ChangeLabelCommand(view, v, t)));
         final FindToolBar graphFindToolBar = new FindToolBar(window.getStage(), graphSearcher);
 
         graphSearcher.foundProperty().addListener((c, o, n) -> {
@@ -329,85 +376,118 @@ public class MainWindowPresenter {
 
         controller.getTopVBox().getChildren().add(graphFindToolBar);
         controller.getFindMenuItem().setOnAction(c -> graphFindToolBar.setShowFindToolBar(true));
-        controller.getFindMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getFindMenuItem().disableProperty().bind(emptyOrBusy);
         controller.getFindAgainMenuItem().setOnAction(c -> graphFindToolBar.findAgain());
-        controller.getFindAgainMenuItem().disableProperty().bind(graphFindToolBar.canFindAgainProperty().not());
+        controller.getFindAgainMenuItem().disableProperty().bind(graphFindToolBar.canFindAgainProperty().not().or(busy));
         controller.getReplaceMenuItem().setOnAction(c -> graphFindToolBar.setShowReplaceToolBar(true));
-        controller.getReplaceMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getReplaceMenuItem().disableProperty().bind(emptyOrBusy);
 
-        controller.getRotateGraphClockwiseMenuItem().setOnAction(c -> undoManager.doAndAdd(new RotateGraphCommand(view, true)));
-        controller.getRotateGraphClockwiseMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateGraphClockwiseMenuItem().setOnAction(c -> AffineTransformCommand.doAndAdd(view, new RotateGraphCommand(view, true)));
+        controller.getRotateGraphClockwiseMenuItem().disableProperty().bind(emptyOrBusy);
 
-        controller.getRotateGraphAnticlockwiseMenuItem().setOnAction(c -> undoManager.doAndAdd(new RotateGraphCommand(view, false)));
-        controller.getRotateGraphAnticlockwiseMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateGraphAnticlockwiseMenuItem().setOnAction(c -> AffineTransformCommand.doAndAdd(view, new RotateGraphCommand(view, false)));
+        controller.getRotateGraphAnticlockwiseMenuItem().disableProperty().bind(emptyOrBusy);
 
-        controller.getFlipGraphHorizontallyMenuItem().setOnAction(c -> undoManager.doAndAdd(new FlipGraphCommand(view, true)));
-        controller.getFlipGraphHorizontallyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getFlipGraphHorizontallyMenuItem().setOnAction(c -> AffineTransformCommand.doAndAdd(view, new FlipGraphCommand(view, true)));
+        controller.getFlipGraphHorizontallyMenuItem().disableProperty().bind(emptyOrBusy);
 
-        controller.getFlipGraphVerticallyMenuItem().setOnAction(c -> undoManager.doAndAdd(new FlipGraphCommand(view, false)));
-        controller.getFlipGraphVerticallyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getFlipGraphVerticallyMenuItem().setOnAction(c -> AffineTransformCommand.doAndAdd(view, new FlipGraphCommand(view, false)));
+        controller.getFlipGraphVerticallyMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getFlipGraphHorizontallyButton().setOnAction(controller.getFlipGraphHorizontallyMenuItem().getOnAction());
-        controller.getFlipGraphHorizontallyButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getFlipGraphHorizontallyButton().disableProperty().bind(emptyOrBusy);
 
         controller.getFlipGraphVerticallyButton().setOnAction(controller.getFlipGraphVerticallyMenuItem().getOnAction());
-        controller.getFlipGraphVerticallyButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getFlipGraphVerticallyButton().disableProperty().bind(emptyOrBusy);
+
+        // the orientation of the last layout, used by Optimize Layout:
+        final ObjectProperty<RootedNetworkEmbedder.Orientation> layoutOrientation = new SimpleObjectProperty<>(RootedNetworkEmbedder.Orientation.leftRight);
+
+        controller.getRectangularLayoutMenuItem().setOnAction(c -> {
+            layoutOrientation.set(RootedNetworkEmbedder.Orientation.leftRight);
+            applyLayout(view, RootedNetworkEmbedder.Orientation.leftRight, getScaling(controller));
+        });
+        controller.getRectangularLayoutMenuItem().disableProperty().bind(emptyOrBusy);
+
+        controller.getRadialLayoutMenuItem().setOnAction(c -> {
+            layoutOrientation.set(RootedNetworkEmbedder.Orientation.radial);
+            applyLayout(view, RootedNetworkEmbedder.Orientation.radial, getScaling(controller));
+        });
+        controller.getRadialLayoutMenuItem().disableProperty().bind(emptyOrBusy);
+
+        controller.getCircularLayoutMenuItem().setOnAction(c -> {
+            layoutOrientation.set(RootedNetworkEmbedder.Orientation.circular);
+            applyLayout(view, RootedNetworkEmbedder.Orientation.circular, getScaling(controller));
+        });
+        controller.getCircularLayoutMenuItem().disableProperty().bind(emptyOrBusy);
+
+        controller.getUseEdgeWeightsCheckMenuItem().setSelected(ProgramProperties.get("LayoutUseEdgeWeights", false));
+        controller.getUseEdgeWeightsCheckMenuItem().selectedProperty().addListener((v, o, n) -> ProgramProperties.put("LayoutUseEdgeWeights", n));
+        controller.getLogScaleCheckMenuItem().setSelected(ProgramProperties.get("LayoutLogScale", false));
+        controller.getLogScaleCheckMenuItem().selectedProperty().addListener((v, o, n) -> ProgramProperties.put("LayoutLogScale", n));
+        controller.getLogScaleCheckMenuItem().disableProperty().bind(controller.getUseEdgeWeightsCheckMenuItem().selectedProperty().not());
+
+        controller.getOptimizeLayoutMenuItem().setOnAction(c -> OptimizeLayout.apply(window, layoutOrientation.get(), getScaling(controller)));
+        controller.getOptimizeLayoutMenuItem().disableProperty().bind(emptyOrBusy);
+
+        controller.getRelaxLayoutMenuItem().setOnAction(c -> RelaxLayout.apply(window));
+        controller.getRelaxLayoutMenuItem().disableProperty().bind(view.getNodeSelection().emptyProperty().or(busy));
 
         controller.getRotateLabelsClockwiseMenuItem().setOnAction(c -> undoManager.doAndAdd(new RotateLabelsCommand(view, view.selectedOrAllNodes(), true)));
-        controller.getRotateLabelsClockwiseMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateLabelsClockwiseMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getRotateLabelsAnticlockwiseMenuItem().setOnAction(c -> undoManager.doAndAdd(new RotateLabelsCommand(view, view.selectedOrAllNodes(), false)));
-        controller.getRotateLabelsAnticlockwiseMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateLabelsAnticlockwiseMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getRotateGraphClockwiseButton().setOnAction(controller.getRotateGraphClockwiseMenuItem().getOnAction());
-        controller.getRotateGraphClockwiseButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateGraphClockwiseButton().disableProperty().bind(emptyOrBusy);
 
         controller.getRotateGraphAnticlockwiseButton().setOnAction(controller.getRotateGraphAnticlockwiseMenuItem().getOnAction());
-        controller.getRotateGraphAnticlockwiseButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateGraphAnticlockwiseButton().disableProperty().bind(emptyOrBusy);
 
         controller.getRotateLabelsClockwiseButton().setOnAction(controller.getRotateLabelsClockwiseMenuItem().getOnAction());
-        controller.getRotateLabelsClockwiseButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateLabelsClockwiseButton().disableProperty().bind(emptyOrBusy);
 
         controller.getRotateLabelsAnticlockwiseButton().setOnAction(controller.getRotateLabelsAnticlockwiseMenuItem().getOnAction());
-        controller.getRotateLabelsAnticlockwiseButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRotateLabelsAnticlockwiseButton().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelLeavesABCMenuItem().setOnAction(c -> undoManager.doAndAdd(new ChangeNodeLabelsCommand(view, LabelLeaves.labelLeavesABC(view))));
-        controller.getLabelLeavesABCMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelLeavesABCMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelABCButton().setOnAction(controller.getLabelLeavesABCMenuItem().getOnAction());
         controller.getLabelABCButton().disableProperty().bind(controller.getLabelLeavesABCMenuItem().disableProperty());
 
         controller.getLabelLeaves123MenuItem().setOnAction(c -> undoManager.doAndAdd(new ChangeNodeLabelsCommand(view, LabelLeaves.labelLeaves123(view))));
-        controller.getLabelLeaves123MenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelLeaves123MenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabel123Button().setOnAction(controller.getLabelLeaves123MenuItem().getOnAction());
         controller.getLabel123Button().disableProperty().bind(controller.getLabelLeaves123MenuItem().disableProperty());
 
         controller.getLabelLeavesMenuItem().setOnAction(c -> LabelLeaves.labelLeaves(window.getStage(), view));
-        controller.getLabelLeavesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelLeavesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelInternalABCMenuItem().setOnAction(c -> undoManager.doAndAdd(new ChangeNodeLabelsCommand(view, LabelLeaves.labelInternalABC(view))));
-        controller.getLabelInternalABCMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelInternalABCMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelInternal123MenuItem().setOnAction(c -> undoManager.doAndAdd(new ChangeNodeLabelsCommand(view, LabelLeaves.labelInternal123(view))));
-        controller.getLabelInternal123MenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelInternal123MenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getZoomInVerticallyMenuItem().setOnAction(e -> scrollPane.zoomBy(1, 1.1));
-        controller.getZoomInVerticallyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getZoomInVerticallyMenuItem().disableProperty().bind(emptyOrBusy);
         controller.getZoomOutVerticallyMenuItem().setOnAction(e -> scrollPane.zoomBy(1, 1 / 1.1));
-        controller.getZoomOutVerticallyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getZoomOutVerticallyMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getZoomInHorizontallyMenuItem().setOnAction(e -> scrollPane.zoomBy(1.1, 1));
-        controller.getZoomInHorizontallyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getZoomInHorizontallyMenuItem().disableProperty().bind(emptyOrBusy);
         controller.getZoomOutHorizontallyMenuItem().setOnAction(e -> scrollPane.zoomBy(1 / 1.1, 1));
-        controller.getZoomOutHorizontallyMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getZoomOutHorizontallyMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getIncreaseFontSizeMenuItem().setOnAction(c -> {
             view.setFont(Font.font(view.getFont().getName(), view.getFont().getSize() + 2));
             final Stream<Node> stream = (nodeSelection.size() > 0 ? nodeSelection.getSelectedItems().stream() : graph.nodeStream());
             stream.map(view::getLabel).forEach(a -> a.setFont(Font.font(a.getFont().getName(), a.getFont().getSize() + 2)));
         });
-        controller.getIncreaseFontSizeMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getIncreaseFontSizeMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getDecreaseFontSizeMenuItem().setOnAction(c -> {
             if (view.getFont().getSize() - 2 >= 4) {
@@ -417,7 +497,7 @@ public class MainWindowPresenter {
                         .forEach(a -> a.setFont(Font.font(a.getFont().getName(), a.getFont().getSize() - 2)));
             }
         });
-        controller.getDecreaseFontSizeMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getDecreaseFontSizeMenuItem().disableProperty().bind(emptyOrBusy);
 
 
         BasicFX.setupFullScreenMenuSupport(window.getStage(), controller.getEnterFullScreenMenuItem());
@@ -426,23 +506,23 @@ public class MainWindowPresenter {
         RecentFilesManager.getInstance().setupMenu(controller.getRecentMenu());
 
         controller.getRemoveDiNodesMenuItem().setOnAction(c -> undoManager.doAndAdd(new RemoveDiNodesCommand(controller.getContentPane(), view, view.selectedOrAllNodes())));
-        controller.getRemoveDiNodesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getRemoveDiNodesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getAddDiNodesMenuItem().setOnAction(c -> undoManager.doAndAdd(SplitEdgeCommand.createAddDiNodesCommand(controller.getContentPane(), view, view.selectedOrAllEdges())));
-        controller.getAddDiNodesMenuItem().disableProperty().bind(view.getEdgeSelection().emptyProperty());
+        controller.getAddDiNodesMenuItem().disableProperty().bind(view.getEdgeSelection().emptyProperty().or(busy));
 
-        controller.getInducedNetworkMenuItem().setOnAction(c -> undoManager.doAndAdd(new CompositeCommand("Induced Network", new InduceNetworkCommand(controller.getContentPane(), view),
+        controller.getInducedNetworkMenuItem().setOnAction(c -> undoManager.doAndAdd(new TransactionCommand("Induced Network", view, new InduceNetworkCommand(controller.getContentPane(), view),
                 new RemoveDiNodesCommand(controller.getContentPane(), view, List.of()))));
-        controller.getInducedNetworkMenuItem().disableProperty().bind(view.getNodeSelection().emptyProperty());
+        controller.getInducedNetworkMenuItem().disableProperty().bind(view.getNodeSelection().emptyProperty().or(busy));
 
         controller.getStraightenEdgesMenuItem().setOnAction(c -> undoManager.doAndAdd(new ChangeEdgeShapeCommand(view, view.selectedOrAllEdges(), ChangeEdgeShapeCommand.EdgeShape.Straight)));
-        controller.getStraightenEdgesMenuItem().disableProperty().bind(Bindings.isEmpty(view.getGraphFX().getEdgeList()));
+        controller.getStraightenEdgesMenuItem().disableProperty().bind(Bindings.isEmpty(view.getGraphFX().getEdgeList()).or(busy));
 
         controller.getStraightenEdgesButton().setOnAction(controller.getStraightenEdgesMenuItem().getOnAction());
         controller.getStraightenEdgesButton().disableProperty().bind(controller.getStraightenEdgesMenuItem().disableProperty());
 
-        controller.getReshapeEdgesMenuItem().setOnAction(c -> undoManager.doAndAdd(new ChangeEdgeShapeCommand(view, view.selectedOrAllEdges(), ChangeEdgeShapeCommand.EdgeShape.Reshape)));
-        controller.getReshapeEdgesMenuItem().disableProperty().bind(Bindings.isEmpty(view.getGraphFX().getEdgeList()));
+        controller.getReshapeEdgesMenuItem().setOnAction(c -> ChangeEdgeShapeCommand.reshape(view, view.selectedOrAllEdges()));
+        controller.getReshapeEdgesMenuItem().disableProperty().bind(Bindings.isEmpty(view.getGraphFX().getEdgeList()).or(busy));
 
         controller.getReshapEdgesButton().setOnAction(controller.getReshapeEdgesMenuItem().getOnAction());
         controller.getReshapEdgesButton().disableProperty().bind(controller.getReshapeEdgesMenuItem().disableProperty());
@@ -462,12 +542,16 @@ public class MainWindowPresenter {
         controller.getFormatTitledPane().expandedProperty().addListener((c, o, n) -> controller.getFormatBorderPane().setVisible(n));
 
         controller.getFormatBorderPane().setCenter(new FormatTab(window));
+        controller.getFormatBorderPane().disableProperty().bind(busy);
         controller.getFormatTitledPane().setExpanded(false);
 
         controller.getUseDarkThemeCheckMenuItem().selectedProperty().bindBidirectional(MainWindowManager.useDarkThemeProperty());
     }
 
     public static void setupSelect(PhyloView view, MainWindowController controller) {
+        final BooleanProperty busy = view.busyProperty();
+        final BooleanBinding emptyOrBusy = view.getGraphFX().emptyProperty().or(busy);
+
         final PhyloTree graph = view.getGraph();
 
         final ItemSelectionModel<Node> nodeSelection = view.getNodeSelection();
@@ -477,41 +561,41 @@ public class MainWindowPresenter {
             graph.nodes().forEach(nodeSelection::select);
             graph.edges().forEach(edgeSelection::select);
         });
-        controller.getSelectAllMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectAllMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectNoneMenuItem().setOnAction(e -> {
             nodeSelection.clearSelection();
             edgeSelection.clearSelection();
         });
-        controller.getSelectNoneMenuItem().disableProperty().bind(nodeSelection.emptyProperty().and(edgeSelection.emptyProperty()));
+        controller.getSelectNoneMenuItem().disableProperty().bind(nodeSelection.emptyProperty().and(edgeSelection.emptyProperty()).or(busy));
 
         controller.getSelectInvertMenuItem().setOnAction(e -> {
             graph.nodes().forEach(nodeSelection::toggleSelection);
             graph.edges().forEach(edgeSelection::toggleSelection);
         });
-        controller.getSelectInvertMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectInvertMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectRootsMenuItem().setOnAction(e -> graph.nodeStream().filter(v -> v.getInDegree() == 0).forEach(nodeSelection::select));
-        controller.getSelectRootsMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectRootsMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectLeavesMenuItem().setOnAction(e -> graph.nodeStream().filter(v -> v.getOutDegree() == 0).forEach(nodeSelection::select));
-        controller.getSelectLeavesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectLeavesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectReticulateNodesMenuitem().setOnAction(e -> graph.nodeStream().filter(v -> v.getInDegree() > 1).forEach(nodeSelection::select));
-        controller.getSelectReticulateNodesMenuitem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectReticulateNodesMenuitem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectStableNodesMenuItem().setOnAction(e -> RootedNetworkProperties.computeAllCompletelyStableInternal(graph).forEach(nodeSelection::select));
-        controller.getSelectStableNodesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectStableNodesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectVisibleNodesMenuItem().setOnAction(e -> RootedNetworkProperties.computeAllVisibleNodes(graph, null).forEach(nodeSelection::select));
-        controller.getSelectVisibleNodesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectVisibleNodesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectVisibleReticulationsMenuItem().setOnAction(e -> RootedNetworkProperties.computeAllVisibleNodes(graph, null).stream().filter(v -> v.getInDegree() > 1).forEach(nodeSelection::select));
-        controller.getSelectVisibleReticulationsMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectVisibleReticulationsMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectTreeNodesMenuItem().setOnAction(e -> graph.nodeStream().filter(v -> v.getInDegree() <= 1 && v.getOutDegree() > 0).forEach(nodeSelection::select));
 
-        controller.getSelectTreeNodesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectTreeNodesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectAllAboveMenuItem().setOnAction(c -> {
             var list = new LinkedList<>(nodeSelection.getSelectedItems());
@@ -528,7 +612,7 @@ public class MainWindowPresenter {
                 }
             }
         });
-        controller.getSelectAllAboveMenuItem().disableProperty().bind(nodeSelection.emptyProperty());
+        controller.getSelectAllAboveMenuItem().disableProperty().bind(nodeSelection.emptyProperty().or(busy));
 
         controller.getSelectAllBelowMenuItem().setOnAction(c -> {
             final Queue<Node> list = new LinkedList<>(nodeSelection.getSelectedItems());
@@ -545,19 +629,22 @@ public class MainWindowPresenter {
                 }
             }
         });
-        controller.getSelectAllBelowMenuItem().disableProperty().bind(nodeSelection.emptyProperty());
+        controller.getSelectAllBelowMenuItem().disableProperty().bind(nodeSelection.emptyProperty().or(busy));
 
         controller.getSelectLowestStableAncestorMenuItem().setOnAction(e -> nodeSelection.selectItems(RootedNetworkProperties.computeAllLowestStableAncestors(graph, nodeSelection.getSelectedItems())));
-        controller.getSelectLowestStableAncestorMenuItem().disableProperty().bind(nodeSelection.emptyProperty());
+        controller.getSelectLowestStableAncestorMenuItem().disableProperty().bind(nodeSelection.emptyProperty().or(busy));
 
         controller.getSelectTreeEdgesMenuItem().setOnAction(c -> graph.edgeStream().filter(e -> e.getTarget().getInDegree() <= 1).forEach(edgeSelection::select));
-        controller.getSelectReticulateEdgesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectReticulateEdgesMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getSelectReticulateEdgesMenuItem().setOnAction(c -> graph.edgeStream().filter(e -> e.getTarget().getInDegree() > 1).forEach(edgeSelection::select));
-        controller.getSelectReticulateEdgesMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getSelectReticulateEdgesMenuItem().disableProperty().bind(emptyOrBusy);
     }
 
     public static void setupAlign(PhyloView view, MainWindowController controller) {
+        final BooleanProperty busy = view.busyProperty();
+        final BooleanBinding emptyOrBusy = view.getGraphFX().emptyProperty().or(busy);
+
         final UndoManager undoManager = view.getUndoManager();
 
         final ObservableList<Node> nodeSelection = view.getNodeSelection().getSelectedItems();
@@ -569,55 +656,58 @@ public class MainWindowPresenter {
         atMostTwoSelected.bind(Bindings.size(nodeSelection).lessThanOrEqualTo(2));
 
         controller.getAlignTopMenuItem().setOnAction(c -> undoManager.doAndAdd(new AlignNodesCommand(view, nodeSelection, AlignNodesCommand.Alignment.Top)));
-        controller.getAlignTopMenuItem().disableProperty().bind(atMostOneSelected);
+        controller.getAlignTopMenuItem().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignTopButton().setOnAction(controller.getAlignTopMenuItem().getOnAction());
-        controller.getAlignTopButton().disableProperty().bind(atMostOneSelected);
+        controller.getAlignTopButton().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignMiddleMenuItem().setOnAction(c -> undoManager.doAndAdd(new AlignNodesCommand(view, view.selectedOrAllNodes(), AlignNodesCommand.Alignment.Middle)));
-        controller.getAlignMiddleMenuItem().disableProperty().bind(atMostOneSelected);
+        controller.getAlignMiddleMenuItem().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignMiddleButton().setOnAction(controller.getAlignMiddleMenuItem().getOnAction());
-        controller.getAlignMiddleButton().disableProperty().bind(atMostOneSelected);
+        controller.getAlignMiddleButton().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignBottomMenuItem().setOnAction(c -> undoManager.doAndAdd(new AlignNodesCommand(view, nodeSelection, AlignNodesCommand.Alignment.Bottom)));
-        controller.getAlignBottomMenuItem().disableProperty().bind(atMostOneSelected);
+        controller.getAlignBottomMenuItem().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignBottomButton().setOnAction(controller.getAlignBottomMenuItem().getOnAction());
         controller.getAlignBottomButton().disableProperty().bind(controller.getAlignBottomMenuItem().disableProperty());
 
         controller.getAlignLeftMenuItem().setOnAction(c -> undoManager.doAndAdd(new AlignNodesCommand(view, nodeSelection, AlignNodesCommand.Alignment.Left)));
-        controller.getAlignLeftMenuItem().disableProperty().bind(atMostOneSelected);
+        controller.getAlignLeftMenuItem().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignLeftButton().setOnAction(controller.getAlignLeftMenuItem().getOnAction());
         controller.getAlignLeftButton().disableProperty().bind(controller.getAlignLeftMenuItem().disableProperty());
 
         controller.getAlignCenterMenuItem().setOnAction(c -> undoManager.doAndAdd(new AlignNodesCommand(view, nodeSelection, AlignNodesCommand.Alignment.Center)));
-        controller.getAlignCenterMenuItem().disableProperty().bind(atMostOneSelected);
+        controller.getAlignCenterMenuItem().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignCenterButton().setOnAction(controller.getAlignCenterMenuItem().getOnAction());
-        controller.getAlignCenterButton().disableProperty().bind(atMostOneSelected);
+        controller.getAlignCenterButton().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignRightMenuItem().setOnAction(c -> undoManager.doAndAdd(new AlignNodesCommand(view, nodeSelection, AlignNodesCommand.Alignment.Right)));
-        controller.getAlignRightMenuItem().disableProperty().bind(atMostOneSelected);
+        controller.getAlignRightMenuItem().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getAlignRightButton().setOnAction(controller.getAlignRightMenuItem().getOnAction());
-        controller.getAlignRightButton().disableProperty().bind(atMostOneSelected);
+        controller.getAlignRightButton().disableProperty().bind(atMostOneSelected.or(busy));
 
         controller.getDistributeHorizontallyMenuItem().setOnAction(c -> undoManager.doAndAdd(new DistributeNodesCommand(view, nodeSelection, DistributeNodesCommand.Direction.Horizontally)));
-        controller.getDistributeHorizontallyMenuItem().disableProperty().bind(atMostTwoSelected);
+        controller.getDistributeHorizontallyMenuItem().disableProperty().bind(atMostTwoSelected.or(busy));
 
         controller.getDistributeHorizontallyButton().setOnAction(controller.getDistributeHorizontallyMenuItem().getOnAction());
-        controller.getDistributeHorizontallyButton().disableProperty().bind(atMostTwoSelected);
+        controller.getDistributeHorizontallyButton().disableProperty().bind(atMostTwoSelected.or(busy));
 
         controller.getDistributeVerticallyMenuItem().setOnAction(c -> undoManager.doAndAdd(new DistributeNodesCommand(view, nodeSelection, DistributeNodesCommand.Direction.Vertically)));
-        controller.getDistributeVerticallyMenuItem().disableProperty().bind(atMostTwoSelected);
+        controller.getDistributeVerticallyMenuItem().disableProperty().bind(atMostTwoSelected.or(busy));
 
         controller.getDistributeVerticallyButton().setOnAction(controller.getDistributeVerticallyMenuItem().getOnAction());
-        controller.getDistributeVerticallyButton().disableProperty().bind(atMostTwoSelected);
+        controller.getDistributeVerticallyButton().disableProperty().bind(atMostTwoSelected.or(busy));
     }
 
     public static void setupLabelPosition(PhyloView view, MainWindowController controller) {
+        final BooleanProperty busy = view.busyProperty();
+        final BooleanBinding emptyOrBusy = view.getGraphFX().emptyProperty().or(busy);
+
         final UndoManager undoManager = view.getUndoManager();
 
         final ObservableList<Node> nodeSelection = view.getNodeSelection().getSelectedItems();
@@ -626,34 +716,61 @@ public class MainWindowPresenter {
         noneSelected.bind(Bindings.size(nodeSelection).isEqualTo(0));
 
         controller.getLabelPositionAboveMenuItem().setOnAction(c -> undoManager.doAndAdd(new PositionNodeLabelsCommand(view, view.selectedOrAllNodes(), PositionNodeLabelsCommand.Position.Above)));
-        controller.getLabelPositionAboveMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelPositionAboveMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelAboveButton().setOnAction(controller.getLabelPositionAboveMenuItem().getOnAction());
         controller.getLabelAboveButton().disableProperty().bind(controller.getLabelPositionAboveMenuItem().disableProperty());
 
         controller.getLabelPositionBelowMenuItem().setOnAction(c -> undoManager.doAndAdd(new PositionNodeLabelsCommand(view, view.selectedOrAllNodes(), PositionNodeLabelsCommand.Position.Below)));
-        controller.getLabelPositionBelowMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelPositionBelowMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelBelowButton().setOnAction(controller.getLabelPositionBelowMenuItem().getOnAction());
         controller.getLabelBelowButton().disableProperty().bind(controller.getLabelPositionBelowMenuItem().disableProperty());
 
         controller.getLabelPositionLeftMenuItem().setOnAction(c -> undoManager.doAndAdd(new PositionNodeLabelsCommand(view, view.selectedOrAllNodes(), PositionNodeLabelsCommand.Position.Left)));
-        controller.getLabelPositionLeftMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelPositionLeftMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelLeftButton().setOnAction(controller.getLabelPositionLeftMenuItem().getOnAction());
-        controller.getLabelLeftButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelLeftButton().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelPositionRightMenuItem().setOnAction(c -> undoManager.doAndAdd(new PositionNodeLabelsCommand(view, view.selectedOrAllNodes(), PositionNodeLabelsCommand.Position.Right)));
-        controller.getLabelPositionRightMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelPositionRightMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelRightButton().setOnAction(controller.getLabelPositionRightMenuItem().getOnAction());
-        controller.getLabelRightButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelRightButton().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelPositionCenterMenuItem().setOnAction(c -> undoManager.doAndAdd(new PositionNodeLabelsCommand(view, view.selectedOrAllNodes(), PositionNodeLabelsCommand.Position.Center)));
-        controller.getLabelPositionCenterMenuItem().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelPositionCenterMenuItem().disableProperty().bind(emptyOrBusy);
 
         controller.getLabelCenterButton().setOnAction(controller.getLabelPositionCenterMenuItem().getOnAction());
-        controller.getLabelCenterButton().disableProperty().bind(view.getGraphFX().emptyProperty());
+        controller.getLabelCenterButton().disableProperty().bind(emptyOrBusy);
+
+        controller.getAvoidLabelOverlapsMenuItem().setOnAction(c -> undoManager.doAndAdd(new PositionNodeLabelsCommand(view, view.selectedOrAllNodes(),
+                PositionNodeLabelsCommand.Position.getDefault(view.computeRootLocation()), true)));
+        controller.getAvoidLabelOverlapsMenuItem().disableProperty().bind(emptyOrBusy);
+
+    }
+
+    /**
+     * @return the scaling selected in the layout menu
+     */
+    public static RootedNetworkEmbedder.Scaling getScaling(MainWindowController controller) {
+        if (!controller.getUseEdgeWeightsCheckMenuItem().isSelected())
+            return RootedNetworkEmbedder.Scaling.cladogram;
+        else if (controller.getLogScaleCheckMenuItem().isSelected())
+            return RootedNetworkEmbedder.Scaling.logPhylogram;
+        else
+            return RootedNetworkEmbedder.Scaling.phylogram;
+    }
 
+    /**
+     * lay out the whole network in the given orientation, as an undoable command
+     */
+    private static void applyLayout(PhyloView view, RootedNetworkEmbedder.Orientation orientation, RootedNetworkEmbedder.Scaling scaling) {
+        final LayoutCommand command = LayoutCommand.create("Layout", view, orientation, scaling, 0);
+        if (command != null)
+            view.getUndoManager().doAndAdd(command);
+        else
+            NotificationManager.showWarning("Layout failed: network has no root");
     }
 }
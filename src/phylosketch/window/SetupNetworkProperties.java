@@ -21,9 +21,11 @@ package phylosketch.window;
 
 import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.value.ObservableBooleanValue;
 import javafx.collections.ListChangeListener;
 import javafx.concurrent.Worker;
 import javafx.scene.control.ContextMenu;
@@ -42,6 +44,9 @@ import jloda.phylo.algorithms.OffspringGraphMatching;
 import jloda.phylo.algorithms.RootedNetworkProperties;
 import jloda.util.IteratorUtils;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * setup network properties
  * Daniel Huson, 1.2022
@@ -51,20 +56,47 @@ public class SetupNetworkProperties {
 
 	/**
 	 * setup network properties
+	 *
+	 * @param inTransaction while true, updates are suspended, a single update is performed when it becomes false
 	 */
-	public static <G extends Graph> void setup(FlowPane statusFlowPane, GraphFX<G> graphFX, BooleanProperty updatingProperties, BooleanProperty leafLabeledDAGProperty) {
+	public static <G extends Graph> void setup(FlowPane statusFlowPane, GraphFX<G> graphFX, ObservableBooleanValue inTransaction, BooleanProperty updatingProperties, BooleanProperty leafLabeledDAGProperty) {
 		if (fontSize.get() < 2)
 			fontSize.set(ProgramProperties.get("StatusPaneFontSize", 14));
 
-		graphFX.getNodeList().addListener((InvalidationListener) z -> update(statusFlowPane, graphFX, updatingProperties, leafLabeledDAGProperty));
-		graphFX.getEdgeList().addListener((InvalidationListener) z -> update(statusFlowPane, graphFX, updatingProperties, leafLabeledDAGProperty));
+		final InvalidationListener listener = z -> {
+			if (!inTransaction.get())
+				update(statusFlowPane, graphFX, updatingProperties, leafLabeledDAGProperty);
+		};
+
+		graphFX.getNodeList().addListener(listener);
+		graphFX.getEdgeList().addListener(listener);
+		// a transaction is reported as one bulk change that may list nodes that were already present, so remember which
+		// label property of each node is observed, to observe each one once:
+		final Map<Node, Observable> node2observedLabel = new HashMap<>();
 		graphFX.getNodeList().addListener((ListChangeListener<Node>) (z) -> {
 			while (z.next()) {
+				for (Node v : z.getRemoved()) {
+					if (v.getOwner() == null) {
+						final Observable label = node2observedLabel.remove(v);
+						if (label != null)
+							label.removeListener(listener);
+					}
+				}
 				for (Node v : z.getAddedSubList()) {
-					graphFX.nodeLabelProperty(v).addListener(c -> update(statusFlowPane, graphFX, updatingProperties, leafLabeledDAGProperty));
+					final Observable label = graphFX.nodeLabelProperty(v);
+					final Observable previous = node2observedLabel.put(v, label);
+					if (previous != label) {
+						if (previous != null)
+							previous.removeListener(listener);
+						label.addListener(listener);
+					}
 				}
 			}
 		});
+		inTransaction.addListener((c, o, n) -> {
+			if (!n)
+				update(statusFlowPane, graphFX, updatingProperties, leafLabeledDAGProperty);
+		});
 
 		statusFlowPane.setOnContextMenuRequested(e -> {
 			final MenuItem increaseFontSizeButton = new MenuItem("Increase Font Size");